@@ -56,6 +56,11 @@ public @interface CacheNamespace {
    * @return 是否阻塞。{@link org.apache.ibatis.cache.decorators.BlockingCache}
    */
   boolean blocking() default false;
+  /**
+   * @return 是否紧凑存储。{@link org.apache.ibatis.cache.decorators.CompactCache}
+   * @since 3.5.0
+   */
+  boolean compact() default false;
 
   /**
    * Property values for a implementation object.
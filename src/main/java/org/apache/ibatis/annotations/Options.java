@@ -83,4 +83,19 @@ public @interface Options {
    * @return 结果集
    */
   String resultSets() default "";
+  /**
+   * @return 结果对象逐个交给自定义的 ResultHandler 或 Cursor 时，是否复用同一个结果对象
+   * @since 3.5.0
+   */
+  boolean reuseResultObjects() default false;
+  /**
+   * @return Cursor 在后台线程中预读的行数。为 -1 时，不预读
+   * @since 3.5.0
+   */
+  int cursorPrefetchSize() default -1;
+  /**
+   * @return 批处理按 SQL 分组时，需要在其之前执行的语句编号，多个以逗号分隔
+   * @since 3.5.0
+   */
+  String batchAfter() default "";
 }
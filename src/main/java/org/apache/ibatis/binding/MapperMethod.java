@@ -28,12 +28,14 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Clinton Begin
@@ -64,17 +66,32 @@ public class MapperMethod {
     	Object param = method.convertArgsToSqlCommandParam(args);
         // 执行 INSERT 操作
         // 转换 rowCount
-        result = rowCountResult(sqlSession.insert(command.getName(), param));
+        if (isDeferrable(sqlSession)) {
+          sqlSession.execute(command.getName(), param);
+          result = null;
+        } else {
+          result = rowCountResult(sqlSession.insert(command.getName(), param));
+        }
         break;
       }
       case UPDATE: {
         Object param = method.convertArgsToSqlCommandParam(args);
-        result = rowCountResult(sqlSession.update(command.getName(), param));
+        if (isDeferrable(sqlSession)) {
+          sqlSession.execute(command.getName(), param);
+          result = null;
+        } else {
+          result = rowCountResult(sqlSession.update(command.getName(), param));
+        }
         break;
       }
       case DELETE: {
         Object param = method.convertArgsToSqlCommandParam(args);
-        result = rowCountResult(sqlSession.delete(command.getName(), param));
+        if (isDeferrable(sqlSession)) {
+          sqlSession.execute(command.getName(), param);
+          result = null;
+        } else {
+          result = rowCountResult(sqlSession.delete(command.getName(), param));
+        }
         break;
       }
       case SELECT:
@@ -116,9 +133,21 @@ public class MapperMethod {
       throw new BindingException("Mapper method '" + command.getName() 
           + " attempted to return null from a method with a primitive return type (" + method.getReturnType() + ").");
     }
+    // 返回类型为 CompletableFuture 时，返回已完成的 CompletableFuture 。异步执行，见 AsyncSqlSession
+    if (method.returnsFuture()) {
+      return CompletableFuture.completedFuture(result);
+    }
     return result;
   }
 
+  /**
+   * 无返回时，不需要更新数量，在合并写操作的 SqlSession 中，写操作可以被合并执行。
+   * 其它 SqlSession ，仍然调用对应的 insert、update、delete 方法
+   */
+  private boolean isDeferrable(SqlSession sqlSession) {
+    return method.returnsVoid() && sqlSession instanceof DefaultSqlSession && ((DefaultSqlSession) sqlSession).isCoalescing();
+  }
+
   private Object rowCountResult(int rowCount) {
     final Object result;
     if (method.returnsVoid()) {// Void 情况，不用返回
@@ -334,6 +363,10 @@ public class MapperMethod {
      * 返回类型是否为 {@link java.util.Optional}
      */
     private final boolean returnsOptional;
+    /**
+     * 返回类型是否为 {@link CompletableFuture} 。为 true 时，{@link #returnType} 为 <> 中的类型
+     */
+    private final boolean returnsFuture;
     /**
      * 返回类型
      */
@@ -362,14 +395,22 @@ public class MapperMethod {
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       // 初始化 returnType 属性
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      // 如果是 CompletableFuture ，则使用 <> 中的类型
+      this.returnsFuture = resolvedReturnType instanceof ParameterizedType
+          && CompletableFuture.class.equals(((ParameterizedType) resolvedReturnType).getRawType());
+      if (this.returnsFuture) {
+        resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+      }
       if (resolvedReturnType instanceof Class<?>) { // 普通类
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {// 泛型
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
+      } else if (this.returnsFuture) {// 泛型变量等等
+        this.returnType = Object.class;
       } else {// 内部类等等
         this.returnType = method.getReturnType();
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || (this.returnsFuture && Void.class.equals(this.returnType));
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       this.returnsCursor = Cursor.class.equals(this.returnType);
       this.returnsOptional = Optional.class.equals(this.returnType);
@@ -435,6 +476,15 @@ public class MapperMethod {
     public boolean returnsOptional() {
       return returnsOptional;
     }
+
+    /**
+     * return whether return type is {@code java.util.concurrent.CompletableFuture}
+     * @return return {@code true}, if return type is {@code java.util.concurrent.CompletableFuture}
+     * @since 3.5.0
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
     //获得指定参数类型在方法参数中的位置。
     private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
       Integer index = null;
@@ -455,7 +505,7 @@ public class MapperMethod {
     private String getMapKey(Method method) {
       String mapKey = null;
       // 返回类型为 Map
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(this.returnType)) {
         // 使用 @MapKey 注解
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
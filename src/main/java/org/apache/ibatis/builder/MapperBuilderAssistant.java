@@ -169,6 +169,17 @@ public class MapperBuilderAssistant extends BaseBuilder {
       boolean readWrite,
       boolean blocking,
       Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, false, props);
+  }
+
+  public Cache useNewCache(Class<? extends Cache> typeClass,
+      Class<? extends Cache> evictionClass,
+      Long flushInterval,
+      Integer size,
+      boolean readWrite,
+      boolean blocking,
+      boolean compact,
+      Properties props) {
     // <1> 创建 Cache 对象
     Cache cache = new CacheBuilder(currentNamespace)
         .implementation(valueOrDefault(typeClass, PerpetualCache.class))
@@ -177,6 +188,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .size(size)
         .readWrite(readWrite)
         .blocking(blocking)
+        .compact(compact)
         .properties(props)
         .build();
     //将cache设置到configuration中
@@ -354,12 +366,47 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String databaseId,
       LanguageDriver lang,
       String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, null, false, null);
+  }
+
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets,
+      String batchAfter,
+      boolean reuseResultObjects,
+      Integer cursorPrefetchSize) {
     // <1> 如果只想的 Cache 未解析，抛出 IncompleteElementException 异常
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
     }
    // <2> 获得 id 编号，格式为 `${namespace}.${id}`
     id = applyCurrentNamespace(id, false);
+    // 预读的行数，即缓冲队列的容量，必须为正数
+    if (cursorPrefetchSize != null && cursorPrefetchSize <= 0) {
+      throw new BuilderException("The cursorPrefetchSize of statement '" + id + "' must be a positive number, but was " + cursorPrefetchSize + ".");
+    }
     boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
     // <3> 创建 MappedStatement.Builder 对象
     MappedStatement.Builder statementBuilder = new MappedStatement.Builder(configuration, id, sqlSource, sqlCommandType)
@@ -374,6 +421,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .lang(lang)
         .resultOrdered(resultOrdered)
         .resultSets(resultSets)
+        .batchAfter(applyCurrentNamespaces(batchAfter))
+        .reuseResultObjects(reuseResultObjects)
+        .cursorPrefetchSize(cursorPrefetchSize)
         .resultMaps(getStatementResultMaps(resultMap, resultType, id))
         .resultSetType(resultSetType)
         .flushCacheRequired(valueOrDefault(flushCache, !isSelect))
@@ -390,6 +440,23 @@ public class MapperBuilderAssistant extends BaseBuilder {
     return statement;
   }
 
+  /**
+   * 拼接逗号分隔的多个编号的命名空间
+   */
+  private String applyCurrentNamespaces(String ids) {
+    if (ids == null) {
+      return null;
+    }
+    StringBuilder builder = new StringBuilder();
+    for (String id : ids.split(",")) {
+      if (builder.length() > 0) {
+        builder.append(',');
+      }
+      builder.append(applyCurrentNamespace(id.trim(), true));
+    }
+    return builder.toString();
+  }
+
   private <T> T valueOrDefault(T value, T defaultValue) {
     return value == null ? defaultValue : value;
   }
@@ -491,6 +558,31 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String resultSet,
       String foreignColumn,
       boolean lazy) {
+    return buildResultMapping(resultType, property, column, javaType, jdbcType, nestedSelect, nestedResultMap, notNullColumn,
+        columnPrefix, typeHandler, flags, resultSet, foreignColumn, lazy, null);
+  }
+
+  /**
+   * 构建ResultMapping
+   * @param batchSize 批量执行内嵌查询时，每次查询的最大父对象数量。为 null 时，逐个执行
+   * @since 3.5.0
+   */
+  public ResultMapping buildResultMapping(
+      Class<?> resultType,
+      String property,
+      String column,
+      Class<?> javaType,
+      JdbcType jdbcType,
+      String nestedSelect,
+      String nestedResultMap,
+      String notNullColumn,
+      String columnPrefix,
+      Class<? extends TypeHandler<?>> typeHandler,
+      List<ResultFlag> flags,
+      String resultSet,
+      String foreignColumn,
+      boolean lazy,
+      Integer batchSize) {
     //获取javaType的类型
     Class<?> javaTypeClass = resolveResultJavaType(resultType, property, javaType);
     //根据javaTypeClass,typeHandler创建TypeHandler实例
@@ -510,6 +602,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .columnPrefix(columnPrefix)
         .foreignColumn(foreignColumn)
         .lazy(lazy)
+        .batchSize(batchSize)
         .build();
   }
 
@@ -43,6 +43,8 @@ import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.NestedQueryConcurrency;
+import org.apache.ibatis.session.RowMapType;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -409,6 +411,23 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    configuration.setEntityCacheEnabled(booleanValueOf(props.getProperty("entityCacheEnabled"), false));
+    configuration.setEntityCacheSize(integerValueOf(props.getProperty("entityCacheSize"), null));
+    configuration.setBatchStatementGrouping(booleanValueOf(props.getProperty("batchStatementGrouping"), false));
+    configuration.setBatchAutoFlushCount(integerValueOf(props.getProperty("batchAutoFlushCount"), null));
+    configuration.setBatchAutoFlushBytes(integerValueOf(props.getProperty("batchAutoFlushBytes"), null));
+    configuration.setBatchInsertRewriteRows(integerValueOf(props.getProperty("batchInsertRewriteRows"), null));
+    configuration.setBatchInsertRewriteParameters(integerValueOf(props.getProperty("batchInsertRewriteParameters"), null));
+    configuration.setBulkInsertParallelism(integerValueOf(props.getProperty("bulkInsertParallelism"), null));
+    configuration.setBulkLoadChunkSize(integerValueOf(props.getProperty("bulkLoadChunkSize"), 1000));
+    configuration.setBulkLoadQueueCapacity(integerValueOf(props.getProperty("bulkLoadQueueCapacity"), 2));
+    configuration.setNestedQueryConcurrency(NestedQueryConcurrency.valueOf(props.getProperty("nestedQueryConcurrency", "NONE")));
+    configuration.setNestedQueryConcurrencyLimit(integerValueOf(props.getProperty("nestedQueryConcurrencyLimit"), 4));
+    configuration.setReuseStatementCacheSize(integerValueOf(props.getProperty("reuseStatementCacheSize"), null));
+    configuration.setColumnIndexMappingEnabled(booleanValueOf(props.getProperty("columnIndexMappingEnabled"), true));
+    configuration.setCompiledRowMappingEnabled(booleanValueOf(props.getProperty("compiledRowMappingEnabled"), false));
+    configuration.setResultSetLayoutCacheSize(integerValueOf(props.getProperty("resultSetLayoutCacheSize"), null));
+    configuration.setRowMapType(RowMapType.valueOf(props.getProperty("rowMapType", "HASH_MAP")));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     @SuppressWarnings("unchecked")
     Class<? extends Log> logImpl = (Class<? extends Log>)resolveClass(props.getProperty("logImpl"));
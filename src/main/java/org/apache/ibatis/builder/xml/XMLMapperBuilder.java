@@ -302,10 +302,12 @@ public class XMLMapperBuilder extends BaseBuilder {
       boolean readWrite = !context.getBooleanAttribute("readOnly", false);
       // 获取<cache>节点上的blocking属性
       boolean blocking = context.getBooleanAttribute("blocking", false);
+      // 获取<cache>节点上的compact属性
+      boolean compact = context.getBooleanAttribute("compact", false);
       // 获取<cache>所有子节点的属性值
       Properties props = context.getChildrenAsProperties();
       //创建缓存
-      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, compact, props);
     }
   }
 
@@ -538,6 +540,7 @@ public class XMLMapperBuilder extends BaseBuilder {
     String resultSet = context.getStringAttribute("resultSet");
     String foreignColumn = context.getStringAttribute("foreignColumn");
     boolean lazy = "lazy".equals(context.getStringAttribute("fetchType", configuration.isLazyLoadingEnabled() ? "lazy" : "eager"));
+    Integer batchSize = context.getIntAttribute("batchSize");
     // 获取javaType配置的类名或类别名对应的Class对象
     Class<?> javaTypeClass = resolveClass(javaType);
     @SuppressWarnings("unchecked")
@@ -546,7 +549,7 @@ public class XMLMapperBuilder extends BaseBuilder {
     // 根据jdbcType配置的名称在枚举找到对应的枚举值
     JdbcType jdbcTypeEnum = resolveJdbcType(jdbcType);
     //构建ResultMapping
-    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy);
+    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy, batchSize);
   }
 
   /**
@@ -99,6 +99,8 @@ public class XMLStatementBuilder extends BaseBuilder {
     // 提取useCache配置，<select/>标签默认为true，其他为false
     boolean useCache = context.getBooleanAttribute("useCache", isSelect);
     boolean resultOrdered = context.getBooleanAttribute("resultOrdered", false);
+    boolean reuseResultObjects = context.getBooleanAttribute("reuseResultObjects", false);
+    Integer cursorPrefetchSize = context.getIntAttribute("cursorPrefetchSize");
 
     // Include Fragments before parsing
     //解析<include/>标签，主要将<include/>转换成<sql/>
@@ -116,6 +118,7 @@ public class XMLStatementBuilder extends BaseBuilder {
     String resultSets = context.getStringAttribute("resultSets");
     String keyProperty = context.getStringAttribute("keyProperty");
     String keyColumn = context.getStringAttribute("keyColumn");
+    String batchAfter = context.getStringAttribute("batchAfter");
     KeyGenerator keyGenerator;
     // <13.1> 优先，从 configuration 中获得 KeyGenerator 对象。如果存在，意味着是 <selectKey /> 标签配置的
     String keyStatementId = id + SelectKeyGenerator.SELECT_KEY_SUFFIX;
@@ -132,7 +135,7 @@ public class XMLStatementBuilder extends BaseBuilder {
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
         fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
         resultSetTypeEnum, flushCache, useCache, resultOrdered, 
-        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, batchAfter, reuseResultObjects, cursorPrefetchSize);
   }
 
   private void processSelectKeyNodes(String id, Class<?> parameterTypeClass, LanguageDriver langDriver) {
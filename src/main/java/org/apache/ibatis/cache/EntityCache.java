@@ -0,0 +1,355 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Entity level cache shared by all the statements of a {@link Configuration}.
+ *
+ * 实体缓存。和二级缓存按 {@link CacheKey} 缓存整个查询结果不同，实体缓存以 ResultMap 编号 + `<id>` 字段值作为 KEY ，
+ * 缓存单个结果对象，因此同一行记录被不同的查询获取时，只会缓存一份。
+ * 写操作时，若按 `<id>` 进行更新，则只驱逐对应的实体，否则清空该 ResultMap 的全部实体。
+ * 实体同时记录了映射它的 ResultSet 的字段布局，只有字段布局相同的查询，才能命中，避免只查询部分字段的结果对象被其它查询获得。
+ * 会话通过 {@link TransactionalEntityCache} 访问实体缓存，事务中读到的实体，提交后才会被添加到实体缓存中。
+ *
+ * @since 3.5.0
+ */
+public class EntityCache {
+
+  /**
+   * 每个 ResultMap 默认缓存的实体数量，和 {@link org.apache.ibatis.cache.decorators.LruCache} 一致
+   */
+  private static final int DEFAULT_SIZE = 1024;
+
+  private final Configuration configuration;
+  /**
+   * Cache 的映射
+   *
+   * KEY：ResultMap 的编号
+   */
+  private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+  /**
+   * 实体的 `<id>` 对应的 ResultMapping 数组的映射。空数组，表示该 ResultMap 不支持实体缓存
+   *
+   * KEY：ResultMap 的编号
+   */
+  private final Map<String, List<ResultMapping>> idMappings = new ConcurrentHashMap<>();
+
+  public EntityCache(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * 判断 ResultMap 是否支持实体缓存。要求声明了带 property 的 `<id>` 或 `<idArg>` ，并且不存在内嵌查询和内嵌映射
+   */
+  public boolean isCacheable(ResultMap resultMap) {
+    return !getIdMappings(resultMap).isEmpty();
+  }
+
+  public List<ResultMapping> getIdMappings(ResultMap resultMap) {
+    return idMappings.computeIfAbsent(resultMap.getId(), k -> resolveIdMappings(resultMap));
+  }
+
+  public CacheKey createKey(ResultMap resultMap, List<Object> idValues) {
+    CacheKey key = new CacheKey();
+    key.update(resultMap.getId());
+    for (Object idValue : idValues) {
+      if (idValue == null) {
+        return null;
+      }
+      // 统一成字符串，避免 int 和 long 等类型不一致，导致读写两端的 KEY 不相等
+      key.update(String.valueOf(idValue));
+    }
+    return key;
+  }
+
+  /**
+   * 获得实体
+   *
+   * @param resultMap ResultMap 对象
+   * @param key KEY
+   * @param columnSignature 字段布局的签名
+   * @return 实体。不存在，或字段布局不同时，返回 null
+   */
+  public Object getObject(ResultMap resultMap, CacheKey key, String columnSignature) {
+    Cache cache = caches.get(resultMap.getId());
+    Entry entry = cache == null ? null : (Entry) cache.getObject(key);
+    return entry == null ? null : entry.getEntity(columnSignature);
+  }
+
+  public void putObject(ResultMap resultMap, CacheKey key, String columnSignature, Object entity) {
+    putObject(resultMap.getId(), key, new Entry(columnSignature, entity));
+  }
+
+  void putObject(String resultMapId, CacheKey key, Entry entry) {
+    // 只缓存可序列化的对象，命中时返回的是反序列化出的副本，避免多个会话共享同一个对象
+    if (entry.entity instanceof Serializable) {
+      getCache(resultMapId).putObject(key, entry);
+    }
+  }
+
+  int getSize() {
+    final Integer size = configuration.getEntityCacheSize();
+    return size == null ? DEFAULT_SIZE : size;
+  }
+
+  /**
+   * 写操作后，驱逐相关的实体。
+   *
+   * 相关的 ResultMap 为：和 MappedStatement 同一命名空间，或和其使用的二级缓存同一命名空间（cache-ref）。
+   * 只有当 SQL 绑定了 `<id>` 对应的全部属性，并且参数对象中能获得它们的值时，才只驱逐单个实体，否则清空该 ResultMap 的全部实体。
+   *
+   * @param ms MappedStatement 对象
+   * @param parameter 参数对象
+   */
+  public void evict(MappedStatement ms, Object parameter) {
+    evict(ms, parameter, null);
+  }
+
+  /**
+   * 写操作后，驱逐相关的实体，并记录到 evictions 中
+   *
+   * @param evictions 驱逐的记录，可以为 null
+   */
+  void evict(MappedStatement ms, Object parameter, Evictions evictions) {
+    final List<String> namespaces = getNamespaces(ms);
+    if (evictions != null) {
+      evictions.namespaces.addAll(namespaces);
+    }
+    if (caches.isEmpty()) {
+      return;
+    }
+    Set<String> boundProperties = null;
+    for (Map.Entry<String, Cache> entry : caches.entrySet()) {
+      final String resultMapId = entry.getKey();
+      if (!namespaces.contains(extractNamespace(resultMapId))) {
+        continue;
+      }
+      if (boundProperties == null) {
+        boundProperties = getBoundProperties(ms, parameter);
+      }
+      final ResultMap resultMap = configuration.getResultMap(resultMapId);
+      final CacheKey key = createKeyForParameter(resultMap, parameter, boundProperties);
+      if (key == null) {
+        entry.getValue().clear();
+      } else {
+        entry.getValue().removeObject(key);
+      }
+      if (evictions != null) {
+        evictions.add(resultMapId, key);
+      }
+    }
+  }
+
+  /**
+   * 按记录，再次驱逐实体。记录之后才创建的 ResultMap 的 Cache ，直接清空
+   */
+  void evict(Evictions evictions) {
+    for (Map.Entry<String, Cache> entry : caches.entrySet()) {
+      final String resultMapId = entry.getKey();
+      if (!evictions.namespaces.contains(extractNamespace(resultMapId))) {
+        continue;
+      }
+      final Set<CacheKey> keys = evictions.getKeys(resultMapId);
+      if (keys == null) {
+        entry.getValue().clear();
+      } else {
+        for (CacheKey key : keys) {
+          entry.getValue().removeObject(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * 判断实体是否被驱逐过
+   */
+  boolean isEvicted(String resultMapId, CacheKey key, Evictions evictions) {
+    if (!evictions.namespaces.contains(extractNamespace(resultMapId))) {
+      return false;
+    }
+    final Set<CacheKey> keys = evictions.getKeys(resultMapId);
+    return keys == null || keys.contains(key);
+  }
+
+  public void clear() {
+    for (Cache cache : caches.values()) {
+      cache.clear();
+    }
+  }
+
+  private List<String> getNamespaces(MappedStatement ms) {
+    final List<String> namespaces = new ArrayList<>(2);
+    namespaces.add(extractNamespace(ms.getId()));
+    if (ms.getCache() != null) {
+      namespaces.add(ms.getCache().getId());
+    }
+    return namespaces;
+  }
+
+  private Set<String> getBoundProperties(MappedStatement ms, Object parameter) {
+    final Set<String> boundProperties = new HashSet<>();
+    for (ParameterMapping parameterMapping : ms.getBoundSql(parameter).getParameterMappings()) {
+      boundProperties.add(parameterMapping.getProperty());
+    }
+    return boundProperties;
+  }
+
+  private CacheKey createKeyForParameter(ResultMap resultMap, Object parameter, Set<String> boundProperties) {
+    if (parameter == null) {
+      return null;
+    }
+    final List<ResultMapping> mappings = getIdMappings(resultMap);
+    final List<Object> idValues = new ArrayList<>(mappings.size());
+    if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+      // 单个简单类型的参数，例如 deleteById(int id) ，只适用于单个 `<id>` ，并且 SQL 只绑定了该属性的情况
+      if (mappings.size() != 1 || !boundProperties.equals(Collections.singleton(mappings.get(0).getProperty()))) {
+        return null;
+      }
+      idValues.add(parameter);
+    } else {
+      final MetaObject metaObject = configuration.newMetaObject(parameter);
+      for (ResultMapping mapping : mappings) {
+        final String property = mapping.getProperty();
+        if (!boundProperties.contains(property) || !metaObject.hasGetter(property)) {
+          return null;
+        }
+        idValues.add(metaObject.getValue(property));
+      }
+    }
+    return createKey(resultMap, idValues);
+  }
+
+  private Cache getCache(String resultMapId) {
+    return caches.computeIfAbsent(resultMapId, id -> new CacheBuilder(id)
+        .size(getSize())
+        .readWrite(true)
+        .build());
+  }
+
+  private List<ResultMapping> resolveIdMappings(ResultMap resultMap) {
+    if (resultMap.hasNestedQueries() || resultMap.hasNestedResultMaps()) {
+      return Collections.emptyList();
+    }
+    final List<ResultMapping> mappings = new ArrayList<>();
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      if (resultMapping.getFlags().contains(ResultFlag.ID)) {
+        if (resultMapping.getProperty() == null || resultMapping.getColumn() == null) {
+          return Collections.emptyList();
+        }
+        mappings.add(resultMapping);
+      }
+    }
+    return mappings;
+  }
+
+  private String extractNamespace(String id) {
+    int lastPeriod = id.lastIndexOf('.');
+    return lastPeriod > 0 ? id.substring(0, lastPeriod) : null;
+  }
+
+  /**
+   * 缓存的实体，及映射它的 ResultSet 的字段布局的签名
+   */
+  static class Entry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    final String columnSignature;
+    final Object entity;
+
+    Entry(String columnSignature, Object entity) {
+      this.columnSignature = columnSignature;
+      this.entity = entity;
+    }
+
+    /**
+     * @return 实体。字段布局不同时，返回 null
+     */
+    Object getEntity(String columnSignature) {
+      return this.columnSignature.equals(columnSignature) ? entity : null;
+    }
+
+  }
+
+  /**
+   * 事务中驱逐过的实体的记录，按 ResultMap 合并。
+   * 单个 ResultMap 驱逐的 KEY 超过 {@link #MAX_KEYS} 个时，合并为清空该 ResultMap 的全部实体
+   */
+  static class Evictions {
+
+    private static final int MAX_KEYS = 1024;
+
+    /**
+     * 写操作相关的命名空间
+     */
+    private final Set<String> namespaces = new HashSet<>();
+    /**
+     * 驱逐的 KEY 的集合的映射。VALUE 为 null 时，表示清空了该 ResultMap 的全部实体
+     *
+     * KEY：ResultMap 的编号
+     */
+    private final Map<String, Set<CacheKey>> keys = new HashMap<>();
+
+    private void add(String resultMapId, CacheKey key) {
+      if (keys.containsKey(resultMapId) && keys.get(resultMapId) == null) {
+        return;
+      }
+      if (key == null) {
+        keys.put(resultMapId, null);
+        return;
+      }
+      final Set<CacheKey> resultMapKeys = keys.computeIfAbsent(resultMapId, k -> new HashSet<>());
+      resultMapKeys.add(key);
+      if (resultMapKeys.size() > MAX_KEYS) {
+        keys.put(resultMapId, null);
+      }
+    }
+
+    private Set<CacheKey> getKeys(String resultMapId) {
+      return keys.get(resultMapId);
+    }
+
+    boolean isEmpty() {
+      return namespaces.isEmpty();
+    }
+
+    void clear() {
+      namespaces.clear();
+      keys.clear();
+    }
+
+  }
+
+}
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+
+/**
+ * 会话级的 {@link EntityCache} 访问对象，和 {@link TransactionalCacheManager} 类似。
+ *
+ * 事务中读到的实体，先暂存起来，提交时才添加到 EntityCache 中，避免其它会话读到未提交的数据；回滚时，直接丢弃。
+ * 事务中的写操作，立即驱逐 EntityCache 中相关的实体，并按 ResultMap 合并记录，提交时再驱逐一次，
+ * 避免其它会话在提交前，又将旧的数据添加到 EntityCache 中。
+ *
+ * @since 3.5.0
+ */
+public class TransactionalEntityCache {
+
+  private final EntityCache delegate;
+  /**
+   * 提交时，要添加到 EntityCache 中的实体。每个 ResultMap 最多暂存 entityCacheSize 个
+   *
+   * KEY：ResultMap 的编号
+   */
+  private final Map<String, Map<CacheKey, EntityCache.Entry>> entriesToAddOnCommit = new HashMap<>();
+  /**
+   * 事务中驱逐过的实体
+   */
+  private final EntityCache.Evictions evictions = new EntityCache.Evictions();
+
+  public TransactionalEntityCache(EntityCache delegate) {
+    this.delegate = delegate;
+  }
+
+  public Object getObject(ResultMap resultMap, CacheKey key, String columnSignature) {
+    final Map<CacheKey, EntityCache.Entry> entries = entriesToAddOnCommit.get(resultMap.getId());
+    final EntityCache.Entry entry = entries == null ? null : entries.get(key);
+    if (entry != null) {
+      return entry.getEntity(columnSignature);
+    }
+    // 事务中驱逐过的实体，EntityCache 中的可能是其它会话添加的旧数据
+    if (!evictions.isEmpty() && delegate.isEvicted(resultMap.getId(), key, evictions)) {
+      return null;
+    }
+    return delegate.getObject(resultMap, key, columnSignature);
+  }
+
+  public void putObject(ResultMap resultMap, CacheKey key, String columnSignature, Object entity) {
+    entriesToAddOnCommit.computeIfAbsent(resultMap.getId(), k -> newEntries(delegate.getSize()))
+        .put(key, new EntityCache.Entry(columnSignature, entity));
+  }
+
+  /**
+   * 写操作后，驱逐相关的实体
+   */
+  public void evict(MappedStatement ms, Object parameter) {
+    delegate.evict(ms, parameter, evictions);
+    // 写操作前暂存的实体，可能已经过期
+    for (Iterator<Map.Entry<String, Map<CacheKey, EntityCache.Entry>>> iterator = entriesToAddOnCommit.entrySet().iterator(); iterator.hasNext();) {
+      final Map.Entry<String, Map<CacheKey, EntityCache.Entry>> resultMapEntries = iterator.next();
+      final String resultMapId = resultMapEntries.getKey();
+      resultMapEntries.getValue().keySet().removeIf(key -> delegate.isEvicted(resultMapId, key, evictions));
+      if (resultMapEntries.getValue().isEmpty()) {
+        iterator.remove();
+      }
+    }
+  }
+
+  public void commit() {
+    if (!evictions.isEmpty()) {
+      delegate.evict(evictions);
+    }
+    for (Map.Entry<String, Map<CacheKey, EntityCache.Entry>> resultMapEntries : entriesToAddOnCommit.entrySet()) {
+      for (Map.Entry<CacheKey, EntityCache.Entry> entry : resultMapEntries.getValue().entrySet()) {
+        delegate.putObject(resultMapEntries.getKey(), entry.getKey(), entry.getValue());
+      }
+    }
+    reset();
+  }
+
+  public void rollback() {
+    reset();
+  }
+
+  private void reset() {
+    entriesToAddOnCommit.clear();
+    evictions.clear();
+  }
+
+  private static Map<CacheKey, EntityCache.Entry> newEntries(final int maxSize) {
+    return new LinkedHashMap<CacheKey, EntityCache.Entry>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<CacheKey, EntityCache.Entry> eldest) {
+        return size() > maxSize;
+      }
+
+    };
+  }
+
+}
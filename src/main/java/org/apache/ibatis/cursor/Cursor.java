@@ -21,6 +21,8 @@ import java.io.Closeable;
  * Cursor contract to handle fetching items lazily using an Iterator.
  * Cursors are a perfect fit to handle millions of items queries that would not normally fits in memory.
  * Cursor SQL queries must be ordered (resultOrdered="true") using the id columns of the resultMap.
+ * Nested result maps are always handled as ordered when read through a cursor: each root object is returned
+ * once its id changes, and the state kept for its nested objects is released.
  *
  * @author Guillaume Darmont / guillaume@dropinocean.com
  */
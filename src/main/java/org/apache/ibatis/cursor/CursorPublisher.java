@@ -0,0 +1,249 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+/**
+ * A cold publisher that streams the rows of a {@link Cursor} query with backpressure.
+ * The interfaces follow the rules of the Reactive Streams ({@code java.util.concurrent.Flow}) specification, but do not
+ * implement its types, as MyBatis depends on neither. To use it with a Reactive Streams implementation, write an adapter
+ * class whose {@code subscribe} wraps the {@code org.reactivestreams.Subscriber} in a {@link Subscriber} that forwards
+ * the four signals, and passes a {@code Subscription} that delegates to {@link Subscription}.
+ *
+ * 基于 {@link Cursor} 的发布者。每个订阅者会打开一个新的 SqlSession 和 Cursor ，只有在订阅者通过 {@link Subscription#request(long)}
+ * 请求时，才从 ResultSet 中读取并映射对应数量的行；完成、出错或者 {@link Subscription#cancel()} 时，关闭 Cursor 和 SqlSession 。
+ *
+ * 读取在 executor 的线程中执行，同一订阅在同一时刻最多只有一个线程在读取，所以不会阻塞调用 request 的线程。
+ *
+ * @since 3.5.0
+ */
+public class CursorPublisher<T> {
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final Executor executor;
+  private final String statement;
+  private final Object parameter;
+
+  /**
+   * 订阅者
+   */
+  public interface Subscriber<T> {
+
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+
+  }
+
+  /**
+   * 订阅
+   */
+  public interface Subscription {
+
+    /**
+     * 请求 n 行
+     */
+    void request(long n);
+
+    /**
+     * 取消订阅，并关闭 Cursor 和 SqlSession
+     */
+    void cancel();
+
+  }
+
+  public CursorPublisher(SqlSessionFactory sqlSessionFactory, Executor executor, String statement, Object parameter) {
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.executor = executor;
+    this.statement = statement;
+    this.parameter = parameter;
+  }
+
+  public void subscribe(Subscriber<? super T> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber");
+    final CursorSubscription<T> subscription = new CursorSubscription<>(this, subscriber);
+    subscriber.onSubscribe(subscription);
+  }
+
+  private static class CursorSubscription<T> implements Subscription, Runnable {
+
+    private final CursorPublisher<T> publisher;
+    private final Subscriber<? super T> subscriber;
+    /**
+     * 尚未发送的请求数量
+     */
+    private final AtomicLong requested = new AtomicLong();
+    /**
+     * 尚未处理的信号数量。由 0 变为 1 的线程负责提交读取任务
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+
+    // 以下属性，只在读取任务中访问
+    private boolean done;
+    private SqlSession sqlSession;
+    private Cursor<T> cursor;
+    private Iterator<T> iterator;
+
+    private CursorSubscription(CursorPublisher<T> publisher, Subscriber<? super T> subscriber) {
+      this.publisher = publisher;
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        // Reactive Streams §3.9
+        invalidRequest = new IllegalArgumentException("The number of requested rows must be positive, but was " + n);
+      } else {
+        requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (wip.getAndIncrement() == 0) {
+        try {
+          publisher.executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          // 线程池拒绝时，在当前线程中关闭并通知
+          wip.set(0);
+          if (!done) {
+            done = true;
+            close();
+            subscriber.onError(e);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      for (;;) {
+        drain();
+        missed = wip.addAndGet(-missed);
+        if (missed == 0) {
+          break;
+        }
+      }
+    }
+
+    private void drain() {
+      if (done) {
+        return;
+      }
+      if (cancelled) {
+        done = true;
+        close();
+        return;
+      }
+      if (invalidRequest != null) {
+        fail(invalidRequest);
+        return;
+      }
+      final long demand = requested.get();
+      if (demand == 0) {
+        return;
+      }
+      long emitted = 0;
+      while (emitted != demand) {
+        if (cancelled) {
+          done = true;
+          close();
+          return;
+        }
+        final T item;
+        try {
+          // <1> 第一次请求时，打开 SqlSession 和 Cursor
+          if (iterator == null) {
+            sqlSession = publisher.sqlSessionFactory.openSession();
+            cursor = sqlSession.selectCursor(publisher.statement, publisher.parameter);
+            iterator = cursor.iterator();
+          }
+          // <2> 读取下一行，没有时完成
+          if (!iterator.hasNext()) {
+            done = true;
+            close();
+            subscriber.onComplete();
+            return;
+          }
+          item = iterator.next();
+        } catch (RuntimeException e) {
+          fail(e);
+          return;
+        }
+        try {
+          subscriber.onNext(item);
+        } catch (RuntimeException | Error e) {
+          // Reactive Streams §2.13 ，订阅者抛出异常时，视为取消，关闭 Cursor 并通知订阅者。
+          // 不再向上抛出，以便 run 方法正常递减 wip
+          cancelled = true;
+          fail(e);
+          return;
+        }
+        emitted++;
+      }
+      if (demand != Long.MAX_VALUE) {
+        requested.addAndGet(-emitted);
+      }
+    }
+
+    private void fail(Throwable throwable) {
+      done = true;
+      close();
+      subscriber.onError(throwable);
+    }
+
+    private void close() {
+      try {
+        if (cursor != null) {
+          cursor.close();
+        }
+      } catch (Exception e) {
+        // ignore
+      } finally {
+        if (sqlSession != null) {
+          sqlSession.close();
+        }
+        cursor = null;
+        iterator = null;
+        sqlSession = null;
+      }
+    }
+  }
+
+}
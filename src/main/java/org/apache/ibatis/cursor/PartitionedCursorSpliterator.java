@@ -0,0 +1,332 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+
+/**
+ * A spliterator that runs a {@link Cursor} query once per range partition, each on its own session,
+ * so that the partitions can be read concurrently by a parallel {@link Stream}.
+ *
+ * 按范围分区的 Spliterator 实现类。查询的范围 [start, end) 被平均分为多个连续的分区，每个分区使用一个新的 SqlSession 执行一次 Cursor 查询，
+ * 在并行的 Stream 中，不同的分区由不同的线程读取。因为使用 Cursor ，所以内存占用和分区的数据量无关。
+ *
+ * 查询的参数对象为 Map ，包含以下 KEY ：
+ * <ul>
+ *   <li>parameter ：调用时传入的参数对象</li>
+ *   <li>partitionColumn ：分区字段，需要通过 ${partitionColumn} 使用。只允许标识符，例如 id 或者 t.id</li>
+ *   <li>partitionIndex ：分区的序号，从 0 开始</li>
+ *   <li>partitionStart ：分区的开始值，包含</li>
+ *   <li>partitionEnd ：分区的结束值，不包含</li>
+ * </ul>
+ *
+ * @since 3.5.0
+ */
+public class PartitionedCursorSpliterator<T> implements Spliterator<T> {
+
+  /**
+   * 分区字段的格式。分区字段通过 ${partitionColumn} 拼接到 SQL 中，所以只允许标识符
+   */
+  private static final Pattern COLUMN_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)*");
+
+  private final Partitions partitions;
+  /**
+   * 待读取的分区的范围 [partitionFrom, partitionTo)
+   */
+  private int partitionFrom;
+  private final int partitionTo;
+
+  /**
+   * 当前读取的分区
+   */
+  private Partition<T> partition;
+
+  /**
+   * 所有 Spliterator 共享的分区信息
+   */
+  private static class Partitions {
+    private final SqlSessionFactory sqlSessionFactory;
+    private final String statement;
+    private final Object parameter;
+    private final String partitionColumn;
+    private final long start;
+    private final long step;
+    private final long remainder;
+    /**
+     * 打开中的分区集合，在 Stream 关闭时关闭
+     */
+    private final Set<Partition<?>> openPartitions = ConcurrentHashMap.newKeySet();
+    /**
+     * Stream 是否已关闭。关闭后，不再打开新的分区
+     */
+    private volatile boolean closed;
+
+    private Partitions(SqlSessionFactory sqlSessionFactory, String statement, Object parameter, String partitionColumn,
+        long start, long end, int count) {
+      this.sqlSessionFactory = sqlSessionFactory;
+      this.statement = statement;
+      this.parameter = parameter;
+      this.partitionColumn = partitionColumn;
+      this.start = start;
+      final long span = Math.subtractExact(end, start);
+      this.step = span / count;
+      this.remainder = span % count;
+    }
+
+    /**
+     * @return 分区的开始值。前 remainder 个分区，多分配一个值
+     */
+    private long boundary(int index) {
+      return start + step * index + Math.min(index, remainder);
+    }
+
+    /**
+     * 关闭所有打开中的分区。其它线程正在读取的分区，由该线程在读取后关闭
+     */
+    private void closeAll() {
+      closed = true;
+      for (Partition<?> partition : openPartitions) {
+        partition.requestClose();
+      }
+    }
+  }
+
+  /**
+   * 打开中的分区。只由打开它的 Spliterator 读取，其它线程只能请求关闭
+   */
+  private static class Partition<T> {
+    private static final int IDLE = 0;
+    private static final int READING = 1;
+    private static final int CLOSE_REQUESTED = 2;
+    private static final int CLOSED = 3;
+
+    private final Partitions partitions;
+    private final SqlSession sqlSession;
+    private Cursor<T> cursor;
+    private Iterator<T> iterator;
+    /**
+     * 状态。打开中的分区，视为正在读取
+     */
+    private final AtomicInteger state = new AtomicInteger(READING);
+
+    private Partition(Partitions partitions, SqlSession sqlSession) {
+      this.partitions = partitions;
+      this.sqlSession = sqlSession;
+    }
+
+    /**
+     * 开始读取
+     *
+     * @return 是否可以读取。已关闭时，返回 false
+     */
+    private boolean beginRead() {
+      return state.compareAndSet(IDLE, READING);
+    }
+
+    /**
+     * 结束读取。读取期间被请求关闭时，关闭
+     */
+    private void endRead() {
+      if (!state.compareAndSet(READING, IDLE)) {
+        close();
+      }
+    }
+
+    /**
+     * 请求关闭。未在读取时，立即关闭，否则由读取的线程在 {@link #endRead()} 时关闭
+     */
+    private void requestClose() {
+      while (true) {
+        final int current = state.get();
+        if (current == IDLE) {
+          if (state.compareAndSet(IDLE, CLOSE_REQUESTED)) {
+            close();
+            return;
+          }
+        } else if (current != READING || state.compareAndSet(READING, CLOSE_REQUESTED)) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * 关闭。只由持有该分区的线程，或者在该分区未读取时调用
+     */
+    private void close() {
+      if (state.getAndSet(CLOSED) == CLOSED) {
+        return;
+      }
+      try {
+        if (cursor != null) {
+          cursor.close();
+        }
+      } catch (Exception e) {
+        // ignore
+      } finally {
+        partitions.openPartitions.remove(this);
+        sqlSession.close();
+      }
+    }
+  }
+
+  public PartitionedCursorSpliterator(SqlSessionFactory sqlSessionFactory, String statement, Object parameter,
+      String partitionColumn, long start, long end, int partitions) {
+    if (partitions <= 0) {
+      throw new IllegalArgumentException("The number of partitions must be positive, but was " + partitions);
+    }
+    if (partitionColumn == null || !COLUMN_PATTERN.matcher(partitionColumn).matches()) {
+      throw new IllegalArgumentException("The partition column must be a column name, but was " + partitionColumn);
+    }
+    if (end <= start) {
+      throw new IllegalArgumentException("The end of the range (" + end + ") must be greater than the start (" + start + ")");
+    }
+    // 分区数量不超过范围内值的数量
+    final int count = (int) Math.min(partitions, Math.subtractExact(end, start));
+    this.partitions = new Partitions(sqlSessionFactory, statement, parameter, partitionColumn, start, end, count);
+    this.partitionFrom = 0;
+    this.partitionTo = count;
+  }
+
+  private PartitionedCursorSpliterator(Partitions partitions, int partitionFrom, int partitionTo) {
+    this.partitions = partitions;
+    this.partitionFrom = partitionFrom;
+    this.partitionTo = partitionTo;
+  }
+
+  /**
+   * 创建并行的 Stream 。Stream 关闭时，关闭所有尚未关闭的 SqlSession ，正在读取的 SqlSession 由读取的线程在读取后关闭，并且不再打开新的分区
+   */
+  public static <T> Stream<T> stream(SqlSessionFactory sqlSessionFactory, String statement, Object parameter,
+      String partitionColumn, long start, long end, int partitions) {
+    final PartitionedCursorSpliterator<T> spliterator = new PartitionedCursorSpliterator<>(sqlSessionFactory, statement,
+        parameter, partitionColumn, start, end, partitions);
+    return StreamSupport.stream(spliterator, true).onClose(spliterator.partitions::closeAll);
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    while (true) {
+      // <1> 打开下一个分区
+      if (partition == null) {
+        if (partitionFrom >= partitionTo || partitions.closed) {
+          return false;
+        }
+        openPartition(partitionFrom++);
+      }
+      // <2> 读取当前分区的下一行，没有时关闭当前分区。Stream 已关闭时，结束
+      if (partitions.closed || !partition.beginRead()) {
+        closePartition();
+        return false;
+      }
+      final T next;
+      try {
+        if (!partition.iterator.hasNext()) {
+          closePartition();
+          continue;
+        }
+        next = partition.iterator.next();
+      } catch (RuntimeException e) {
+        closePartition();
+        throw e;
+      } finally {
+        if (partition != null) {
+          partition.endRead();
+        }
+      }
+      action.accept(next);
+      return true;
+    }
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    try {
+      while (tryAdvance(action)) {
+        // continue
+      }
+    } finally {
+      closePartition();
+    }
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    // 只拆分尚未开始读取的分区
+    final int remaining = partitionTo - partitionFrom;
+    if (partition != null || remaining < 2) {
+      return null;
+    }
+    final int middle = partitionFrom + remaining / 2;
+    final Spliterator<T> prefix = new PartitionedCursorSpliterator<>(partitions, partitionFrom, middle);
+    partitionFrom = middle;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL;
+  }
+
+  private void openPartition(int index) {
+    final DefaultSqlSession.StrictMap<Object> parameterObject = new DefaultSqlSession.StrictMap<>();
+    parameterObject.put("parameter", partitions.parameter);
+    parameterObject.put("partitionColumn", partitions.partitionColumn);
+    parameterObject.put("partitionIndex", index);
+    parameterObject.put("partitionStart", partitions.boundary(index));
+    parameterObject.put("partitionEnd", partitions.boundary(index + 1));
+    partition = new Partition<>(partitions, partitions.sqlSessionFactory.openSession());
+    partitions.openPartitions.add(partition);
+    try {
+      partition.cursor = partition.sqlSession.selectCursor(partitions.statement, parameterObject);
+      partition.iterator = partition.cursor.iterator();
+    } catch (RuntimeException e) {
+      closePartition();
+      throw e;
+    }
+    // 打开期间被请求关闭时，关闭
+    partition.endRead();
+  }
+
+  /**
+   * 关闭当前读取的分区
+   */
+  private void closePartition() {
+    if (partition == null) {
+      return;
+    }
+    final Partition<T> closing = partition;
+    partition = null;
+    closing.close();
+  }
+
+}
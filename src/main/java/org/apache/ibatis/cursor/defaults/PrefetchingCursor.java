@@ -0,0 +1,298 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.ibatis.cursor.Cursor;
+
+/**
+ * A cursor that reads and maps the rows of another cursor on a background thread,
+ * up to a fixed number of rows ahead of the consumer.
+ *
+ * 预读的 Cursor 实现类。后台线程从被包装的 Cursor 中读取并映射结果对象，放到有界的缓冲队列中，消费者从缓冲队列中获取，
+ * 所以 JDBC 读取和消费者的处理可以同时进行。后台线程的异常，会在消费者获取到该位置时抛出。
+ *
+ * {@link #close()} 会通知后台线程停止，并等待其关闭被包装的 Cursor 后返回，所以关闭 SqlSession 前，ResultSet 已经关闭。
+ * 若线程池尚未开始执行读取任务，则取消该任务，并在当前线程中关闭被包装的 Cursor 。
+ * 读取任务开始前，消费者会阻塞等待；在其它线程中调用 {@link #close()} ，可以唤醒等待中的消费者。
+ * 打开期间，后台线程会使用 SqlSession 的 Executor ，而 Executor 不是线程安全的，所以在关闭或读取完该 Cursor 前，
+ * 不能通过该 SqlSession 执行其它语句，包括在遍历 Cursor 的当前线程中，也包括其它线程。
+ *
+ * @since 3.5.0
+ */
+public class PrefetchingCursor<T> implements Cursor<T> {
+
+  private static final Object END = new Object();
+
+  /**
+   * 被包装的 Cursor 对象
+   */
+  private final Cursor<T> delegate;
+  private final Executor executor;
+  /**
+   * 缓冲队列
+   */
+  private final BlockingQueue<Object> buffer;
+  /**
+   * 后台线程结束的信号
+   */
+  private final CountDownLatch prefetchDone = new CountDownLatch(1);
+  /**
+   * 读取任务是否已开始执行，或者已被 {@link #close()} 取消。由先设置为 true 的一方负责关闭被包装的 Cursor
+   */
+  private final AtomicBoolean prefetchStarted = new AtomicBoolean();
+  private final FutureTask<Void> prefetchTask = new FutureTask<>(this::prefetch, null);
+  private final PrefetchingIterator prefetchingIterator = new PrefetchingIterator();
+  /**
+   * 创建时，被包装的 Cursor 的位置，包含 RowBounds 的 offset
+   */
+  private final int startIndex;
+
+  private boolean iteratorRetrieved;
+  /**
+   * 是否在后台线程中读取。线程池拒绝时，为 false ，直接从被包装的 Cursor 中读取
+   */
+  private boolean prefetching;
+  private volatile boolean closed;
+  private boolean consumed;
+
+  private static class Failure {
+    private final Throwable cause;
+
+    private Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+
+  public PrefetchingCursor(Cursor<T> delegate, int prefetchSize, Executor executor) {
+    if (prefetchSize <= 0) {
+      throw new IllegalArgumentException("prefetchSize must be a positive number, but was " + prefetchSize);
+    }
+    this.delegate = delegate;
+    this.executor = Objects.requireNonNull(executor, "executor");
+    this.buffer = new ArrayBlockingQueue<>(prefetchSize);
+    this.startIndex = delegate.getCurrentIndex();
+  }
+
+  @Override
+  public boolean isOpen() {
+    if (!prefetching) {
+      return delegate.isOpen();
+    }
+    return !closed && !consumed;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    if (!prefetching) {
+      return delegate.isConsumed();
+    }
+    return consumed;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    if (!prefetching) {
+      return delegate.getCurrentIndex();
+    }
+    return startIndex + prefetchingIterator.iteratorIndex + 1;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (closed) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    iteratorRetrieved = true;
+    try {
+      executor.execute(prefetchTask);
+      prefetching = true;
+      return prefetchingIterator;
+    } catch (RejectedExecutionException e) {
+      // 线程池拒绝时，不预读
+      return delegate.iterator();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (!prefetching) {
+      closeDelegate();
+      return;
+    }
+    // 读取任务尚未开始时，例如线程池已满，取消该任务，并在当前线程中关闭
+    if (prefetchStarted.compareAndSet(false, true)) {
+      prefetchTask.cancel(false);
+      closeDelegate();
+      wakeUpConsumer();
+      return;
+    }
+    // 清空缓冲队列，唤醒阻塞在 put 中的后台线程。此后后台线程最多再添加一个元素，就会发现已关闭。并等待其关闭被包装的 Cursor
+    buffer.clear();
+    boolean interrupted = false;
+    while (true) {
+      try {
+        prefetchDone.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    wakeUpConsumer();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * 后台线程已结束或不会开始，清空缓冲队列，并添加结束标记，唤醒其它线程中阻塞在 take 中的消费者
+   */
+  private void wakeUpConsumer() {
+    buffer.clear();
+    buffer.offer(END);
+  }
+
+  /**
+   * 后台线程，读取结果对象到缓冲队列中
+   */
+  private void prefetch() {
+    // 已被 close 方法取消
+    if (!prefetchStarted.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      final Iterator<T> iterator = delegate.iterator();
+      while (!closed && iterator.hasNext()) {
+        if (!put(iterator.next())) {
+          return;
+        }
+      }
+      if (!closed) {
+        put(END);
+      }
+    } catch (RuntimeException | Error e) {
+      if (!closed) {
+        put(new Failure(e));
+      }
+    } finally {
+      closeDelegate();
+      prefetchDone.countDown();
+    }
+  }
+
+  private void closeDelegate() {
+    try {
+      delegate.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  /**
+   * 添加到缓冲队列中，队列已满时阻塞。{@link #close()} 会清空队列，以唤醒阻塞的后台线程
+   *
+   * @return 是否添加成功。关闭时，返回 false
+   */
+  private boolean put(Object item) {
+    try {
+      buffer.put(item);
+      return !closed;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private class PrefetchingIterator implements Iterator<T> {
+
+    /**
+     * 下一个结果对象
+     */
+    private Object next;
+    /**
+     * 已返回的结果对象的序号
+     */
+    private int iteratorIndex = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (next == null && !consumed && !closed) {
+        next = take();
+      }
+      if (next instanceof Failure) {
+        final Throwable cause = ((Failure) next).cause;
+        next = null;
+        consumed = true;
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw (RuntimeException) cause;
+      }
+      if (next == END) {
+        next = null;
+        consumed = true;
+      }
+      return next != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final T result = (T) next;
+      next = null;
+      iteratorIndex++;
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+
+    private Object take() {
+      try {
+        // 后台线程在结束前总会添加结束标记或异常，其它线程关闭时也会添加结束标记，所以不会一直阻塞
+        final Object item = buffer.take();
+        return closed ? null : item;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for the next row of the Cursor.", e);
+      }
+    }
+  }
+
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.TransactionalEntityCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementUtil;
@@ -79,9 +80,14 @@ public abstract class BaseExecutor implements Executor {
    * 是否关闭
    */
   private boolean closed;
+  /**
+   * 事务级的实体缓存
+   */
+  private final TransactionalEntityCache entityCache;
 
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
+    this.entityCache = new TransactionalEntityCache(configuration.getEntityCache());
     this.deferredLoads = new ConcurrentLinkedQueue<>();
     this.localCache = new PerpetualCache("LocalCache");
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
@@ -102,6 +108,10 @@ public abstract class BaseExecutor implements Executor {
   public void close(boolean forceRollback) {
     try {
       try {
+        // 和 CachingExecutor 一致，不强制回滚时，提交实体缓存
+        if (!forceRollback) {
+          entityCache.commit();
+        }
         rollback(forceRollback);
       } finally {
         if (transaction != null) {
@@ -135,7 +145,9 @@ public abstract class BaseExecutor implements Executor {
     // <2> 清空本地缓存
     //因为，更新后，可能缓存会失效。但是，又没很好的办法，判断哪一些失效。所以，最稳妥的做法，就是全部清空
     clearLocalCache();
-    // <3> 执行写操作
+    // <3> 驱逐实体缓存
+    evictEntities(ms, parameter);
+    // <4> 执行写操作
     return doUpdate(ms, parameter);
   }
 
@@ -291,6 +303,8 @@ public abstract class BaseExecutor implements Executor {
     if (required) {
       transaction.commit();
     }
+    // 提交实体缓存
+    entityCache.commit();
   }
 
   @Override
@@ -306,6 +320,8 @@ public abstract class BaseExecutor implements Executor {
         if (required) {
           transaction.rollback();
         }
+        // 回滚实体缓存
+        entityCache.rollback();
       }
     }
   }
@@ -419,6 +435,17 @@ public abstract class BaseExecutor implements Executor {
   public void setExecutorWrapper(Executor wrapper) {
     this.wrapper = wrapper;
   }
+
+  @Override
+  public TransactionalEntityCache getEntityCache() {
+    return entityCache;
+  }
+
+  private void evictEntities(MappedStatement ms, Object parameter) {
+    if (configuration.isEntityCacheEnabled()) {
+      entityCache.evict(ms, parameter);
+    }
+  }
   
   private static class DeferredLoad {
 
@@ -21,8 +21,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -30,6 +33,9 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -51,6 +57,10 @@ public class BatchExecutor extends BaseExecutor {
    * 每一个 BatchResult 元素，对应一个 {@link #statementList} 的 Statement 元素
    */
   private final List<BatchResult> batchResultList = new ArrayList<>();
+  /**
+   * 每一个 Statement 元素，每次执行插入的行数。改写为多行 INSERT 时大于 1
+   */
+  private final List<Integer> statementRowsList = new ArrayList<>();
   /**
    * 当前 SQL
    */
@@ -59,9 +69,60 @@ public class BatchExecutor extends BaseExecutor {
    * 当前 MappedStatement 对象
    */
   private MappedStatement currentStatement;
+  /**
+   * 是否按 SQL 分组批处理。开启后，每个不同的 SQL 保持一个 Statement 对象，而不仅仅是合并连续相同的 SQL
+   */
+  private final boolean grouping;
+  /**
+   * 分组批处理时，Statement 在 {@link #statementList} 中的位置的映射
+   *
+   * KEY：MappedStatement 编号 + SQL
+   */
+  private final Map<CacheKey, Integer> statementIndexes = new HashMap<>();
+  /**
+   * 自动刷入的批处理语句数量的阈值。为 null 时，不按数量自动刷入
+   */
+  private final Integer autoFlushCount;
+  /**
+   * 自动刷入的参数估算字节数的阈值。为 null 时，不按字节数自动刷入
+   */
+  private final Integer autoFlushBytes;
+  /**
+   * 未刷入的批处理语句数量
+   */
+  private int pendingCount;
+  /**
+   * 未刷入的批处理语句的参数估算字节数
+   */
+  private long pendingBytes;
+  /**
+   * 自动刷入产生的 BatchResult 数组，在下一次 {@link #flushStatements()} 时一并返回
+   */
+  private final List<BatchResult> flushedBatchResults = new ArrayList<>();
+  /**
+   * 多行 INSERT 的改写器。为 null 时，不改写
+   */
+  private final MultiRowInsertRewriter insertRewriter;
+  /**
+   * 等待改写为多行 INSERT 的 MappedStatement 对象
+   */
+  private MappedStatement pendingInsertStatement;
+  /**
+   * 等待改写为多行 INSERT 的行的 BoundSql 数组
+   */
+  private final List<BoundSql> pendingInsertBoundSqls = new ArrayList<>();
+  /**
+   * 等待改写为多行 INSERT 的行的参数数组
+   */
+  private final List<Object> pendingInsertParameters = new ArrayList<>();
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.grouping = configuration.isBatchStatementGrouping();
+    this.autoFlushCount = configuration.getBatchAutoFlushCount();
+    this.autoFlushBytes = configuration.getBatchAutoFlushBytes();
+    this.insertRewriter = configuration.getBatchInsertRewriteRows() == null ? null
+        : new MultiRowInsertRewriter(configuration.getBatchInsertRewriteRows(), configuration.getBatchInsertRewriteParameters());
   }
 
   @Override
@@ -71,18 +132,46 @@ public class BatchExecutor extends BaseExecutor {
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
+    // 改写为多行 INSERT 时，先暂存该行，凑够行数后再添加到批处理中
+    if (insertRewriter != null) {
+      if (!pendingInsertBoundSqls.isEmpty()
+          && (!ms.equals(pendingInsertStatement) || !sql.equals(pendingInsertBoundSqls.get(0).getSql()))) {
+        batchPendingInserts();
+      }
+      if (insertRewriter.isRewritable(ms, boundSql)) {
+        pendingInsertStatement = ms;
+        pendingInsertBoundSqls.add(boundSql);
+        pendingInsertParameters.add(parameterObject);
+        if (pendingInsertBoundSqls.size() >= insertRewriter.getRowsPerStatement(boundSql)) {
+          batchPendingInserts();
+        }
+        autoFlushIfRequired(ms, boundSql, parameterObject);
+        return BATCH_UPDATE_RETURN_VALUE;
+      }
+    }
+    batchStatement(ms, parameterObject, handler, sql);
+    // <5> 达到阈值时，自动刷入
+    autoFlushIfRequired(ms, boundSql, parameterObject);
+    return BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  /**
+   * 添加到批处理中
+   */
+  private void batchStatement(MappedStatement ms, Object parameterObject, StatementHandler handler, String sql) throws SQLException {
     final Statement stmt;
-    // <2> 如果匹配最后一次 currentSql 和 currentStatement ，则聚合到 BatchResult 中
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      // <2.1> 获得最后一次的 Statement 对象
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
+    // <2> 如果匹配最后一次 currentSql 和 currentStatement ，或者分组批处理时匹配已有的 Statement ，则聚合到 BatchResult 中
+    final CacheKey statementKey = grouping ? createStatementKey(ms, sql) : null;
+    final int index = findStatementIndex(ms, sql, statementKey);
+    if (index >= 0) {
+      // <2.1> 获得可聚合的 Statement 对象
+      stmt = statementList.get(index);
       // <2.2> 设置事务超时时间
       applyTransactionTimeout(stmt);
       // <2.3> 设置 SQL 上的参数，例如 PrepareStatement 对象上的占位符
       handler.parameterize(stmt);//fix Issues 322
-      // <2.4> 获得最后一次的 BatchResult 对象，并添加参数到其中
-      BatchResult batchResult = batchResultList.get(last);
+      // <2.4> 获得对应的 BatchResult 对象，并添加参数到其中
+      BatchResult batchResult = batchResultList.get(index);
       //添加参数
       batchResult.addParameterObject(parameterObject);
     } else {
@@ -95,15 +184,174 @@ public class BatchExecutor extends BaseExecutor {
       // <3.4> 重新设置 currentSql 和 currentStatement
       currentSql = sql;
       currentStatement = ms;
-      // <3.5> 添加 Statement 到 statementList 中
-      statementList.add(stmt);
-      // <3.6> 创建 BatchResult 对象，并添加到 batchResultList 中
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      // <3.5> 创建 BatchResult 对象，并和 Statement 一起添加到 statementList 和 batchResultList 中
+      addStatement(stmt, new BatchResult(ms, sql, parameterObject), 1, statementKey);
     }
   // handler.parameterize(stmt);
     // <4> 批处理
     handler.batch(stmt);
-    return BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  /**
+   * 将暂存的行改写为一条多行 INSERT ，并添加到批处理中
+   */
+  private void batchPendingInserts() throws SQLException {
+    if (pendingInsertBoundSqls.isEmpty()) {
+      return;
+    }
+    final MappedStatement ms = pendingInsertStatement;
+    // 只有一行时，不改写，按原 SQL 添加到批处理中
+    if (pendingInsertBoundSqls.size() == 1) {
+      final BoundSql boundSql = pendingInsertBoundSqls.get(0);
+      final Object parameterObject = pendingInsertParameters.get(0);
+      pendingInsertStatement = null;
+      pendingInsertBoundSqls.clear();
+      pendingInsertParameters.clear();
+      batchStatement(ms, parameterObject, configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, boundSql),
+          boundSql.getSql());
+      return;
+    }
+    final List<Object> parameterObjects = new ArrayList<>(pendingInsertParameters);
+    final BoundSql boundSql = insertRewriter.rewrite(configuration, pendingInsertBoundSqls, parameterObjects);
+    pendingInsertStatement = null;
+    pendingInsertBoundSqls.clear();
+    pendingInsertParameters.clear();
+    // 传入 BoundSql 对象，所以不会为合并后的参数对象生成主键。主键在 doFlushStatements 时，按每行的参数对象处理
+    final StatementHandler handler = configuration.newStatementHandler(this, ms, boundSql.getParameterObject(), RowBounds.DEFAULT, null, boundSql);
+    final String sql = boundSql.getSql();
+    final Statement stmt;
+    final CacheKey statementKey = grouping ? createStatementKey(ms, sql) : null;
+    final int index = findStatementIndex(ms, sql, statementKey);
+    final BatchResult batchResult;
+    if (index >= 0) {
+      stmt = statementList.get(index);
+      applyTransactionTimeout(stmt);
+      handler.parameterize(stmt);
+      batchResult = batchResultList.get(index);
+      batchResult.addParameterObject(parameterObjects.get(0));
+    } else {
+      Connection connection = getConnection(ms.getStatementLog());
+      stmt = handler.prepare(connection, transaction.getTimeout());
+      handler.parameterize(stmt);
+      currentSql = sql;
+      currentStatement = ms;
+      batchResult = new BatchResult(ms, sql, parameterObjects.get(0));
+      addStatement(stmt, batchResult, parameterObjects.size(), statementKey);
+    }
+    // BatchResult 中保存每行的参数对象，而不是合并后的参数对象
+    for (int i = 1; i < parameterObjects.size(); i++) {
+      batchResult.addParameterObject(parameterObjects.get(i));
+    }
+    handler.batch(stmt);
+  }
+
+  private CacheKey createStatementKey(MappedStatement ms, String sql) {
+    return new CacheKey(new Object[] {ms.getId(), sql});
+  }
+
+  /**
+   * 获得可以聚合的 Statement 。
+   *
+   * 分组批处理时，聚合到已有的 Statement 中，相当于将本次执行提前到其后的 Statement 之前。
+   * 因此，只有其后的 Statement 都在 batchAfter 中声明了在其之后执行时，才可以聚合，否则不改变执行顺序，使用新的 Statement 。
+   *
+   * @return 可以聚合的 Statement 在 {@link #statementList} 中的位置。不存在时，返回 -1
+   */
+  private int findStatementIndex(MappedStatement ms, String sql, CacheKey statementKey) {
+    if (grouping) {
+      Integer index = statementIndexes.get(statementKey);
+      if (index == null) {
+        return -1;
+      }
+      for (int i = index + 1; i < batchResultList.size(); i++) {
+        if (!isBatchAfter(batchResultList.get(i).getMappedStatement(), ms)) {
+          return -1;
+        }
+      }
+      return index;
+    }
+    return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+  }
+
+  /**
+   * 添加新的 Statement 。
+   *
+   * 默认添加到最后。分组批处理时，如果其前的 Statement 在 batchAfter 中声明了在其之后执行，则添加到这些 Statement 之前，
+   * 例如先插入父记录，再插入子记录。因此，{@link #statementList} 的顺序，即为执行的顺序。
+   */
+  private void addStatement(Statement stmt, BatchResult batchResult, int rows, CacheKey statementKey) {
+    int index = statementList.size();
+    if (grouping) {
+      while (index > 0 && isBatchAfter(batchResultList.get(index - 1).getMappedStatement(), batchResult.getMappedStatement())) {
+        index--;
+      }
+      // 其后的 Statement 的位置后移
+      for (Map.Entry<CacheKey, Integer> entry : statementIndexes.entrySet()) {
+        if (entry.getValue() >= index) {
+          entry.setValue(entry.getValue() + 1);
+        }
+      }
+      statementIndexes.put(statementKey, index);
+    }
+    statementList.add(index, stmt);
+    batchResultList.add(index, batchResult);
+    statementRowsList.add(index, rows);
+  }
+
+  /**
+   * @return ms 是否在 batchAfter 中声明了在 previous 之后执行
+   */
+  private boolean isBatchAfter(MappedStatement ms, MappedStatement previous) {
+    String[] batchAfter = ms.getBatchAfter();
+    if (batchAfter != null) {
+      for (String statementId : batchAfter) {
+        if (statementId.equals(previous.getId())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void autoFlushIfRequired(MappedStatement ms, BoundSql boundSql, Object parameterObject) throws SQLException {
+    if (autoFlushCount == null && autoFlushBytes == null) {
+      return;
+    }
+    pendingCount++;
+    if (autoFlushBytes != null) {
+      pendingBytes += estimateBytes(ms, boundSql, parameterObject);
+    }
+    if ((autoFlushCount != null && pendingCount >= autoFlushCount)
+        || (autoFlushBytes != null && pendingBytes >= autoFlushBytes)) {
+      // 返回的结果包含之前自动刷入的 BatchResult ，而 flushedBatchResults 已被清空，所以全部添加回去
+      flushedBatchResults.addAll(doFlushStatements(false));
+    }
+  }
+
+  /**
+   * 估算驱动为一次 addBatch 缓存的参数字节数
+   */
+  private long estimateBytes(MappedStatement ms, BoundSql boundSql, Object parameterObject) {
+    long bytes = 0;
+    MetaObject metaObject = null;
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      if (metaObject == null && parameterObject != null && !boundSql.hasAdditionalParameter(parameterMapping.getProperty())
+          && !ms.getConfiguration().getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+        metaObject = ms.getConfiguration().newMetaObject(parameterObject);
+      }
+      final Object value = MultiRowInsertRewriter.getParameterValue(ms.getConfiguration(), boundSql, parameterObject, metaObject, parameterMapping);
+      if (value instanceof CharSequence) {
+        bytes += 2L * ((CharSequence) value).length();
+      } else if (value instanceof byte[]) {
+        bytes += ((byte[]) value).length;
+      } else {
+        bytes += 8;
+      }
+    }
+    return bytes;
   }
 
   @Override
@@ -140,11 +388,14 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
       // <1> 如果 isRollback 为 true ，返回空数组
       if (isRollback) {
         return Collections.emptyList();
       }
+      // 暂存的行，改写后添加到批处理中
+      batchPendingInserts();
+      // 包含自动刷入产生的 BatchResult
+      List<BatchResult> results = new ArrayList<>(flushedBatchResults);
       // <2> 遍历 statementList 和 batchResultList 数组，逐个提交批处理
       for (int i = 0, n = statementList.size(); i < n; i++) {
         Statement stmt = statementList.get(i);
@@ -153,7 +404,12 @@ public class BatchExecutor extends BaseExecutor {
         BatchResult batchResult = batchResultList.get(i);
         try {
           // <2.2> 批量执行
-          batchResult.setUpdateCounts(stmt.executeBatch());
+          int[] updateCounts = stmt.executeBatch();
+          int rows = statementRowsList.get(i);
+          // 多行 INSERT 时，将每条 SQL 的更新数量展开为每行的更新数量，和参数对象一一对应
+          batchResult.setUpdateCounts(rows > 1
+              ? MultiRowInsertRewriter.expandUpdateCounts(updateCounts, rows, batchResult.getParameterObjects().size())
+              : updateCounts);
           // <2.3> 处理主键生成
           MappedStatement ms = batchResult.getMappedStatement();
           List<Object> parameterObjects = batchResult.getParameterObjects();
@@ -193,10 +449,18 @@ public class BatchExecutor extends BaseExecutor {
       for (Statement stmt : statementList) {
         closeStatement(stmt);
       }
-      // <3.2> 置空 currentSql、statementList、batchResultList 属性
+      // <3.2> 置空 currentSql、statementList、batchResultList、flushedBatchResults 属性
       currentSql = null;
       statementList.clear();
       batchResultList.clear();
+      statementRowsList.clear();
+      statementIndexes.clear();
+      pendingInsertStatement = null;
+      pendingInsertBoundSqls.clear();
+      pendingInsertParameters.clear();
+      flushedBatchResults.clear();
+      pendingCount = 0;
+      pendingBytes = 0;
     }
   }
 
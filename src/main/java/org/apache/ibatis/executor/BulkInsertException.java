@@ -0,0 +1,57 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.List;
+
+/**
+ * This exception is thrown if any partition of a parallel bulk insert fails.
+ * Partitions are written in independent transactions, so the exception contains
+ * the results of the partitions that were committed successfully.
+ *
+ * 并行批量插入的异常。每个分区在独立的事务中提交，所以失败时，其它分区的插入可能已经提交。
+ *
+ * @since 3.5.0
+ */
+public class BulkInsertException extends ExecutorException {
+
+  private static final long serialVersionUID = -2787493126497637462L;
+  private final List<BatchResult> successfulBatchResults;
+  private final int failedPartitionCount;
+
+  public BulkInsertException(String message, Throwable cause, List<BatchResult> successfulBatchResults, int failedPartitionCount) {
+    super(message + " Cause: " + cause, cause);
+    this.successfulBatchResults = successfulBatchResults;
+    this.failedPartitionCount = failedPartitionCount;
+  }
+
+  /**
+   * Returns the results of the partitions that were committed successfully.
+   *
+   * @return the committed results (may be an empty list if no partition has been committed)
+   */
+  public List<BatchResult> getSuccessfulBatchResults() {
+    return successfulBatchResults;
+  }
+
+  /**
+   * @return the number of partitions that were rolled back
+   */
+  public int getFailedPartitionCount() {
+    return failedPartitionCount;
+  }
+
+}
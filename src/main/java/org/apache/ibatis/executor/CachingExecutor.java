@@ -21,13 +21,20 @@ import java.util.List;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.TransactionalEntityCache;
+import org.apache.ibatis.cache.decorators.CompactCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.CompactResult;
+import org.apache.ibatis.executor.resultset.CompactResultRecorder;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -109,13 +116,22 @@ public class CachingExecutor implements Executor {
       if (ms.isUseCache() && resultHandler == null) {
         // 暂时忽略，存储过程相关
         ensureNoOutParams(ms, boundSql);
-        @SuppressWarnings("unchecked")
         // <2.3> 从二级缓存中，获取结果
-        List<E> list = (List<E>) tcm.getObject(cache, key);
+        Object cached = tcm.getObject(cache, key);
+        // <2.3.1> 如果是紧凑存储的结果，则通过 ResultMap 重新创建结果对象
+        if (cached instanceof CompactResult) {
+          return materialize(ms, parameterObject, rowBounds, boundSql, (CompactResult) cached);
+        }
+        @SuppressWarnings("unchecked")
+        List<E> list = (List<E>) cached;
         // <2.4.1> 如果不存在，则从数据库中查询
         if (list == null) {
+          // <2.4.2> 如果是紧凑存储，则记录原始的字段值，并缓存到二级缓存中
+          if (cache instanceof CompactCache && isCompactable(ms, rowBounds)) {
+            return queryAndRecord(ms, parameterObject, rowBounds, key, boundSql);
+          }
           list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          // <2.4.2> 缓存结果到二级缓存中
+          // <2.4.3> 缓存结果到二级缓存中
           tcm.putObject(cache, key, list); // issue #578 and #116
         }
         return list;
@@ -151,6 +167,40 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  /**
+   * 只支持单个 ResultSet ，并且未使用 RowBounds 的查询
+   */
+  private boolean isCompactable(MappedStatement ms, RowBounds rowBounds) {
+    return ms.getStatementType() != StatementType.CALLABLE
+        && ms.getResultSets() == null
+        && ms.getResultMaps().size() == 1
+        && rowBounds.getOffset() == RowBounds.NO_ROW_OFFSET
+        && rowBounds.getLimit() == RowBounds.NO_ROW_LIMIT;
+  }
+
+  private <E> List<E> queryAndRecord(MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key, BoundSql boundSql)
+      throws SQLException {
+    final List<E> list;
+    final CompactResultRecorder recorder = CompactResultRecorder.begin(boundSql);
+    try {
+      list = delegate.<E> query(ms, parameterObject, rowBounds, null, key, boundSql);
+    } finally {
+      recorder.end();
+    }
+    // 命中一级缓存，或存在不支持的字段值时，没有记录的结果，则缓存结果对象的 List
+    final CompactResult result = recorder.getResult();
+    tcm.putObject(ms.getCache(), key, result != null ? result : list);
+    return list;
+  }
+
+  private <E> List<E> materialize(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql, CompactResult result)
+      throws SQLException {
+    final Configuration configuration = ms.getConfiguration();
+    final ParameterHandler parameterHandler = configuration.newParameterHandler(ms, parameterObject, boundSql);
+    final ResultSetHandler resultSetHandler = configuration.newResultSetHandler(this, ms, rowBounds, parameterHandler, null, boundSql);
+    return resultSetHandler.handleResultSets(result.newStatement());
+  }
+
   private void ensureNoOutParams(MappedStatement ms, BoundSql boundSql) {
     if (ms.getStatementType() == StatementType.CALLABLE) {
       for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
@@ -197,4 +247,9 @@ public class CachingExecutor implements Executor {
     throw new UnsupportedOperationException("This method should not be called");
   }
 
+  @Override
+  public TransactionalEntityCache getEntityCache() {
+    return delegate.getEntityCache();
+  }
+
 }
@@ -19,6 +19,7 @@ import java.sql.SQLException;
 import java.util.List;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.TransactionalEntityCache;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -70,5 +71,9 @@ public interface Executor {
   boolean isClosed();
   // 设置包装的 Executor 对象
   void setExecutorWrapper(Executor executor);
+  // 获得事务级的实体缓存，不支持时返回 null @since 3.5.0
+  default TransactionalEntityCache getEntityCache() {
+    return null;
+  }
 
 }
@@ -0,0 +1,227 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Rewrites consecutive executions of a simple {@code INSERT ... VALUES (...)} statement
+ * into one multi-row {@code INSERT ... VALUES (...), (...), ...} statement.
+ *
+ * 多行插入的改写器，被 {@link BatchExecutor} 使用。只改写 VALUES 后只有一组括号、并且所有占位符都在括号中的 INSERT 语句，
+ * 多行的参数值会预先取出，放到一个 Map 参数对象中。
+ *
+ * @since 3.5.0
+ */
+class MultiRowInsertRewriter {
+
+  private static final Pattern VALUES_PATTERN = Pattern.compile("\\svalues\\s*\\(", Pattern.CASE_INSENSITIVE);
+  private static final String ROW_PARAMETER_PREFIX = "_row_param_";
+  /**
+   * 最多缓存的解析结果的数量。动态 SQL 可能生成很多不同的 SQL
+   */
+  private static final int MAX_PARSED_SQLS = 32;
+
+  /**
+   * 每条 SQL 最多的行数
+   */
+  private final int maxRows;
+  /**
+   * 每条 SQL 最多的参数数量。为 null 时，不限制
+   */
+  private final Integer maxParameters;
+  /**
+   * 解析结果的缓存，超过 {@link #MAX_PARSED_SQLS} 后，淘汰最近最少使用的。VALUE 为 null 时，表示不支持改写
+   *
+   * KEY：原始 SQL
+   */
+  private final Map<String, String[]> parsedSqls = new LinkedHashMap<String, String[]>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+      return size() > MAX_PARSED_SQLS;
+    }
+  };
+
+  MultiRowInsertRewriter(int maxRows, Integer maxParameters) {
+    this.maxRows = maxRows;
+    this.maxParameters = maxParameters;
+  }
+
+  /**
+   * 判断是否可以改写
+   */
+  boolean isRewritable(MappedStatement ms, BoundSql boundSql) {
+    if (ms.getSqlCommandType() != SqlCommandType.INSERT || ms.getStatementType() != StatementType.PREPARED) {
+      return false;
+    }
+    // 只支持 JDBC 自增主键，<selectKey /> 需要逐行执行
+    final KeyGenerator keyGenerator = ms.getKeyGenerator();
+    if (!Jdbc3KeyGenerator.class.equals(keyGenerator.getClass()) && !NoKeyGenerator.class.equals(keyGenerator.getClass())) {
+      return false;
+    }
+    return parse(boundSql.getSql()) != null;
+  }
+
+  /**
+   * @return 每条 SQL 的行数
+   */
+  int getRowsPerStatement(BoundSql boundSql) {
+    final int parameterCount = boundSql.getParameterMappings().size();
+    if (maxParameters == null || parameterCount == 0) {
+      return maxRows;
+    }
+    return Math.max(1, Math.min(maxRows, maxParameters / parameterCount));
+  }
+
+  /**
+   * 创建多行插入的 BoundSql 对象。多行的参数值会预先取出，放到 {@link BoundSql#getParameterObject()} 的 Map 中
+   *
+   * @param boundSqls 每行的 BoundSql 对象，SQL 都相同
+   * @param parameterObjects 每行的参数对象
+   */
+  BoundSql rewrite(Configuration configuration, List<BoundSql> boundSqls, List<Object> parameterObjects) {
+    final String[] parsed = parse(boundSqls.get(0).getSql());
+    final StringBuilder sql = new StringBuilder(parsed[0]);
+    final List<ParameterMapping> parameterMappings = new ArrayList<>();
+    final Map<String, Object> values = new HashMap<>();
+    for (int row = 0; row < boundSqls.size(); row++) {
+      if (row > 0) {
+        sql.append(", ");
+      }
+      sql.append(parsed[1]);
+      final BoundSql boundSql = boundSqls.get(row);
+      final Object parameterObject = parameterObjects.get(row);
+      MetaObject metaObject = null;
+      for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+        if (metaObject == null && parameterObject != null && !boundSql.hasAdditionalParameter(parameterMapping.getProperty())
+            && !configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        final String property = ROW_PARAMETER_PREFIX + parameterMappings.size();
+        values.put(property, getParameterValue(configuration, boundSql, parameterObject, metaObject, parameterMapping));
+        parameterMappings.add(new ParameterMapping.Builder(configuration, property, parameterMapping.getTypeHandler())
+            .javaType(parameterMapping.getJavaType())
+            .jdbcType(parameterMapping.getJdbcType())
+            .jdbcTypeName(parameterMapping.getJdbcTypeName())
+            .numericScale(parameterMapping.getNumericScale())
+            .mode(parameterMapping.getMode())
+            .build());
+      }
+    }
+    return new BoundSql(configuration, sql.toString(), parameterMappings, values);
+  }
+
+  /**
+   * 将每条 SQL 的更新数量，展开为每行的更新数量
+   *
+   * @param updateCounts 每条 SQL 的更新数量
+   * @param rowsPerStatement 每条 SQL 的行数
+   * @param rowCount 总行数
+   */
+  static int[] expandUpdateCounts(int[] updateCounts, int rowsPerStatement, int rowCount) {
+    final int[] rowUpdateCounts = new int[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      final int updateCount = updateCounts[i / rowsPerStatement];
+      final int rows = Math.min(rowsPerStatement, rowCount - i / rowsPerStatement * rowsPerStatement);
+      // 每行插入一条记录。否则，无法知道每行的更新数量
+      rowUpdateCounts[i] = updateCount == rows ? 1 : Statement.SUCCESS_NO_INFO;
+    }
+    return rowUpdateCounts;
+  }
+
+  /**
+   * 获得参数值，和 DefaultParameterHandler 获得参数值的方式一致
+   */
+  static Object getParameterValue(Configuration configuration, BoundSql boundSql, Object parameterObject,
+      MetaObject metaObject, ParameterMapping parameterMapping) {
+    final String propertyName = parameterMapping.getProperty();
+    if (boundSql.hasAdditionalParameter(propertyName)) {
+      return boundSql.getAdditionalParameter(propertyName);
+    } else if (parameterObject == null) {
+      return null;
+    } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+      return parameterObject;
+    } else {
+      return (metaObject != null ? metaObject : configuration.newMetaObject(parameterObject)).getValue(propertyName);
+    }
+  }
+
+  /**
+   * 解析 SQL
+   *
+   * @return [VALUES 及之前的部分, 括号部分]。不支持改写时，返回 null
+   */
+  private String[] parse(String sql) {
+    if (parsedSqls.containsKey(sql)) {
+      return parsedSqls.get(sql);
+    }
+    final String[] parsed = doParse(sql);
+    parsedSqls.put(sql, parsed);
+    return parsed;
+  }
+
+  private String[] doParse(String sql) {
+    final String trimmed = sql.trim();
+    if (!trimmed.toLowerCase(Locale.ENGLISH).startsWith("insert")) {
+      return null;
+    }
+    final Matcher matcher = VALUES_PATTERN.matcher(trimmed);
+    if (!matcher.find()) {
+      return null;
+    }
+    final int start = matcher.end() - 1;
+    final String prefix = trimmed.substring(0, start).trim();
+    if (prefix.indexOf('?') >= 0 || prefix.indexOf('\'') >= 0) {
+      return null;
+    }
+    // 括号必须匹配到 SQL 的末尾，例如不支持多组括号、RETURNING 和 ON DUPLICATE KEY UPDATE
+    int depth = 0;
+    boolean quoted = false;
+    for (int i = start; i < trimmed.length(); i++) {
+      final char c = trimmed.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && c == '(') {
+        depth++;
+      } else if (!quoted && c == ')' && --depth == 0) {
+        return i == trimmed.length() - 1 ? new String[] {prefix + " ", trimmed.substring(start)} : null;
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,167 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
+
+/**
+ * Writes a large number of independent rows through several connections of the {@link Environment}'s DataSource at once.
+ *
+ * 并行的批量写入器。将参数按顺序分成多个分区，每个分区使用一个新的连接和 BATCH 执行器，在工作线程中并发执行并提交。
+ * 工作线程来自 {@link Configuration#getAsyncExecutor()} ，未设置时，使用共享的默认线程池。尚未开始执行的分区，由调用方线程执行。
+ * 分区之间不是原子的：一个分区失败时，只回滚该分区，已提交的分区不会回滚，通过 {@link BulkInsertException} 返回。
+ *
+ * @since 3.5.0
+ */
+public class ParallelBatchWriter {
+
+  private final Configuration configuration;
+  private final java.util.concurrent.Executor executor;
+  /**
+   * 并行数，即同时使用的连接数
+   */
+  private final int parallelism;
+
+  public ParallelBatchWriter(Configuration configuration) {
+    this(configuration, configuration.getBulkInsertParallelism() == null
+        ? Runtime.getRuntime().availableProcessors() : configuration.getBulkInsertParallelism());
+  }
+
+  public ParallelBatchWriter(Configuration configuration, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be greater than 0 but was " + parallelism + ".");
+    }
+    this.configuration = configuration;
+    this.parallelism = parallelism;
+    this.executor = configuration.getAsyncExecutorOrDefault();
+  }
+
+  /**
+   * 并行执行
+   *
+   * @param ms MappedStatement 对象
+   * @param parameters 参数对象的数组
+   * @return 按分区顺序排列的 BatchResult 数组
+   */
+  public List<BatchResult> write(MappedStatement ms, List<Object> parameters) {
+    // 分区独立提交，只适用于互不依赖的插入
+    if (ms.getSqlCommandType() != SqlCommandType.INSERT) {
+      throw new ExecutorException("Bulk inserts only support insert statements, but " + ms.getId() + " is "
+          + ms.getSqlCommandType() + ".");
+    }
+    if (parameters.isEmpty()) {
+      return new ArrayList<>();
+    }
+    // <1> 按顺序分区
+    final int partitionCount = Math.min(parallelism, parameters.size());
+    final int partitionSize = (parameters.size() + partitionCount - 1) / partitionCount;
+    final List<List<Object>> partitions = new ArrayList<>(partitionCount);
+    for (int from = 0; from < parameters.size(); from += partitionSize) {
+      partitions.add(parameters.subList(from, Math.min(from + partitionSize, parameters.size())));
+    }
+    // <2> 提交到工作线程
+    final List<FutureTask<List<BatchResult>>> tasks = new ArrayList<>(partitions.size());
+    try {
+      for (List<Object> partition : partitions) {
+        final FutureTask<List<BatchResult>> task = new FutureTask<>(newPartitionTask(ms, partition));
+        tasks.add(task);
+        try {
+          executor.execute(task);
+        } catch (RejectedExecutionException e) {
+          // 线程池拒绝时，在聚合结果时由当前线程执行
+        }
+      }
+      // <3> 按分区顺序聚合结果
+      final List<BatchResult> results = new ArrayList<>();
+      Throwable failure = null;
+      int failedPartitionCount = 0;
+      for (int i = 0; i < tasks.size(); i++) {
+        final FutureTask<List<BatchResult>> task = tasks.get(i);
+        try {
+          // 尚未开始执行时，由当前线程执行，避免线程池已满或者当前线程属于该线程池时，互相等待。已经开始或完成时，不会重复执行
+          task.run();
+          results.addAll(task.get());
+        } catch (ExecutionException e) {
+          failedPartitionCount++;
+          if (failure == null) {
+            failure = e.getCause();
+          } else {
+            failure.addSuppressed(e.getCause());
+          }
+        } catch (InterruptedException e) {
+          // 当前线程被中断时，不再等待和执行剩余的分区，它们在 finally 中被中断
+          Thread.currentThread().interrupt();
+          failedPartitionCount += tasks.size() - i;
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+          break;
+        }
+      }
+      if (failure != null) {
+        throw new BulkInsertException(ms.getId() + " failed in " + failedPartitionCount + " of " + partitions.size()
+            + " partition(s). The other partitions have been committed.", failure, results, failedPartitionCount);
+      }
+      return results;
+    } finally {
+      // 当前线程被中断时，中断未完成的分区。已完成的分区不受影响
+      for (FutureTask<List<BatchResult>> task : tasks) {
+        task.cancel(true);
+      }
+    }
+  }
+
+  private Callable<List<BatchResult>> newPartitionTask(MappedStatement ms, List<Object> partition) {
+    return () -> {
+      final Environment environment = configuration.getEnvironment();
+      final TransactionFactory transactionFactory = environment.getTransactionFactory() == null
+          ? new ManagedTransactionFactory() : environment.getTransactionFactory();
+      final Transaction tx = transactionFactory.newTransaction(environment.getDataSource(), null, false);
+      final Executor executor = configuration.newExecutor(tx, ExecutorType.BATCH);
+      boolean committed = false;
+      try {
+        for (Object parameter : partition) {
+          executor.update(ms, parameter);
+        }
+        final List<BatchResult> results = executor.flushStatements();
+        executor.commit(true);
+        committed = true;
+        return results;
+      } finally {
+        // 未提交时，回滚该分区
+        executor.close(!committed);
+        ErrorContext.instance().reset();
+      }
+    };
+  }
+
+}
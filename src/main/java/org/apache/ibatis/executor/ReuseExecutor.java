@@ -20,8 +20,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementHandler;
@@ -41,14 +44,43 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class ReuseExecutor extends BaseExecutor {
   /**
-   * Statement 的缓存
+   * Statement 的缓存。设置了 {@link Configuration#getReuseStatementCacheSize()} 时，超过数量后，关闭最近最少使用的 Statement 对象
    *
    * KEY ：SQL
    */
-  private final Map<String, Statement> statementMap = new HashMap<>();
+  private final Map<String, Statement> statementMap;
+  /**
+   * 正在使用的 Statement 对象，包括执行中的查询和 Cursor 查询。被淘汰时，延迟关闭
+   */
+  private final Set<Statement> activeStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+  /**
+   * 被淘汰、但正在使用的 Statement 对象
+   */
+  private final Set<Statement> evictedStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+  /**
+   * 缓存的 Statement 对象所属的 Connection 对象
+   */
+  private Connection statementConnection;
 
   public ReuseExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    final Integer cacheSize = configuration.getReuseStatementCacheSize();
+    if (cacheSize == null) {
+      this.statementMap = new HashMap<>();
+    } else {
+      this.statementMap = new LinkedHashMap<String, Statement>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Statement> eldest) {
+          if (size() > cacheSize) {
+            evictStatement(eldest.getValue());
+            return true;
+          }
+          return false;
+        }
+      };
+    }
   }
 
   @Override
@@ -66,7 +98,15 @@ public class ReuseExecutor extends BaseExecutor {
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);    // <1> 初始化 StatementHandler 对象
     // <1> 初始化 Statement 对象
     Statement stmt = prepareStatement(handler, ms.getStatementLog());
-    return handler.<E>query(stmt, resultHandler);
+    // 处理结果时，内嵌查询可能淘汰该 Statement 对象，所以标记为正在使用
+    final boolean active = activeStatements.add(stmt);
+    try {
+      return handler.<E>query(stmt, resultHandler);
+    } finally {
+      if (active) {
+        releaseStatement(stmt);
+      }
+    }
   }
 
   @Override
@@ -74,6 +114,8 @@ public class ReuseExecutor extends BaseExecutor {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
     Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    // Cursor 的结束时间未知，一直标记为正在使用，直到 flushStatements
+    activeStatements.add(stmt);
     return handler.<E>queryCursor(stmt);
   }
 
@@ -83,8 +125,14 @@ public class ReuseExecutor extends BaseExecutor {
     for (Statement stmt : statementMap.values()) {
       closeStatement(stmt);
     }
+    for (Statement stmt : evictedStatements) {
+      closeStatement(stmt);
+    }
     //清空statementMap
     statementMap.clear();
+    activeStatements.clear();
+    evictedStatements.clear();
+    statementConnection = null;
     // 返回空集合
     return Collections.emptyList();
   }
@@ -93,11 +141,10 @@ public class ReuseExecutor extends BaseExecutor {
     Statement stmt;
     BoundSql boundSql = handler.getBoundSql();
     String sql = boundSql.getSql();
-    // 存在
-    if (hasStatementFor(sql)) {
-      // <1.1> 从缓存中获得 Statement 或 PrepareStatement 对象
-      stmt = getStatement(sql);
-      // <1.2> 设置事务超时时间
+    // <1> 从缓存中获得 Statement 或 PrepareStatement 对象
+    stmt = getStatement(sql);
+    if (stmt != null) {
+      // <1.1> 设置事务超时时间
       applyTransactionTimeout(stmt);
     } else {
       // <2.1> 获得 Connection 对象
@@ -112,21 +159,42 @@ public class ReuseExecutor extends BaseExecutor {
     return stmt;
   }
 
-  private boolean hasStatementFor(String sql) {
-//    判断是否存在对应的 Statement 对象,并且，要求连接未关闭
-    try {
-      return statementMap.keySet().contains(sql) && !statementMap.get(sql).getConnection().isClosed();
-    } catch (SQLException e) {
-      return false;
+  /**
+   * 获得缓存的 Statement 对象。事务的 Connection 对象变化时，缓存的 Statement 对象都不可用，清空缓存
+   */
+  private Statement getStatement(String sql) throws SQLException {
+    // 比较 Connection 对象，代替每次调用 Connection#isClosed() 方法
+    final Connection connection = transaction.getConnection();
+    if (connection != statementConnection) {
+      if (statementConnection != null) {
+        doFlushStatements(false);
+      }
+      statementConnection = connection;
+      return null;
     }
-  }
-
-  private Statement getStatement(String s) {
-    return statementMap.get(s);
+    return statementMap.get(sql);
   }
 
   private void putStatement(String sql, Statement stmt) {
     statementMap.put(sql, stmt);
   }
 
+  /**
+   * 淘汰 Statement 对象。正在使用时，延迟到使用结束时关闭
+   */
+  private void evictStatement(Statement stmt) {
+    if (activeStatements.contains(stmt)) {
+      evictedStatements.add(stmt);
+    } else {
+      closeStatement(stmt);
+    }
+  }
+
+  private void releaseStatement(Statement stmt) {
+    activeStatements.remove(stmt);
+    if (evictedStatements.remove(stmt)) {
+      closeStatement(stmt);
+    }
+  }
+
 }
@@ -0,0 +1,187 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.BulkLoadListener;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
+
+/**
+ * Loads a stream of parameter objects of unknown length with a bounded amount of memory.
+ *
+ * 流式的批量加载器。调用方线程作为生产者，从 Iterator 中读取参数对象并分块，通过有界队列交给工作线程；
+ * 工作线程作为消费者，使用一个新的连接和 BATCH 执行器，逐块执行并提交。内存中最多只有 队列容量 + 2 个分块。
+ * 生产者和消费者并行的是参数对象的读取（例如，读取文件或者游标）和批量执行；参数的绑定（生成 BoundSql ，
+ * 并设置到 PreparedStatement 中）在工作线程中进行，因为 PreparedStatement 属于工作线程的连接。
+ * 每个分块在独立的事务中提交，失败时只回滚该分块，由 {@link BulkLoadListener#chunkFailed(int, List, Throwable)} 决定是否继续。
+ *
+ * @since 3.5.0
+ */
+public class StreamingBatchLoader {
+
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+  /**
+   * 结束标记
+   */
+  private static final List<Object> END = new ArrayList<>(0);
+
+  private final Configuration configuration;
+  /**
+   * 每个分块的参数对象数量
+   */
+  private final int chunkSize;
+  /**
+   * 队列中最多的分块数量
+   */
+  private final int queueCapacity;
+
+  public StreamingBatchLoader(Configuration configuration) {
+    this(configuration, configuration.getBulkLoadChunkSize(), configuration.getBulkLoadQueueCapacity());
+  }
+
+  public StreamingBatchLoader(Configuration configuration, int chunkSize, int queueCapacity) {
+    if (chunkSize < 1 || queueCapacity < 1) {
+      throw new IllegalArgumentException("The chunk size and the queue capacity must be greater than 0 but were "
+          + chunkSize + " and " + queueCapacity + ".");
+    }
+    this.configuration = configuration;
+    this.chunkSize = chunkSize;
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * 加载
+   *
+   * @param ms MappedStatement 对象
+   * @param parameters 参数对象的迭代器，只在调用方线程中读取
+   * @param listener 监听器，可以为 null
+   * @return 已提交的参数对象的总数
+   */
+  public long load(MappedStatement ms, Iterator<?> parameters, BulkLoadListener listener) {
+    final BlockingQueue<List<Object>> queue = new ArrayBlockingQueue<>(queueCapacity);
+    final AtomicBoolean stopped = new AtomicBoolean();
+    final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-bulk-load-" + THREAD_COUNTER.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    final Future<Long> future = worker.submit(newConsumerTask(ms, queue, stopped, listener == null ? new BulkLoadListener() { } : listener));
+    try {
+      // <1> 读取参数对象并分块，放入队列。消费者停止时，不再读取
+      List<Object> chunk = new ArrayList<>(chunkSize);
+      while (!stopped.get() && parameters.hasNext()) {
+        chunk.add(parameters.next());
+        if (chunk.size() >= chunkSize) {
+          put(queue, chunk, stopped);
+          chunk = new ArrayList<>(chunkSize);
+        }
+      }
+      if (!chunk.isEmpty()) {
+        put(queue, chunk, stopped);
+      }
+      put(queue, END, stopped);
+      // <2> 等待消费者执行完成
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof PersistenceException) {
+        throw (PersistenceException) e.getCause();
+      }
+      throw new ExecutorException("Error bulk loading " + ms.getId() + ". Cause: " + e.getCause(), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while bulk loading " + ms.getId() + ".", e);
+    } finally {
+      // 生产者异常时，中断消费者，未执行的分块被丢弃
+      future.cancel(true);
+      worker.shutdownNow();
+    }
+  }
+
+  /**
+   * 放入队列。队列已满时阻塞，直到消费者取出分块或停止
+   *
+   * 消费者停止时，先标记 stopped ，再清空队列。所以标记之后，生产者最多再放入一个分块，且一定不会阻塞
+   */
+  private void put(BlockingQueue<List<Object>> queue, List<Object> chunk, AtomicBoolean stopped) throws InterruptedException {
+    if (!stopped.get()) {
+      queue.put(chunk);
+    }
+  }
+
+  private Callable<Long> newConsumerTask(MappedStatement ms, BlockingQueue<List<Object>> queue, AtomicBoolean stopped, BulkLoadListener listener) {
+    return () -> {
+      final Environment environment = configuration.getEnvironment();
+      final TransactionFactory transactionFactory = environment.getTransactionFactory() == null
+          ? new ManagedTransactionFactory() : environment.getTransactionFactory();
+      final Transaction tx = transactionFactory.newTransaction(environment.getDataSource(), null, false);
+      final Executor executor = configuration.newExecutor(tx, ExecutorType.BATCH);
+      long loadedRows = 0;
+      try {
+        for (int chunkIndex = 0; ; chunkIndex++) {
+          final List<Object> chunk = queue.take();
+          if (chunk == END) {
+            return loadedRows;
+          }
+          final List<BatchResult> results;
+          try {
+            for (Object parameter : chunk) {
+              executor.update(ms, parameter);
+            }
+            results = executor.flushStatements();
+            executor.commit(true);
+          } catch (Exception e) {
+            // 只回滚该分块
+            executor.rollback(true);
+            if (listener.chunkFailed(chunkIndex, chunk, e)) {
+              continue;
+            }
+            throw new ExecutorException(ms.getId() + " (chunk #" + (chunkIndex + 1) + ") failed. " + loadedRows
+                + " row(s) of prior chunk(s) have been committed. Cause: " + e, e);
+          } finally {
+            ErrorContext.instance().reset();
+          }
+          loadedRows += chunk.size();
+          listener.chunkCompleted(chunkIndex, results, loadedRows);
+        }
+      } finally {
+        // 标记停止，并释放队列中的分块，唤醒阻塞的生产者
+        stopped.set(true);
+        queue.clear();
+        executor.close(false);
+      }
+    };
+  }
+
+}
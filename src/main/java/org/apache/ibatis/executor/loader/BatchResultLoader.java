@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * A {@link ResultLoader} whose nested query is executed by a {@link NestedQueryBatch}
+ * together with the nested queries of other parent objects.
+ *
+ * 批量执行内嵌查询的 ResultLoader 实现类。加载时，会同时加载同一个 {@link NestedQueryBatch} 中其它父对象尚未加载的结果。
+ *
+ * 父类的 {@link #parameterObject} 为只包含当前父对象参数的集合，以便反序列化后，通过 {@link ResultLoaderMap} 单独加载。
+ *
+ * @since 3.5.0
+ */
+public class BatchResultLoader extends ResultLoader {
+
+  /**
+   * 所属的 NestedQueryBatch 对象
+   */
+  private final NestedQueryBatch batch;
+  /**
+   * 父对象的关联值
+   */
+  private final CacheKey batchKey;
+  /**
+   * 当前父对象的内嵌查询的参数对象
+   */
+  private final Object keyParameterObject;
+
+  public BatchResultLoader(Configuration config, Executor executor, MappedStatement mappedStatement, NestedQueryBatch batch,
+      CacheKey batchKey, Object keyParameterObject, Class<?> targetType) {
+    super(config, executor, mappedStatement, NestedQueryBatch.wrapParameters(new ArrayList<>(Collections.singletonList(keyParameterObject))),
+        targetType, null, null);
+    this.batch = batch;
+    this.batchKey = batchKey;
+    this.keyParameterObject = keyParameterObject;
+  }
+
+  @Override
+  public Object loadResult() throws SQLException {
+    // 从 batch 中获得结果，未加载时，批量加载
+    resultObject = resultExtractor.extractObjectFromList(batch.getResults(batchKey, keyParameterObject, this), targetType);
+    return resultObject;
+  }
+
+  /**
+   * 执行批量的内嵌查询，结果交给 batch 处理
+   */
+  void selectBatch(Object parameterObject) throws SQLException {
+    // 和 ResultLoader 一样，非创建线程或者 Executor 已关闭时，创建新的 Executor 对象
+    Executor localExecutor = executor;
+    if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
+      localExecutor = newExecutor();
+    }
+    try {
+      localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, batch);
+    } finally {
+      if (localExecutor != executor) {
+        localExecutor.close(false);
+      }
+    }
+  }
+
+}
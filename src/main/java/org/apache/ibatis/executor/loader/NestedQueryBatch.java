@@ -0,0 +1,191 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+
+/**
+ * Collects the keys of the parent objects of a nested query mapping with a {@code batchSize},
+ * and executes the nested query once for up to {@code batchSize} keys.
+ *
+ * 批量的内嵌查询。内嵌查询的参数为父对象参数的集合，可以通过 "list" 或 "collection" 获得；
+ * 查询结果由 DefaultResultSetHandler 按照 {@link ResultMapping#getForeignColumn()} 的值，通过 {@link #addResult(CacheKey, Object)} 分配给对应的父对象。
+ *
+ * 结果被所有引用它的父对象获取后，会被移除。
+ *
+ * @since 3.5.0
+ */
+public class NestedQueryBatch implements ResultHandler<Object> {
+
+  /**
+   * 内嵌查询的 ResultMapping 对象
+   */
+  private final ResultMapping resultMapping;
+  /**
+   * 尚未加载的父对象的参数
+   *
+   * KEY：父对象的关联值
+   */
+  private final Map<CacheKey, Object> pendingParameters = new LinkedHashMap<>();
+  /**
+   * 尚未获取结果的父对象的数量
+   *
+   * KEY：父对象的关联值
+   */
+  private final Map<CacheKey, Integer> referenceCounts = new HashMap<>();
+  /**
+   * 已加载的结果
+   *
+   * KEY：父对象的关联值
+   */
+  private final Map<CacheKey, List<Object>> results = new HashMap<>();
+  /**
+   * 父对象的关联值的类型，用于按照相同的类型读取结果对象的 foreignColumn 的值
+   */
+  private Class<?>[] keyTypes;
+  /**
+   * 正在加载的结果
+   */
+  private Map<CacheKey, List<Object>> loadingResults;
+
+  public NestedQueryBatch(ResultMapping resultMapping) {
+    this.resultMapping = resultMapping;
+  }
+
+  public ResultMapping getResultMapping() {
+    return resultMapping;
+  }
+
+  /**
+   * 添加父对象
+   *
+   * @param key 父对象的关联值
+   * @param parameterObject 父对象的内嵌查询的参数对象
+   * @param keyValues 组成关联值的各个 column 的值
+   */
+  public synchronized void add(CacheKey key, Object parameterObject, Object[] keyValues) {
+    if (keyTypes == null) {
+      keyTypes = new Class<?>[keyValues.length];
+    }
+    for (int i = 0; i < keyValues.length && i < keyTypes.length; i++) {
+      if (keyTypes[i] == null && keyValues[i] != null) {
+        keyTypes[i] = keyValues[i].getClass();
+      }
+    }
+    referenceCounts.merge(key, 1, Integer::sum);
+    if (!results.containsKey(key)) {
+      pendingParameters.putIfAbsent(key, parameterObject);
+    }
+  }
+
+  /**
+   * @return 父对象的关联值的第 index 个 column 的值的类型。未知时，返回 null
+   */
+  public synchronized Class<?> getKeyType(int index) {
+    return keyTypes != null && index < keyTypes.length ? keyTypes[index] : null;
+  }
+
+  /**
+   * 添加内嵌查询的结果对象
+   *
+   * @param foreignKey 结果对象的 foreignColumn 的值
+   */
+  public void addResult(CacheKey foreignKey, Object resultObject) {
+    final List<Object> list = loadingResults == null ? null : loadingResults.get(foreignKey);
+    if (list != null) {
+      list.add(resultObject);
+    }
+  }
+
+  @Override
+  public void handleResult(ResultContext<?> resultContext) {
+    throw new ExecutorException("The results of a batched nested query of property '" + resultMapping.getProperty()
+        + "' must be handled by the DefaultResultSetHandler.");
+  }
+
+  /**
+   * 获得父对象的结果。未加载时，连同其它尚未加载的父对象，批量加载
+   */
+  synchronized List<Object> getResults(CacheKey key, Object parameterObject, BatchResultLoader resultLoader) throws SQLException {
+    if (!results.containsKey(key)) {
+      load(key, parameterObject, resultLoader);
+    }
+    final List<Object> list = results.get(key);
+    // 所有父对象都获取后，移除结果
+    final Integer count = referenceCounts.get(key);
+    if (count == null || count <= 1) {
+      referenceCounts.remove(key);
+      results.remove(key);
+    } else {
+      referenceCounts.put(key, count - 1);
+    }
+    return list;
+  }
+
+  private void load(CacheKey key, Object parameterObject, BatchResultLoader resultLoader) throws SQLException {
+    // 当前父对象优先，再加上其它尚未加载的父对象，最多 batchSize 个
+    final Map<CacheKey, Object> batchParameters = new LinkedHashMap<>();
+    final Object pendingParameter = pendingParameters.remove(key);
+    batchParameters.put(key, pendingParameter == null ? parameterObject : pendingParameter);
+    final Iterator<Map.Entry<CacheKey, Object>> iterator = pendingParameters.entrySet().iterator();
+    while (iterator.hasNext() && batchParameters.size() < resultMapping.getBatchSize()) {
+      final Map.Entry<CacheKey, Object> entry = iterator.next();
+      batchParameters.put(entry.getKey(), entry.getValue());
+      iterator.remove();
+    }
+    final Map<CacheKey, List<Object>> batchResults = new HashMap<>();
+    for (CacheKey batchKey : batchParameters.keySet()) {
+      batchResults.put(batchKey, new ArrayList<>());
+    }
+    // 执行查询
+    loadingResults = batchResults;
+    try {
+      resultLoader.selectBatch(wrapParameters(new ArrayList<>(batchParameters.values())));
+    } catch (SQLException | RuntimeException e) {
+      // 失败时，其它父对象恢复为尚未加载
+      batchParameters.remove(key);
+      pendingParameters.putAll(batchParameters);
+      throw e;
+    } finally {
+      loadingResults = null;
+    }
+    results.putAll(batchResults);
+  }
+
+  /**
+   * 创建批量内嵌查询的参数对象
+   */
+  static Object wrapParameters(List<Object> parameterObjects) {
+    final DefaultSqlSession.StrictMap<Object> map = new DefaultSqlSession.StrictMap<>();
+    map.put("collection", parameterObjects);
+    map.put("list", parameterObjects);
+    return map;
+  }
+
+}
@@ -113,7 +113,7 @@ public class ResultLoader {
     }
   }
 
-  private Executor newExecutor() {
+  protected Executor newExecutor() {
     // 校验 environment
     final Environment environment = configuration.getEnvironment();
     if (environment == null) {
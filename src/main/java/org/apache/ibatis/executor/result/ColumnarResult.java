@@ -0,0 +1,308 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Result of a query read column by column into primitive arrays, without creating an object per row.
+ * Use it as the result type of a statement, for example a mapper method returning {@code ColumnarResult}.
+ *
+ * 按列存储的查询结果。整数、长整数和浮点数的字段，直接读取到基本类型的数组中，null 值记录在 BitSet 中。
+ * 其它字段，字符串类型读取为 String 数组，剩余类型读取为 Object 数组。
+ *
+ * @since 3.5.0
+ */
+public class ColumnarResult implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * 字段的类型
+   */
+  public enum ColumnType {
+    INT, LONG, DOUBLE, STRING, OBJECT
+  }
+
+  private final List<String> columnNames;
+  private final Column[] columns;
+  private final int rowCount;
+
+  private ColumnarResult(List<String> columnNames, Column[] columns, int rowCount) {
+    this.columnNames = Collections.unmodifiableList(columnNames);
+    this.columns = columns;
+    this.rowCount = rowCount;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * 获得指定字段名的位置，忽略大小写
+   *
+   * @return 位置，从 0 开始。不存在时，返回 -1
+   */
+  public int getColumnIndex(String columnName) {
+    final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (columnNames.get(i).toUpperCase(Locale.ENGLISH).equals(upperColumnName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public ColumnType getColumnType(String columnName) {
+    return getColumn(columnName).type;
+  }
+
+  /**
+   * @return 指定行的值是否为 null
+   */
+  public boolean isNull(String columnName, int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("Row: " + row + ", row count: " + rowCount);
+    }
+    return getColumn(columnName).nulls.get(row);
+  }
+
+  /**
+   * @return 值为 null 的行。修改返回的对象，不会影响结果
+   */
+  public BitSet getNulls(String columnName) {
+    return (BitSet) getColumn(columnName).nulls.clone();
+  }
+
+  /**
+   * @return 字段的值。值为 null 的行，为 0
+   */
+  public int[] getInts(String columnName) {
+    return (int[]) getValues(columnName, ColumnType.INT);
+  }
+
+  /**
+   * @return 字段的值。值为 null 的行，为 0
+   */
+  public long[] getLongs(String columnName) {
+    return (long[]) getValues(columnName, ColumnType.LONG);
+  }
+
+  /**
+   * @return 字段的值。值为 null 的行，为 0
+   */
+  public double[] getDoubles(String columnName) {
+    return (double[]) getValues(columnName, ColumnType.DOUBLE);
+  }
+
+  public String[] getStrings(String columnName) {
+    return (String[]) getValues(columnName, ColumnType.STRING);
+  }
+
+  public Object[] getObjects(String columnName) {
+    return (Object[]) getValues(columnName, ColumnType.OBJECT);
+  }
+
+  private Object getValues(String columnName, ColumnType type) {
+    final Column column = getColumn(columnName);
+    if (column.type != type) {
+      throw new ResultMapException("Column '" + columnName + "' is a " + column.type + " column, not a " + type + " column.");
+    }
+    return column.values;
+  }
+
+  private Column getColumn(String columnName) {
+    final int index = getColumnIndex(columnName);
+    if (index < 0) {
+      throw new ResultMapException("Column '" + columnName + "' was not found in " + columnNames + ".");
+    }
+    return columns[index];
+  }
+
+  private static final class Column implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ColumnType type;
+    /**
+     * 值的数组，类型由 {@link #type} 决定
+     */
+    private Object values;
+    private final BitSet nulls = new BitSet();
+
+    private Column(ColumnType type, int capacity) {
+      this.type = type;
+      switch (type) {
+        case INT:
+          values = new int[capacity];
+          break;
+        case LONG:
+          values = new long[capacity];
+          break;
+        case DOUBLE:
+          values = new double[capacity];
+          break;
+        case STRING:
+          values = new String[capacity];
+          break;
+        default:
+          values = new Object[capacity];
+      }
+    }
+
+    private void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      switch (type) {
+        case INT:
+          ((int[]) values)[row] = rs.getInt(columnIndex);
+          break;
+        case LONG:
+          ((long[]) values)[row] = rs.getLong(columnIndex);
+          break;
+        case DOUBLE:
+          ((double[]) values)[row] = rs.getDouble(columnIndex);
+          break;
+        case STRING:
+          ((String[]) values)[row] = rs.getString(columnIndex);
+          break;
+        default:
+          ((Object[]) values)[row] = rs.getObject(columnIndex);
+      }
+      if (rs.wasNull()) {
+        nulls.set(row);
+      }
+    }
+
+    private void resize(int capacity) {
+      switch (type) {
+        case INT:
+          values = Arrays.copyOf((int[]) values, capacity);
+          break;
+        case LONG:
+          values = Arrays.copyOf((long[]) values, capacity);
+          break;
+        case DOUBLE:
+          values = Arrays.copyOf((double[]) values, capacity);
+          break;
+        case STRING:
+          values = Arrays.copyOf((String[]) values, capacity);
+          break;
+        default:
+          values = Arrays.copyOf((Object[]) values, capacity);
+      }
+    }
+  }
+
+  /**
+   * 逐行读取 ResultSet ，创建 ColumnarResult 对象。数组的容量不足时，按两倍扩容
+   */
+  public static class Builder {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final List<String> columnNames;
+    private final Column[] columns;
+    private int capacity;
+    private int rowCount;
+
+    public Builder(List<String> columnNames, List<JdbcType> jdbcTypes) {
+      this(columnNames, jdbcTypes, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity 数组的初始容量，例如 fetchSize
+     */
+    public Builder(List<String> columnNames, List<JdbcType> jdbcTypes, int initialCapacity) {
+      this.columnNames = new ArrayList<>(columnNames);
+      this.columns = new Column[columnNames.size()];
+      this.capacity = Math.max(initialCapacity, 1);
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = new Column(columnTypeOf(jdbcTypes.get(i)), capacity);
+      }
+    }
+
+    /**
+     * 读取 ResultSet 的当前行
+     */
+    public Builder addRow(ResultSet rs) throws SQLException {
+      if (rowCount == capacity) {
+        capacity = capacity * 2;
+        for (Column column : columns) {
+          column.resize(capacity);
+        }
+      }
+      for (int i = 0; i < columns.length; i++) {
+        columns[i].read(rs, i + 1, rowCount);
+      }
+      rowCount++;
+      return this;
+    }
+
+    /**
+     * 创建 ColumnarResult 对象。数组会截断为实际的行数
+     */
+    public ColumnarResult build() {
+      if (rowCount != capacity) {
+        for (Column column : columns) {
+          column.resize(rowCount);
+        }
+        capacity = rowCount;
+      }
+      return new ColumnarResult(columnNames, columns, rowCount);
+    }
+
+    private static ColumnType columnTypeOf(JdbcType jdbcType) {
+      if (jdbcType == null) {
+        return ColumnType.OBJECT;
+      }
+      switch (jdbcType) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+          return ColumnType.INT;
+        case BIGINT:
+          return ColumnType.LONG;
+        case REAL:
+        case FLOAT:
+        case DOUBLE:
+          return ColumnType.DOUBLE;
+        case CHAR:
+        case VARCHAR:
+        case LONGVARCHAR:
+        case NCHAR:
+        case NVARCHAR:
+        case LONGNVARCHAR:
+        case CLOB:
+        case NCLOB:
+          return ColumnType.STRING;
+        default:
+          return ColumnType.OBJECT;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,324 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A compact {@link Map} for one row of a result set. The keys are shared by all rows of the same columns,
+ * and the values are stored in an array.
+ *
+ * 行的 Map 对象。所有行共享同一个 {@link Keys} 对象，每行只保存值的数组。
+ * 不在 Keys 中的 KEY ，例如内嵌映射的属性，保存在额外的 Map 中。
+ * 序列化时，替换为 LinkedHashMap 对象。
+ *
+ * @since 3.5.0
+ */
+public class RowMap extends AbstractMap<String, Object> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * 值不存在的标记。用于区分值不存在和值为 null
+   */
+  private static final Object ABSENT = new Object();
+
+  private final transient Keys keys;
+  private final transient Object[] values;
+  /**
+   * 不在 Keys 中的 KEY 和值。按需创建
+   */
+  private transient Map<String, Object> extraValues;
+  private transient int size;
+
+  public RowMap(Keys keys) {
+    this.keys = keys;
+    this.values = new Object[keys.names.length];
+    Arrays.fill(values, ABSENT);
+  }
+
+  @Override
+  public int size() {
+    return size + (extraValues == null ? 0 : extraValues.size());
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    final int index = keys.indexOf(key);
+    if (index >= 0) {
+      return values[index] != ABSENT;
+    }
+    return extraValues != null && key instanceof String && extraValues.containsKey(key);
+  }
+
+  @Override
+  public Object get(Object key) {
+    final int index = keys.indexOf(key);
+    if (index >= 0) {
+      final Object value = values[index];
+      return value == ABSENT ? null : value;
+    }
+    return extraValues == null || !(key instanceof String) ? null : extraValues.get(key);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    final int index = keys.indexOf(key);
+    if (index >= 0) {
+      final Object previous = values[index];
+      values[index] = value;
+      if (previous == ABSENT) {
+        size++;
+        return null;
+      }
+      return previous;
+    }
+    if (extraValues == null) {
+      extraValues = keys.caseInsensitive ? new TreeMap<>(String.CASE_INSENSITIVE_ORDER) : new HashMap<>();
+    }
+    return extraValues.put(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    final int index = keys.indexOf(key);
+    if (index >= 0) {
+      return removeAt(index);
+    }
+    return extraValues == null || !(key instanceof String) ? null : extraValues.remove(key);
+  }
+
+  private Object removeAt(int index) {
+    final Object previous = values[index];
+    if (previous == ABSENT) {
+      return null;
+    }
+    values[index] = ABSENT;
+    size--;
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(values, ABSENT);
+    size = 0;
+    extraValues = null;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return RowMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+        RowMap.this.clear();
+      }
+    };
+  }
+
+  private Object writeReplace() {
+    return new LinkedHashMap<>(this);
+  }
+
+  /**
+   * 按照字段的顺序遍历，之后遍历额外的 KEY
+   */
+  private class EntryIterator implements Iterator<Entry<String, Object>> {
+    private int next = -1;
+    private int last = -1;
+    private Iterator<Entry<String, Object>> extraIterator;
+
+    private EntryIterator() {
+      advance();
+    }
+
+    private void advance() {
+      do {
+        next++;
+      } while (next < values.length && values[next] == ABSENT);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next < values.length) {
+        return true;
+      }
+      if (extraIterator == null) {
+        extraIterator = extraValues == null ? Collections.<Entry<String, Object>>emptyIterator() : extraValues.entrySet().iterator();
+      }
+      return extraIterator.hasNext();
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (next < values.length) {
+        last = next;
+        advance();
+        return new ValueEntry(last);
+      }
+      last = -1;
+      return extraIterator.next();
+    }
+
+    @Override
+    public void remove() {
+      if (last >= 0) {
+        if (values[last] == ABSENT) {
+          throw new IllegalStateException();
+        }
+        removeAt(last);
+      } else if (extraIterator != null) {
+        extraIterator.remove();
+      } else {
+        throw new IllegalStateException();
+      }
+    }
+  }
+
+  private class ValueEntry implements Entry<String, Object> {
+    private final int index;
+
+    private ValueEntry(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public String getKey() {
+      return keys.names[index];
+    }
+
+    @Override
+    public Object getValue() {
+      final Object value = values[index];
+      return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      final Object previous = values[index];
+      values[index] = value;
+      if (previous == ABSENT) {
+        size++;
+        return null;
+      }
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      final Entry<?, ?> entry = (Entry<?, ?>) o;
+      final Object value = getValue();
+      return getKey().equals(entry.getKey()) && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+    }
+
+    @Override
+    public int hashCode() {
+      final Object value = getValue();
+      return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + getValue();
+    }
+  }
+
+  /**
+   * 字段名和位置的字典，不可变，被字段相同的所有行共享
+   */
+  public static final class Keys {
+    private final String[] names;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    /**
+     * 不区分大小写时，大写的字段名和位置
+     */
+    private final Map<String, Integer> upperCaseIndexes;
+    private final boolean caseInsensitive;
+
+    /**
+     * @param columnNames 字段名。重复的字段名，只保留第一个
+     * @param caseInsensitive 是否不区分大小写
+     */
+    public Keys(List<String> columnNames, boolean caseInsensitive) {
+      this.caseInsensitive = caseInsensitive;
+      this.upperCaseIndexes = caseInsensitive ? new HashMap<>() : null;
+      final String[] names = new String[columnNames.size()];
+      int count = 0;
+      for (String columnName : columnNames) {
+        if (indexes.containsKey(columnName)) {
+          continue;
+        }
+        if (caseInsensitive) {
+          final String upperCaseName = columnName.toUpperCase(Locale.ENGLISH);
+          if (upperCaseIndexes.containsKey(upperCaseName)) {
+            continue;
+          }
+          upperCaseIndexes.put(upperCaseName, count);
+        }
+        indexes.put(columnName, count);
+        names[count++] = columnName;
+      }
+      this.names = Arrays.copyOf(names, count);
+    }
+
+    public boolean isCaseInsensitive() {
+      return caseInsensitive;
+    }
+
+    /**
+     * @return 位置。不存在时，返回 -1
+     */
+    int indexOf(Object key) {
+      if (!(key instanceof String)) {
+        return -1;
+      }
+      Integer index = indexes.get(key);
+      if (index == null && caseInsensitive) {
+        index = upperCaseIndexes.get(((String) key).toUpperCase(Locale.ENGLISH));
+      }
+      return index == null ? -1 : index;
+    }
+  }
+
+}
@@ -0,0 +1,308 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * The raw column values of a single result set, packed row by row into a byte array.
+ *
+ * 紧凑的查询结果。只保存字段的元数据，以及逐行、逐字段编码的原始值，相比缓存整个对象图，没有对象头、装箱和 HashMap 的开销。
+ * 通过 {@link #newStatement()} 回放成 {@link Statement} 和 {@link ResultSet} ，再交给 {@link ResultSetHandler} 按 ResultMap 重新创建结果对象。
+ *
+ * @since 3.5.0
+ */
+public class CompactResult implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte LONG = 3;
+  private static final byte SHORT = 4;
+  private static final byte BYTE = 5;
+  private static final byte DOUBLE = 6;
+  private static final byte FLOAT = 7;
+  private static final byte BOOLEAN = 8;
+  private static final byte BIG_DECIMAL = 9;
+  private static final byte BIG_INTEGER = 10;
+  private static final byte BYTES = 11;
+  private static final byte TIMESTAMP = 12;
+  private static final byte DATE = 13;
+  private static final byte TIME = 14;
+  private static final byte UTIL_DATE = 15;
+
+  private final String[] columnLabels;
+  private final String[] columnNames;
+  private final int[] columnTypes;
+  private final String[] columnClassNames;
+  /**
+   * 编码后的行
+   */
+  private final byte[] rows;
+  private final int rowCount;
+
+  public CompactResult(String[] columnLabels, String[] columnNames, int[] columnTypes, String[] columnClassNames,
+      byte[] rows, int rowCount) {
+    this.columnLabels = columnLabels;
+    this.columnNames = columnNames;
+    this.columnTypes = columnTypes;
+    this.columnClassNames = columnClassNames;
+    this.rows = rows;
+    this.rowCount = rowCount;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * @return 编码后的行的字节数
+   */
+  public int getByteSize() {
+    return rows.length;
+  }
+
+  /**
+   * 创建一个新的只读、只能向前的 ResultSet 对象，逐行解码
+   */
+  public ResultSet newResultSet() {
+    return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+        new Class<?>[] {ResultSet.class}, new ReplayHandler());
+  }
+
+  /**
+   * 创建一个只返回 {@link #newResultSet()} 的 Statement 对象，用于 {@link ResultSetHandler#handleResultSets(Statement)}
+   */
+  public Statement newStatement() {
+    final ResultSet resultSet = newResultSet();
+    return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+        new Class<?>[] {Statement.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getResultSet":
+              return resultSet;
+            case "getMoreResults":
+              return false;
+            case "getUpdateCount":
+              return -1;
+            case "close":
+              return null;
+            default:
+              throw new SQLFeatureNotSupportedException("Statement." + method.getName());
+          }
+        });
+  }
+
+  /**
+   * 编码字段值
+   *
+   * @return 是否支持该类型的值。不支持时，调用方应放弃整个结果
+   */
+  static boolean writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) value);
+    } else if (value instanceof Byte) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof BigDecimal) {
+      final BigDecimal decimal = (BigDecimal) value;
+      out.writeByte(BIG_DECIMAL);
+      out.writeInt(decimal.scale());
+      writeBytes(out, decimal.unscaledValue().toByteArray());
+    } else if (value instanceof BigInteger) {
+      out.writeByte(BIG_INTEGER);
+      writeBytes(out, ((BigInteger) value).toByteArray());
+    } else if (value instanceof byte[]) {
+      out.writeByte(BYTES);
+      writeBytes(out, (byte[]) value);
+    } else if (value instanceof Timestamp) {
+      out.writeByte(TIMESTAMP);
+      out.writeLong(((Timestamp) value).getTime());
+      out.writeInt(((Timestamp) value).getNanos());
+    } else if (value instanceof java.sql.Date) {
+      out.writeByte(DATE);
+      out.writeLong(((java.sql.Date) value).getTime());
+    } else if (value instanceof Time) {
+      out.writeByte(TIME);
+      out.writeLong(((Time) value).getTime());
+    } else if (value.getClass() == java.util.Date.class) {
+      out.writeByte(UTIL_DATE);
+      out.writeLong(((java.util.Date) value).getTime());
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  static Object readValue(DataInputStream in) throws IOException {
+    final byte tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case SHORT:
+        return in.readShort();
+      case BYTE:
+        return in.readByte();
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case BOOLEAN:
+        return in.readBoolean();
+      case BIG_DECIMAL:
+        final int scale = in.readInt();
+        return new BigDecimal(new BigInteger(readBytes(in)), scale);
+      case BIG_INTEGER:
+        return new BigInteger(readBytes(in));
+      case BYTES:
+        return readBytes(in);
+      case TIMESTAMP:
+        final Timestamp timestamp = new Timestamp(in.readLong());
+        timestamp.setNanos(in.readInt());
+        return timestamp;
+      case DATE:
+        return new java.sql.Date(in.readLong());
+      case TIME:
+        return new Time(in.readLong());
+      case UTIL_DATE:
+        return new java.util.Date(in.readLong());
+      default:
+        throw new IOException("Unknown value tag: " + tag);
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private class ReplayHandler extends CompactRowHandler {
+
+    private final DataInputStream in = new DataInputStream(new ByteArrayInputStream(rows));
+    private int rowIndex;
+    private boolean closed;
+
+    private ReplayHandler() {
+      super(CompactResult.this.columnLabels, CompactResult.this.columnNames,
+          CompactResult.this.columnTypes, CompactResult.this.columnClassNames);
+    }
+
+    @Override
+    protected Object invokeOther(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "next":
+          return next();
+        case "close":
+          closed = true;
+          row = null;
+          return null;
+        case "isClosed":
+          return closed;
+        case "getMetaData":
+          return newMetaData();
+        case "getType":
+          return ResultSet.TYPE_FORWARD_ONLY;
+        case "getConcurrency":
+          return ResultSet.CONCUR_READ_ONLY;
+        case "getWarnings":
+        case "getStatement":
+          return null;
+        case "clearWarnings":
+          return null;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0];
+        case "toString":
+          return "CompactResultSet[rows=" + rowCount + "]";
+        default:
+          throw new SQLFeatureNotSupportedException("ResultSet." + method.getName());
+      }
+    }
+
+    private boolean next() throws SQLException {
+      if (closed) {
+        throw new SQLException("ResultSet is closed.");
+      }
+      if (rowIndex >= rowCount) {
+        row = null;
+        return false;
+      }
+      final Object[] values = new Object[columnLabels.length];
+      try {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = readValue(in);
+        }
+      } catch (IOException e) {
+        throw new SQLException("Error decoding compact result row #" + (rowIndex + 1) + ". Cause: " + e, e);
+      }
+      row = values;
+      rowIndex++;
+      return true;
+    }
+
+  }
+
+}
@@ -0,0 +1,226 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Records the raw column values of the result set of a query into a {@link CompactResult}.
+ *
+ * 紧凑结果的记录器。执行器在查询前调用 {@link #begin(BoundSql)} 注册，{@link DefaultResultSetHandler} 通过 {@link #record(BoundSql, ResultSet)}
+ * 包装同一个 BoundSql 对应的 ResultSet ：每读取一行，先把全部字段值读入内存并编码。TypeHandler 读取的仍是 JDBC 驱动返回的值，
+ * 若回放无法得到相同的值，例如传入了 Calendar 的 getTimestamp 、字符串的 getBoolean 、getSQLXML 等，则放弃记录。
+ * 以 BoundSql 对象区分，所以内嵌查询不会被错误的记录。
+ *
+ * @since 3.5.0
+ */
+public class CompactResultRecorder {
+
+  private static final ThreadLocal<CompactResultRecorder> CURRENT = new ThreadLocal<>();
+
+  private final CompactResultRecorder previous;
+  private final BoundSql boundSql;
+  /**
+   * 是否已经包装过 ResultSet 。只记录第一个 ResultSet
+   */
+  private boolean recording;
+  private CompactResult result;
+
+  private CompactResultRecorder(CompactResultRecorder previous, BoundSql boundSql) {
+    this.previous = previous;
+    this.boundSql = boundSql;
+  }
+
+  public static CompactResultRecorder begin(BoundSql boundSql) {
+    final CompactResultRecorder recorder = new CompactResultRecorder(CURRENT.get(), boundSql);
+    CURRENT.set(recorder);
+    return recorder;
+  }
+
+  /**
+   * 结束记录，恢复外层的记录器
+   */
+  public void end() {
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+
+  /**
+   * @return 记录的结果。若未读取到 ResultSet 的末尾，或存在不支持的字段值，则返回 null
+   */
+  public CompactResult getResult() {
+    return result;
+  }
+
+  /**
+   * 若存在 BoundSql 对应的记录器，则包装 ResultSet 进行记录，否则直接返回
+   */
+  public static ResultSet record(BoundSql boundSql, ResultSet rs) throws SQLException {
+    final CompactResultRecorder recorder = CURRENT.get();
+    if (recorder == null || recorder.boundSql != boundSql || recorder.recording) {
+      return rs;
+    }
+    recorder.recording = true;
+    final ResultSetMetaData metaData = rs.getMetaData();
+    final int columnCount = metaData.getColumnCount();
+    final String[] columnLabels = new String[columnCount];
+    final String[] columnNames = new String[columnCount];
+    final int[] columnTypes = new int[columnCount];
+    final String[] columnClassNames = new String[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      columnLabels[i] = metaData.getColumnLabel(i + 1);
+      columnNames[i] = metaData.getColumnName(i + 1);
+      columnTypes[i] = metaData.getColumnType(i + 1);
+      columnClassNames[i] = metaData.getColumnClassName(i + 1);
+    }
+    return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+        recorder.new RecordingHandler(rs, columnLabels, columnNames, columnTypes, columnClassNames));
+  }
+
+  private class RecordingHandler extends CompactRowHandler {
+
+    private final ResultSet delegate;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private int rowCount;
+    /**
+     * 是否放弃记录
+     */
+    private boolean abandoned;
+
+    private RecordingHandler(ResultSet delegate, String[] columnLabels, String[] columnNames, int[] columnTypes, String[] columnClassNames) {
+      super(columnLabels, columnNames, columnTypes, columnClassNames);
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      // wasNull 、findColumn 等也交给 JDBC 驱动处理
+      if (!isColumnGetter(method, args)) {
+        return invokeOther(proxy, method, args);
+      }
+      final Object value = invokeDelegate(method, args);
+      if (!abandoned && row != null && !isReplayable(method, args, value)) {
+        abandon();
+      }
+      return value;
+    }
+
+    @Override
+    protected Object invokeOther(Object proxy, Method method, Object[] args) throws Throwable {
+      if ("next".equals(method.getName())) {
+        return next();
+      }
+      return invokeDelegate(method, args);
+    }
+
+    private Object invokeDelegate(Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(delegate, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+    /**
+     * @return 回放时，是否会返回和 JDBC 驱动相同的值
+     */
+    private boolean isReplayable(Method method, Object[] args, Object value) {
+      // 大对象已经完整读取成 byte[] 或 String ，回放时内容一致
+      if (value instanceof InputStream || value instanceof Reader || value instanceof Blob || value instanceof Clob) {
+        return true;
+      }
+      try {
+        return Objects.deepEquals(value, getColumnValue(method, args));
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+
+    private boolean next() throws SQLException {
+      if (!delegate.next()) {
+        row = null;
+        if (!abandoned && result == null) {
+          result = new CompactResult(columnLabels, columnNames, columnTypes, columnClassNames, bytes.toByteArray(), rowCount);
+        }
+        return false;
+      }
+      final Object[] values = new Object[columnTypes.length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = readColumn(i + 1, columnTypes[i]);
+      }
+      row = values;
+      if (!abandoned) {
+        try {
+          for (Object value : values) {
+            if (!CompactResult.writeValue(out, value)) {
+              abandon();
+              break;
+            }
+          }
+          rowCount++;
+        } catch (IOException e) {
+          abandon();
+        }
+      }
+      return true;
+    }
+
+    private Object readColumn(int index, int columnType) throws SQLException {
+      // 大对象只在 ResultSet 打开时有效，所以读取成 byte[] 或 String
+      switch (columnType) {
+        case Types.BLOB:
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+          return delegate.getBytes(index);
+        case Types.CLOB:
+        case Types.NCLOB:
+        case Types.LONGVARCHAR:
+        case Types.LONGNVARCHAR:
+          return delegate.getString(index);
+        default:
+          return delegate.getObject(index);
+      }
+    }
+
+    private void abandon() {
+      abandoned = true;
+      bytes.reset();
+    }
+
+  }
+
+}
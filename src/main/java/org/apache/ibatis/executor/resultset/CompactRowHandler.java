@@ -0,0 +1,261 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+import org.apache.ibatis.reflection.PrimitiveUtil;
+
+/**
+ * 基于内存中的一行字段值，实现 {@link java.sql.ResultSet} 的读取方法的 InvocationHandler 基类。
+ *
+ * 被 {@link CompactResult} 的回放和 {@link CompactResultRecorder} 的记录共用。记录时，TypeHandler 读取的仍是 JDBC 驱动返回的值，
+ * 只是同时校验回放能否得到相同的值，不能时放弃记录，保证缓存命中和未命中时，TypeHandler 读取到的值是一致的。
+ *
+ * @since 3.5.0
+ */
+abstract class CompactRowHandler implements InvocationHandler {
+
+  protected final String[] columnLabels;
+  protected final String[] columnNames;
+  protected final int[] columnTypes;
+  protected final String[] columnClassNames;
+  /**
+   * 字段的下标的映射
+   *
+   * KEY：大写的字段的标签或名字
+   * VALUE：从 1 开始的下标
+   */
+  private final Map<String, Integer> columnIndexes = new HashMap<>();
+  /**
+   * 当前行的字段值
+   */
+  protected Object[] row;
+  private boolean wasNull;
+
+  protected CompactRowHandler(String[] columnLabels, String[] columnNames, int[] columnTypes, String[] columnClassNames) {
+    this.columnLabels = columnLabels;
+    this.columnNames = columnNames;
+    this.columnTypes = columnTypes;
+    this.columnClassNames = columnClassNames;
+    // 优先匹配标签，和 JDBC 驱动的行为一致
+    for (int i = columnNames.length - 1; i >= 0; i--) {
+      columnIndexes.put(columnNames[i].toUpperCase(Locale.ENGLISH), i + 1);
+    }
+    for (int i = columnLabels.length - 1; i >= 0; i--) {
+      columnIndexes.put(columnLabels[i].toUpperCase(Locale.ENGLISH), i + 1);
+    }
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    final String name = method.getName();
+    if (isColumnGetter(method, args)) {
+      return getColumnValue(method, args);
+    }
+    if ("wasNull".equals(name)) {
+      return wasNull;
+    }
+    if ("findColumn".equals(name)) {
+      return findColumn((String) args[0]);
+    }
+    return invokeOther(proxy, method, args);
+  }
+
+  /**
+   * @return 是否为读取字段值的方法，例如 getString(int) 、getTimestamp(String, Calendar)
+   */
+  protected static boolean isColumnGetter(Method method, Object[] args) {
+    return method.getName().startsWith("get") && args != null && args.length > 0
+        && (args[0] instanceof Integer || args[0] instanceof String);
+  }
+
+  /**
+   * 处理非读取字段值的方法
+   */
+  protected abstract Object invokeOther(Object proxy, Method method, Object[] args) throws Throwable;
+
+  protected ResultSetMetaData newMetaData() {
+    return (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+        new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getColumnCount":
+              return columnLabels.length;
+            case "getColumnLabel":
+              return columnLabels[(Integer) args[0] - 1];
+            case "getColumnName":
+              return columnNames[(Integer) args[0] - 1];
+            case "getColumnType":
+              return columnTypes[(Integer) args[0] - 1];
+            case "getColumnClassName":
+              return columnClassNames[(Integer) args[0] - 1];
+            default:
+              throw new SQLFeatureNotSupportedException("ResultSetMetaData." + method.getName());
+          }
+        });
+  }
+
+  protected Object getColumnValue(Method method, Object[] args) throws SQLException {
+    if (row == null) {
+      throw new SQLException("No current row.");
+    }
+    final int index = args[0] instanceof Integer ? (Integer) args[0] : findColumn((String) args[0]);
+    if (index < 1 || index > row.length) {
+      throw new SQLException("Invalid column index: " + index);
+    }
+    final Object value = row[index - 1];
+    wasNull = value == null;
+    Class<?> type = method.getReturnType();
+    if ("getObject".equals(method.getName())) {
+      // getObject(int, Class) 指定了类型，getObject(int) 和 getObject(int, Map) 原样返回
+      if (args.length == 2 && args[1] instanceof Class) {
+        type = (Class<?>) args[1];
+      } else {
+        return value;
+      }
+    }
+    if (value == null) {
+      return PrimitiveUtil.defaultValue(type);
+    }
+    return convert(value, type.isPrimitive() ? PrimitiveUtil.defaultValue(type).getClass() : type);
+  }
+
+  private int findColumn(String columnLabel) throws SQLException {
+    final Integer index = columnIndexes.get(columnLabel.toUpperCase(Locale.ENGLISH));
+    if (index == null) {
+      throw new SQLException("Invalid column label: " + columnLabel);
+    }
+    return index;
+  }
+
+  private Object convert(Object value, Class<?> type) throws SQLException {
+    if (type.isInstance(value)) {
+      return value;
+    }
+    if (type == String.class) {
+      return value.toString();
+    }
+    if (value instanceof Number) {
+      final Number number = (Number) value;
+      if (type == Integer.class) {
+        return number.intValue();
+      } else if (type == Long.class) {
+        return number.longValue();
+      } else if (type == Short.class) {
+        return number.shortValue();
+      } else if (type == Byte.class) {
+        return number.byteValue();
+      } else if (type == Double.class) {
+        return number.doubleValue();
+      } else if (type == Float.class) {
+        return number.floatValue();
+      } else if (type == Boolean.class) {
+        return number.intValue() != 0;
+      } else if (type == BigDecimal.class) {
+        return number instanceof BigInteger ? new BigDecimal((BigInteger) number) : new BigDecimal(number.toString());
+      }
+    } else if (value instanceof String) {
+      final String string = ((String) value).trim();
+      try {
+        if (type == Integer.class) {
+          return Integer.valueOf(string);
+        } else if (type == Long.class) {
+          return Long.valueOf(string);
+        } else if (type == Short.class) {
+          return Short.valueOf(string);
+        } else if (type == Byte.class) {
+          return Byte.valueOf(string);
+        } else if (type == Double.class) {
+          return Double.valueOf(string);
+        } else if (type == Float.class) {
+          return Float.valueOf(string);
+        } else if (type == BigDecimal.class) {
+          return new BigDecimal(string);
+        }
+      } catch (NumberFormatException e) {
+        throw new SQLException("Cannot convert '" + value + "' to " + type.getName() + ". Cause: " + e, e);
+      }
+      if (type == Boolean.class) {
+        return "1".equals(string) || "true".equalsIgnoreCase(string);
+      } else if (type == Clob.class) {
+        return new SerialClob(((String) value).toCharArray());
+      } else if (type == Reader.class) {
+        return new StringReader((String) value);
+      } else if (type == InputStream.class) {
+        return new ByteArrayInputStream(((String) value).getBytes(StandardCharsets.UTF_8));
+      }
+    } else if (value instanceof Boolean) {
+      final int intValue = (Boolean) value ? 1 : 0;
+      if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class
+          || type == Double.class || type == Float.class || type == BigDecimal.class) {
+        return convert(intValue, type);
+      }
+    } else if (value instanceof java.util.Date) {
+      final long time = ((java.util.Date) value).getTime();
+      if (type == Timestamp.class) {
+        return new Timestamp(time);
+      } else if (type == java.sql.Date.class) {
+        return new java.sql.Date(time);
+      } else if (type == Time.class) {
+        return new Time(time);
+      } else if (type == java.util.Date.class) {
+        return new java.util.Date(time);
+      } else if (type == LocalDateTime.class) {
+        return value instanceof Timestamp ? ((Timestamp) value).toLocalDateTime() : new Timestamp(time).toLocalDateTime();
+      } else if (type == LocalDate.class) {
+        return new java.sql.Date(time).toLocalDate();
+      } else if (type == LocalTime.class) {
+        return new Time(time).toLocalTime();
+      } else if (type == Instant.class) {
+        return Instant.ofEpochMilli(time);
+      }
+    } else if (value instanceof byte[]) {
+      if (type == Blob.class) {
+        return new SerialBlob((byte[]) value);
+      } else if (type == InputStream.class) {
+        return new ByteArrayInputStream((byte[]) value);
+      }
+    }
+    throw new SQLException("Cannot convert " + value.getClass().getName() + " to " + type.getName() + ".");
+  }
+
+}
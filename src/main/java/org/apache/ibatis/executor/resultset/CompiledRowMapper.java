@@ -0,0 +1,279 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.PrimitiveUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+import org.apache.ibatis.type.BooleanTypeHandler;
+import org.apache.ibatis.type.ByteTypeHandler;
+import org.apache.ibatis.type.DoubleTypeHandler;
+import org.apache.ibatis.type.FloatTypeHandler;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.LongTypeHandler;
+import org.apache.ibatis.type.PrimitiveTypeHandler;
+import org.apache.ibatis.type.ShortTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * A row mapper specialized for one {@link org.apache.ibatis.mapping.ResultMap} and one column layout of a
+ * {@link ResultSet}: columns are read by index and the properties are set through their setter invokers,
+ * without creating a {@link org.apache.ibatis.reflection.MetaObject} for each row.
+ *
+ * 编译后的行映射器。由 {@link DefaultResultSetHandler} 在第一次映射时创建，缓存在 Configuration 中，被相同 ResultMap 和字段布局的查询复用。
+ * 只支持简单的 ResultMap ：没有构造方法、内嵌查询和内嵌映射，并且所有属性都是结果对象的直接属性。
+ *
+ * @since 3.5.0
+ */
+public class CompiledRowMapper {
+
+  private final ObjectFactory objectFactory;
+  /**
+   * 结果对象的类型
+   */
+  private final Class<?> type;
+  /**
+   * 字段的位置，从 1 开始
+   */
+  private final int[] columnIndexes;
+  private final TypeHandler<?>[] typeHandlers;
+  private final String[] properties;
+  private final Invoker[] setters;
+  /**
+   * 值为 null 时，是否调用 setter 方法
+   */
+  private final boolean[] setNulls;
+  /**
+   * 基本类型的属性的类型。TypeHandler 为内置的 {@link PrimitiveTypeHandler} ，并且 setter 实现了 {@link PrimitiveSetter} 时，
+   * 直接读取和设置基本类型的值，不进行装箱。否则，为 null
+   */
+  private final Class<?>[] primitiveTypes;
+  /**
+   * 重置复用的结果对象时，值为 null 的属性设置的值。基本类型为默认值，其它为 null
+   */
+  private final Object[] nullValues;
+  private final boolean returnInstanceForEmptyRow;
+
+  private CompiledRowMapper(Builder builder) {
+    this.objectFactory = builder.objectFactory;
+    this.type = builder.type;
+    this.returnInstanceForEmptyRow = builder.returnInstanceForEmptyRow;
+    final int size = builder.columnIndexes.size();
+    this.columnIndexes = new int[size];
+    this.typeHandlers = new TypeHandler<?>[size];
+    this.properties = new String[size];
+    this.setters = new Invoker[size];
+    this.setNulls = new boolean[size];
+    this.primitiveTypes = new Class<?>[size];
+    this.nullValues = new Object[size];
+    for (int i = 0; i < size; i++) {
+      columnIndexes[i] = builder.columnIndexes.get(i);
+      typeHandlers[i] = builder.typeHandlers.get(i);
+      properties[i] = builder.properties.get(i);
+      setters[i] = builder.setters.get(i);
+      setNulls[i] = builder.setNulls.get(i);
+      primitiveTypes[i] = getPrimitiveType(typeHandlers[i], setters[i]);
+      nullValues[i] = PrimitiveUtil.defaultValue(setters[i].getType());
+    }
+  }
+
+  /**
+   * 获得可以直接读取和设置的基本类型。
+   *
+   * 只支持内置的 TypeHandler 本身，不支持其子类，因为子类可能重写了 getNullableResult 方法
+   *
+   * @return 基本类型。不支持时，返回 null
+   */
+  private static Class<?> getPrimitiveType(TypeHandler<?> typeHandler, Invoker setter) {
+    final Class<?> type = setter.getType();
+    if (type == int.class) {
+      return typeHandler.getClass() == IntegerTypeHandler.class && setter instanceof PrimitiveSetter.OfInt ? type : null;
+    } else if (type == long.class) {
+      return typeHandler.getClass() == LongTypeHandler.class && setter instanceof PrimitiveSetter.OfLong ? type : null;
+    } else if (type == double.class) {
+      return typeHandler.getClass() == DoubleTypeHandler.class && setter instanceof PrimitiveSetter.OfDouble ? type : null;
+    } else if (type == float.class) {
+      return typeHandler.getClass() == FloatTypeHandler.class && setter instanceof PrimitiveSetter.OfFloat ? type : null;
+    } else if (type == short.class) {
+      return typeHandler.getClass() == ShortTypeHandler.class && setter instanceof PrimitiveSetter.OfShort ? type : null;
+    } else if (type == byte.class) {
+      return typeHandler.getClass() == ByteTypeHandler.class && setter instanceof PrimitiveSetter.OfByte ? type : null;
+    } else if (type == boolean.class) {
+      return typeHandler.getClass() == BooleanTypeHandler.class && setter instanceof PrimitiveSetter.OfBoolean ? type : null;
+    }
+    return null;
+  }
+
+  /**
+   * 映射当前行
+   *
+   * @return 结果对象。没有映射任一属性时，返回 null ，除非开启 returnInstanceForEmptyRow
+   */
+  public Object map(ResultSet rs) throws SQLException {
+    return map(rs, objectFactory.create(type), false);
+  }
+
+  /**
+   * 将当前行映射到已有的结果对象中。值为 null 的属性，会被重置为 null 或基本类型的默认值，不会保留之前的值
+   *
+   * @param rowValue 复用的结果对象
+   * @return 结果对象。没有映射任一属性时，返回 null ，除非开启 returnInstanceForEmptyRow
+   * @since 3.5.0
+   */
+  public Object map(ResultSet rs, Object rowValue) throws SQLException {
+    return map(rs, rowValue, true);
+  }
+
+  private Object map(ResultSet rs, Object rowValue, boolean resetNulls) throws SQLException {
+    boolean foundValues = false;
+    for (int i = 0; i < columnIndexes.length; i++) {
+      // 基本类型的属性，不进行装箱。值为 null 时，不调用 setter 方法
+      if (primitiveTypes[i] != null) {
+        if (setPrimitiveValue(rs, rowValue, i, resetNulls)) {
+          foundValues = true;
+        }
+        continue;
+      }
+      final Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || setNulls[i]) {
+        setValue(rowValue, i, value);
+      } else if (resetNulls) {
+        setValue(rowValue, i, nullValues[i]);
+      }
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  /**
+   * 读取基本类型的字段的值，并设置到基本类型的属性
+   *
+   * @param resetNulls 值为 null 时，是否设置为默认值。JDBC 读取 null 时，返回的就是默认值
+   * @return 值是否非空
+   */
+  private boolean setPrimitiveValue(ResultSet rs, Object rowValue, int i, boolean resetNulls) {
+    final Class<?> type = primitiveTypes[i];
+    final int columnIndex = columnIndexes[i];
+    try {
+      final boolean isNull;
+      if (type == int.class) {
+        final int value = ((PrimitiveTypeHandler.OfInt) typeHandlers[i]).getInt(rs, columnIndex);
+        isNull = rs.wasNull();
+        if (!isNull || resetNulls) {
+          ((PrimitiveSetter.OfInt) setters[i]).setInt(rowValue, value);
+        }
+      } else if (type == long.class) {
+        final long value = ((PrimitiveTypeHandler.OfLong) typeHandlers[i]).getLong(rs, columnIndex);
+        isNull = rs.wasNull();
+        if (!isNull || resetNulls) {
+          ((PrimitiveSetter.OfLong) setters[i]).setLong(rowValue, value);
+        }
+      } else if (type == double.class) {
+        final double value = ((PrimitiveTypeHandler.OfDouble) typeHandlers[i]).getDouble(rs, columnIndex);
+        isNull = rs.wasNull();
+        if (!isNull || resetNulls) {
+          ((PrimitiveSetter.OfDouble) setters[i]).setDouble(rowValue, value);
+        }
+      } else if (type == float.class) {
+        final float value = ((PrimitiveTypeHandler.OfFloat) typeHandlers[i]).getFloat(rs, columnIndex);
+        isNull = rs.wasNull();
+        if (!isNull || resetNulls) {
+          ((PrimitiveSetter.OfFloat) setters[i]).setFloat(rowValue, value);
+        }
+      } else if (type == short.class) {
+        final short value = ((PrimitiveTypeHandler.OfShort) typeHandlers[i]).getShort(rs, columnIndex);
+        isNull = rs.wasNull();
+        if (!isNull || resetNulls) {
+          ((PrimitiveSetter.OfShort) setters[i]).setShort(rowValue, value);
+        }
+      } else if (type == byte.class) {
+        final byte value = ((PrimitiveTypeHandler.OfByte) typeHandlers[i]).getByte(rs, columnIndex);
+        isNull = rs.wasNull();
+        if (!isNull || resetNulls) {
+          ((PrimitiveSetter.OfByte) setters[i]).setByte(rowValue, value);
+        }
+      } else {
+        final boolean value = ((PrimitiveTypeHandler.OfBoolean) typeHandlers[i]).getBoolean(rs, columnIndex);
+        isNull = rs.wasNull();
+        if (!isNull || resetNulls) {
+          ((PrimitiveSetter.OfBoolean) setters[i]).setBoolean(rowValue, value);
+        }
+      }
+      return !isNull;
+    } catch (SQLException e) {
+      // 和 BaseTypeHandler#getResult(ResultSet, int) 方法一致
+      throw new ResultMapException("Error attempting to get column #" + columnIndex + " from result set.  Cause: " + e, e);
+    } catch (Throwable t) {
+      final Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + this.type + "' Cause: " + cause.toString(), cause);
+    }
+  }
+
+  private void setValue(Object rowValue, int i, Object value) {
+    try {
+      try {
+        setters[i].invoke(rowValue, new Object[] {value});
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + type + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+  public static class Builder {
+
+    private final ObjectFactory objectFactory;
+    private final Class<?> type;
+    private final boolean returnInstanceForEmptyRow;
+    private final List<Integer> columnIndexes = new ArrayList<>();
+    private final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
+    private final List<String> properties = new ArrayList<>();
+    private final List<Invoker> setters = new ArrayList<>();
+    private final List<Boolean> setNulls = new ArrayList<>();
+
+    public Builder(ObjectFactory objectFactory, Class<?> type, boolean returnInstanceForEmptyRow) {
+      this.objectFactory = objectFactory;
+      this.type = type;
+      this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+    }
+
+    public Builder column(int columnIndex, TypeHandler<?> typeHandler, String property, Invoker setter, boolean setNull) {
+      columnIndexes.add(columnIndex);
+      typeHandlers.add(typeHandler);
+      properties.add(property);
+      setters.add(setter);
+      setNulls.add(setNull);
+      return this;
+    }
+
+    public CompiledRowMapper build() {
+      return new CompiledRowMapper(this);
+    }
+  }
+
+}
@@ -0,0 +1,186 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.ResultLoader;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Runs the nested queries of a result set concurrently.
+ *
+ * 内嵌查询的并发加载器，被 {@link DefaultResultSetHandler} 使用。每个内嵌查询提交到线程池中，由 {@link ResultLoader} 在工作线程中
+ * 使用新的连接执行；等待时，尚未开始执行的内嵌查询由等待的线程自己执行，所以不会因为线程池已满而死锁。
+ * 同时提交的内嵌查询的数量，受 {@link Configuration#getNestedQueryConcurrencyLimit()} 限制，包括多层内嵌查询在工作线程中提交的。
+ * 达到限制时，内嵌查询不提交，而是在等待时由当前线程使用自己的连接执行，任何线程都不会等待许可，
+ * 所以内嵌查询额外占用的连接不超过该限制。连接池的容量需要大于该限制，否则仍然可能因为等待连接而阻塞。
+ * 相同的内嵌查询只执行一次。工作线程会记录正在加载的内嵌查询，存在循环引用时，改为在工作线程中逐个执行。
+ *
+ * @since 3.5.0
+ */
+class ConcurrentNestedQueryLoader {
+
+  /**
+   * 当前线程正在加载的内嵌查询的 CacheKey 集合，包括上层的内嵌查询
+   */
+  private static final ThreadLocal<Set<CacheKey>> LOADING_KEYS = new ThreadLocal<>();
+
+  private final Configuration configuration;
+  private final Executor executor;
+  /**
+   * 工作线程中执行内嵌查询的许可，所有的加载器共享
+   */
+  private final Semaphore permits;
+  /**
+   * 已提交的内嵌查询
+   *
+   * KEY：内嵌查询的 CacheKey + 结果类型
+   */
+  private final Map<CacheKey, FutureTask<Object>> tasks = new HashMap<>();
+  /**
+   * 等待设置的属性
+   */
+  private final List<PendingAssignment> pendingAssignments = new ArrayList<>();
+
+  private static class PendingAssignment {
+    private final FutureTask<Object> task;
+    private final MetaObject metaObject;
+    private final String property;
+
+    private PendingAssignment(FutureTask<Object> task, MetaObject metaObject, String property) {
+      this.task = task;
+      this.metaObject = metaObject;
+      this.property = property;
+    }
+  }
+
+  ConcurrentNestedQueryLoader(Configuration configuration) {
+    this.configuration = configuration;
+    this.executor = configuration.getAsyncExecutorOrDefault();
+    this.permits = configuration.getNestedQueryPermits();
+  }
+
+  /**
+   * @return 是否可以并发加载。若当前线程正在加载相同的内嵌查询，即存在循环引用，则返回 false
+   */
+  boolean canLoad(CacheKey key) {
+    final Set<CacheKey> loadingKeys = LOADING_KEYS.get();
+    return loadingKeys == null || !loadingKeys.contains(key);
+  }
+
+  /**
+   * 提交内嵌查询，在 {@link #await()} 时设置到属性中
+   */
+  void load(CacheKey key, Class<?> targetType, ResultLoader resultLoader, MetaObject metaObject, String property) {
+    final CacheKey taskKey = new CacheKey(new Object[] {key, targetType});
+    FutureTask<Object> task = tasks.get(taskKey);
+    if (task == null) {
+      final Set<CacheKey> loadingKeys = new HashSet<>();
+      if (LOADING_KEYS.get() != null) {
+        loadingKeys.addAll(LOADING_KEYS.get());
+      }
+      loadingKeys.add(key);
+      task = new FutureTask<>(() -> {
+        final Set<CacheKey> previous = LOADING_KEYS.get();
+        LOADING_KEYS.set(loadingKeys);
+        try {
+          return resultLoader.loadResult();
+        } finally {
+          if (previous == null) {
+            LOADING_KEYS.remove();
+          } else {
+            LOADING_KEYS.set(previous);
+          }
+        }
+      });
+      tasks.put(taskKey, task);
+      // 达到并发数量的限制时，不提交，在 await 时由当前线程执行
+      if (permits.tryAcquire()) {
+        final FutureTask<Object> submittedTask = task;
+        try {
+          executor.execute(() -> {
+            try {
+              // 已经由等待的线程执行时，不会重复执行
+              submittedTask.run();
+            } finally {
+              permits.release();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          // 线程池拒绝时，在 await 时由当前线程执行
+          permits.release();
+        }
+      }
+    }
+    pendingAssignments.add(new PendingAssignment(task, metaObject, property));
+  }
+
+  /**
+   * 等待已提交的内嵌查询完成，并设置到属性中
+   */
+  void await() throws SQLException {
+    if (pendingAssignments.isEmpty()) {
+      return;
+    }
+    try {
+      for (PendingAssignment assignment : pendingAssignments) {
+        // 尚未开始执行时，由当前线程执行。已经开始或完成时，不会重复执行
+        assignment.task.run();
+        final Object value = assignment.task.get();
+        if (value != null || (configuration.isCallSettersOnNulls() && !assignment.metaObject.getSetterType(assignment.property).isPrimitive())) {
+          assignment.metaObject.setValue(assignment.property, value);
+        }
+      }
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ExecutorException("Error loading nested query concurrently. Cause: " + cause, cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while loading nested queries concurrently.", e);
+    } finally {
+      clear();
+    }
+  }
+
+  /**
+   * 清空。已提交的内嵌查询的结果被丢弃
+   */
+  void clear() {
+    tasks.clear();
+    pendingAssignments.clear();
+  }
+
+}
@@ -18,17 +18,25 @@ package org.apache.ibatis.executor.resultset;
 import org.apache.ibatis.annotations.AutomapConstructor;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.EntityCache;
+import org.apache.ibatis.cache.TransactionalEntityCache;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
+import org.apache.ibatis.executor.loader.NestedQueryBatch;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ColumnarResult;
+import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
 import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.executor.result.RowMap;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -36,15 +44,21 @@ import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.ArrayUtil;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.PrimitiveUtil;
 import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.NestedQueryConcurrency;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.RowMapType;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
@@ -55,8 +69,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -84,9 +100,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final ReflectorFactory reflectorFactory;
 
   // nested resultmaps
-  private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
+  private final Map<RowKey, Object> nestedResultObjects = new HashMap<>();
   private final Map<String, Object> ancestorObjects = new HashMap<>();
   private Object previousRowValue;
+  /**
+   * 内嵌映射的结果是否有序。有序时，根对象的唯一标识变化后，立即返回该根对象，并释放它的子对象的跟踪状态。
+   * 通过 Cursor 读取时，总是有序，保证返回的根对象是完整的，并且内存占用只和当前根对象相关
+   */
+  private boolean nestedResultOrdered;
+  /**
+   * 创建 RowKey 时，收集字段的值的临时数组
+   */
+  private final List<Object> rowKeyValues = new ArrayList<>();
 
   // multiple resultsets
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
@@ -95,9 +120,49 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+  // column indexes
+  /**
+   * 当前字段布局的 ResultMap 的字段的位置的映射
+   */
+  private final Map<ResultMap, ResultSetLayout.ColumnIndexes> columnIndexesCache = new IdentityHashMap<>();
+  /**
+   * {@link #autoMappingsCache} 和 {@link #columnIndexesCache} 对应的字段布局
+   */
+  private ResultSetLayout cachedLayout;
+
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
+  // concurrent nested queries
+  private final NestedQueryConcurrency nestedQueryConcurrency;
+  private ConcurrentNestedQueryLoader nestedQueryLoader;
+
+  // batched nested queries
+  private final Map<ResultMapping, NestedQueryBatch> nestedQueryBatches = new IdentityHashMap<>();
+  private final List<PendingBatchLoad> pendingBatchLoads = new ArrayList<>();
+
+  // compiled row mappers
+  /**
+   * 当前 ResultSetWrapper 使用的 CompiledRowMapper 的映射。VALUE 为 null 时，表示该 ResultMap 不支持
+   */
+  private final Map<ResultMap, CompiledRowMapper> compiledRowMappers = new IdentityHashMap<>();
+  private ResultSetWrapper compiledRowMappersRsw;
+
+  // reused result objects
+  /**
+   * 是否复用结果对象。MappedStatement 开启 reuseResultObjects ，并且结果对象逐个交给自定义的 ResultHandler 或 Cursor 时，为 true
+   */
+  private boolean reuseResultObjects;
+  /**
+   * 当前 ResultSetWrapper 复用的结果对象的映射。VALUE 为 null 时，表示该 ResultMap 不支持
+   */
+  private final Map<ResultMap, ReusableRow> reusableRows = new IdentityHashMap<>();
+  private ResultSetWrapper reusableRowsRsw;
+  /**
+   * 映射复用的结果对象时，值为 null 的属性，也需要重置
+   */
+  private boolean resetNullProperties;
+
   private static class PendingRelation {
     public MetaObject metaObject;
     public ResultMapping propertyMapping;
@@ -106,11 +171,35 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   /**
    *  DefaultResultSetHandler 的内部静态类，未 mapped 字段自动映射后的对象
    */
-  private static class UnMappedColumnAutoMapping {
+  private static class PendingBatchLoad {
+    private final BatchResultLoader resultLoader;
+    private final MetaObject metaObject;
+    private final String property;
+
+    private PendingBatchLoad(BatchResultLoader resultLoader, MetaObject metaObject, String property) {
+      this.resultLoader = resultLoader;
+      this.metaObject = metaObject;
+      this.property = property;
+    }
+  }
+
+  /**
+   * 复用的结果对象
+   */
+  private static class ReusableRow {
+    private Object rowValue;
+    private MetaObject metaObject;
+  }
+
+  static class UnMappedColumnAutoMapping {
     /**
      * 字段名
      */
     private final String column;
+    /**
+     * 字段的位置，从 1 开始
+     */
+    private final int columnIndex;
     /**
      * 属性名
      */
@@ -124,13 +213,71 @@ public class DefaultResultSetHandler implements ResultSetHandler {
      */
     private final boolean primitive;
 
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+    public UnMappedColumnAutoMapping(String column, int columnIndex, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
+      this.columnIndex = columnIndex;
       this.property = property;
       this.typeHandler = typeHandler;
       this.primitive = primitive;
     }
   }
+  /**
+   * 内嵌映射的行的唯一标识，用于合并 JOIN 查询的多行记录。
+   * 和 CacheKey 相比，不保存 ResultMap 的编号和字段名，只保存字段的值，并且引用父行的 RowKey 对象，而不是复制它的内容
+   */
+  private static final class RowKey {
+    private final ResultMap resultMap;
+    private final String columnPrefix;
+    /**
+     * 字段的值。相同 ResultMap 和 columnPrefix 的 RowKey ，数组的每个位置对应相同的字段
+     */
+    private final Object[] values;
+    /**
+     * 父行的 RowKey 对象。根对象时，为 null
+     */
+    private final RowKey parent;
+    private final int hashcode;
+
+    private RowKey(ResultMap resultMap, String columnPrefix, Object[] values, RowKey parent) {
+      this.resultMap = resultMap;
+      this.columnPrefix = columnPrefix;
+      this.values = values;
+      this.parent = parent;
+      int hashcode = resultMap.hashCode();
+      hashcode = 31 * hashcode + (columnPrefix == null ? 0 : columnPrefix.hashCode());
+      for (Object value : values) {
+        hashcode = 31 * hashcode + ArrayUtil.hashCode(value);
+      }
+      this.hashcode = 31 * hashcode + (parent == null ? 0 : parent.hashcode);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashcode;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (!(object instanceof RowKey)) {
+        return false;
+      }
+      final RowKey rowKey = (RowKey) object;
+      if (hashcode != rowKey.hashcode || resultMap != rowKey.resultMap || values.length != rowKey.values.length
+          || (columnPrefix == null ? rowKey.columnPrefix != null : !columnPrefix.equals(rowKey.columnPrefix))) {
+        return false;
+      }
+      for (int i = 0; i < values.length; i++) {
+        if (!ArrayUtil.equals(values[i], rowKey.values[i])) {
+          return false;
+        }
+      }
+      return parent == null ? rowKey.parent == null : parent.equals(rowKey.parent);
+    }
+  }
+
 
   public DefaultResultSetHandler(Executor executor, MappedStatement mappedStatement, ParameterHandler parameterHandler, ResultHandler<?> resultHandler, BoundSql boundSql,
                                  RowBounds rowBounds) {
@@ -144,6 +291,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.objectFactory = configuration.getObjectFactory();
     this.reflectorFactory = configuration.getReflectorFactory();
     this.resultHandler = resultHandler;
+    this.nestedQueryConcurrency = configuration.getNestedQueryConcurrency();
+    this.nestedResultOrdered = mappedStatement.isResultOrdered();
+    // 结果对象会被收集的 ResultHandler ，不能复用
+    this.reuseResultObjects = mappedStatement.isReuseResultObjects() && resultHandler != null
+        && !(resultHandler instanceof DefaultResultHandler) && !(resultHandler instanceof DefaultMapResultHandler)
+        && !(resultHandler instanceof NestedQueryBatch);
   }
 
   //
@@ -255,7 +408,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
-    return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    if (ColumnarResult.class.equals(resultMap.getType())) {
+      throw new ExecutorException("Cursor results cannot be mapped to " + ColumnarResult.class.getSimpleName()
+          + ", which already holds all rows.");
+    }
+    // Cursor 逐个返回根对象，内嵌映射按照有序处理，见 Cursor 的说明
+    nestedResultOrdered = true;
+    // 预读时，多个结果对象同时存在，不能复用
+    final Integer prefetchSize = mappedStatement.getCursorPrefetchSize();
+    reuseResultObjects = mappedStatement.isReuseResultObjects() && prefetchSize == null;
+    final Cursor<E> cursor = new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    // 开启预读时，在后台线程中读取
+    if (prefetchSize != null) {
+      return new PrefetchingCursor<>(cursor, prefetchSize, configuration.getAsyncExecutorOrDefault());
+    }
+    return cursor;
   }
 
   private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
@@ -273,6 +440,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
+    if (rs != null) {
+      // 如果开启了紧凑存储的二级缓存，则包装 ResultSet ，记录原始的字段值
+      rs = CompactResultRecorder.record(boundSql, rs);
+    }
     // 将 ResultSet 对象，封装成 ResultSetWrapper 对象
     return rs != null ? new ResultSetWrapper(rs, configuration) : null;
   }
@@ -341,15 +512,29 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           DefaultResultHandler defaultResultHandler = new DefaultResultHandler(objectFactory);
           // <3> 处理 ResultSet 返回的每一行 Row
           handleRowValues(rsw, resultMap, defaultResultHandler, rowBounds, null);
+          // 并发执行内嵌查询时，等待整个 ResultSet 的内嵌查询完成
+          if (nestedQueryLoader != null) {
+            nestedQueryLoader.await();
+          }
+          // 批量执行整个 ResultSet 的内嵌查询
+          loadPendingBatches();
           // <4> 添加 defaultResultHandler 的处理的结果，到 multipleResults 中
           multipleResults.add(defaultResultHandler.getResultList());
         } else {
           // <3> 处理 ResultSet 返回的每一行 Row
           // 关闭 ResultSet 对象
           handleRowValues(rsw, resultMap, resultHandler, rowBounds, null);
+          // 作为批量内嵌查询执行时，结果对象在查询完成后才被使用，所以也可以批量执行整个 ResultSet 的内嵌查询
+          loadPendingBatches();
         }
       }
     } finally {
+      // 发生异常时，丢弃未完成的内嵌查询
+      if (nestedQueryLoader != null) {
+        nestedQueryLoader.clear();
+      }
+      pendingBatchLoads.clear();
+      nestedQueryBatches.clear();
       // issue #228 (close resultsets)
       closeResultSet(rsw.getResultSet());
     }
@@ -365,6 +550,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
+    // <0> 处理按列存储的情况
+    if (ColumnarResult.class.equals(resultMap.getType())) {
+      handleRowValuesForColumnarResult(rsw, resultHandler, rowBounds, parentMapping);
+      return;
+    }
     // <1> 处理嵌套映射的情况
     if (resultMap.hasNestedResultMaps()) {
       // 校验不要使用 RowBounds
@@ -387,13 +577,34 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   protected void checkResultHandler() {
-    if (resultHandler != null && configuration.isSafeResultHandlerEnabled() && !mappedStatement.isResultOrdered()) {
+    if (resultHandler != null && !(resultHandler instanceof NestedQueryBatch)
+        && configuration.isSafeResultHandlerEnabled() && !mappedStatement.isResultOrdered()) {
       throw new ExecutorException("Mapped Statements with nested result mappings cannot be safely used with a custom ResultHandler. "
           + "Use safeResultHandlerEnabled=false setting to bypass this check "
           + "or ensure your statement returns ordered data and set resultOrdered=true on it.");
     }
   }
 
+  /**
+   * 将 ResultSet 的所有行读取到一个 ColumnarResult 对象中，不创建每行的结果对象
+   */
+  private void handleRowValuesForColumnarResult(ResultSetWrapper rsw, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
+      throws SQLException {
+    final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
+    final ResultSet resultSet = rsw.getResultSet();
+    skipRows(resultSet, rowBounds);
+    final Integer fetchSize = mappedStatement.getFetchSize();
+    final ColumnarResult.Builder builder = fetchSize != null && fetchSize > 0
+        ? new ColumnarResult.Builder(rsw.getColumnNames(), rsw.getJdbcTypes(), fetchSize)
+        : new ColumnarResult.Builder(rsw.getColumnNames(), rsw.getJdbcTypes());
+    int rowCount = 0;
+    while (rowCount < rowBounds.getLimit() && !resultSet.isClosed() && resultSet.next()) {
+      builder.addRow(resultSet);
+      rowCount++;
+    }
+    storeObject(resultHandler, resultContext, builder.build(), parentMapping, resultSet);
+  }
+
   private void handleRowValuesForSimpleResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
       throws SQLException {
     // <1> 创建 DefaultResultContext 对象
@@ -409,16 +620,40 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       // <4> 根据该行记录以及 ResultMap.discriminator ，决定映射使用的 ResultMap 对象
       ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
       // <5> 根据最终确定的 ResultMap 对 ResultSet 中的该行记录进行映射，得到映射后的结果对象
-      Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
+      Object rowValue = reuseResultObjects && parentMapping == null
+          ? getRowValueUsingReusableRow(rsw, discriminatedResultMap)
+          : getRowValueUsingEntityCache(rsw, discriminatedResultMap);
       // <6> 将映射创建的结果对象添加到 ResultHandler.resultList 中保存
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
     }
   }
  //将映射创建的结果对象添加到 ResultHandler.resultList 中保存
   private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
+    final CacheKey foreignKey = resultHandler instanceof NestedQueryBatch
+        ? createForeignKeyForNestedQueryBatch(rs, (NestedQueryBatch) resultHandler) : null;
+    storeObject(resultHandler, resultContext, rowValue, parentMapping, rs, foreignKey);
+  }
+
+  /**
+   * @param foreignKey 作为批量内嵌查询执行时，结果对象的 foreignColumn 的值。需要在读取结果对象的首行时获得，因为此时 ResultSet 可能已经移动到其它行
+   */
+  private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs,
+      CacheKey foreignKey) throws SQLException {
+    // 并发执行内嵌查询时，按行完成，或者结果对象会交给自定义的 ResultHandler 时，先等待内嵌查询完成
+    if (nestedQueryLoader != null
+        && (nestedQueryConcurrency == NestedQueryConcurrency.ROW || !(resultHandler instanceof DefaultResultHandler))) {
+      nestedQueryLoader.await();
+    }
+    // 结果对象会交给自定义的 ResultHandler 时，先批量执行已收集的内嵌查询
+    if (!pendingBatchLoads.isEmpty() && !(resultHandler instanceof DefaultResultHandler || resultHandler instanceof NestedQueryBatch)) {
+      loadPendingBatches();
+    }
     // 暂时忽略，这个情况，只有存储过程会出现
     if (parentMapping != null) {
       linkToParents(rs, parentMapping, rowValue);
+    } else if (resultHandler instanceof NestedQueryBatch) {
+      // 作为批量内嵌查询执行时，按照 foreignColumn 的值，分配给对应的父对象
+      ((NestedQueryBatch) resultHandler).addResult(foreignKey, rowValue);
     } else {
       callResultHandler(resultHandler, resultContext, rowValue);
     }
@@ -458,6 +693,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    // <0> 开启编译后的行映射器时，优先使用
+    if (columnPrefix == null && configuration.isCompiledRowMappingEnabled()) {
+      final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap);
+      if (rowMapper != null) {
+        this.useConstructorMappings = false;
+        return rowMapper.map(rsw.getResultSet());
+      }
+    }
     // <1> 创建 ResultLoaderMap 对象
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     // <2> 创建映射后的结果对象
@@ -484,6 +727,205 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
     return rowValue;
   }
+
+  /**
+   * 获得 ResultMap 和当前字段布局对应的 CompiledRowMapper 对象。优先从字段布局的缓存中获得，获取不到，再进行编译
+   *
+   * @return CompiledRowMapper 对象。不支持时，返回 null
+   */
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (compiledRowMappersRsw != rsw) {
+      compiledRowMappers.clear();
+      compiledRowMappersRsw = rsw;
+    }
+    CompiledRowMapper rowMapper = compiledRowMappers.get(resultMap);
+    if (rowMapper == null && !compiledRowMappers.containsKey(resultMap)) {
+      final ResultSetLayout layout = rsw.getLayout();
+      rowMapper = layout.getCompiledRowMapper(resultMap.getId());
+      if (rowMapper == null) {
+        rowMapper = compileRowMapper(rsw, resultMap);
+        if (rowMapper != null) {
+          layout.putCompiledRowMapper(resultMap.getId(), rowMapper);
+        }
+      }
+      compiledRowMappers.put(resultMap, rowMapper);
+    }
+    return rowMapper;
+  }
+
+  /**
+   * 编译 CompiledRowMapper 对象。映射的顺序和 {@link #getRowValue(ResultSetWrapper, ResultMap, String)} 一致，先自动映射，再明确映射
+   *
+   * @return CompiledRowMapper 对象。ResultMap 不支持时，返回 null
+   */
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final Class<?> resultType = resultMap.getType();
+    // 不支持构造方法、内嵌查询、内嵌映射，以及 Map 等非 JavaBean 的结果对象
+    if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || !resultMap.getConstructorResultMappings().isEmpty()
+        || resultType.isInterface() || Map.class.isAssignableFrom(resultType) || Collection.class.isAssignableFrom(resultType)
+        || hasTypeHandlerForResultObject(rsw, resultType)) {
+      return null;
+    }
+    final MetaClass metaType = MetaClass.forClass(resultType, reflectorFactory);
+    if (!metaType.hasDefaultConstructor()) {
+      return null;
+    }
+    // 自定义 ObjectWrapper 的结果对象，只能通过 MetaObject 设置属性
+    final MetaObject metaObject = configuration.newMetaObject(objectFactory.create(resultType));
+    if (!(metaObject.getObjectWrapper() instanceof BeanWrapper)) {
+      return null;
+    }
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(objectFactory, resultType, configuration.isReturnInstanceForEmptyRow());
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, null)) {
+        if (!addCompiledColumn(builder, rsw, metaType, mapping.column, mapping.typeHandler, mapping.property)) {
+          return null;
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null) {
+        return null;
+      }
+      final String column = propertyMapping.getColumn();
+      if (column != null && propertyMapping.getProperty() != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))
+          && !addCompiledColumn(builder, rsw, metaType, column, propertyMapping.getTypeHandler(), propertyMapping.getProperty())) {
+        return null;
+      }
+    }
+    return builder.build();
+  }
+
+  private boolean addCompiledColumn(CompiledRowMapper.Builder builder, ResultSetWrapper rsw, MetaClass metaType, String column,
+      TypeHandler<?> typeHandler, String property) {
+    // 只支持结果对象的直接属性
+    if (property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || !metaType.hasSetter(property)) {
+      return false;
+    }
+    final int columnIndex = rsw.getColumnIndex(column);
+    if (columnIndex < 0) {
+      return false;
+    }
+    // gcode issue #377, call setter on nulls
+    final boolean setNull = configuration.isCallSettersOnNulls() && !metaType.getSetterType(property).isPrimitive();
+    builder.column(columnIndex, typeHandler, property, metaType.getSetInvoker(property), setNull);
+    return true;
+  }
+
+  /**
+   * 将当前行映射到上一行的结果对象中，不创建新的结果对象。不支持复用时，和 {@link #getRowValueUsingEntityCache(ResultSetWrapper, ResultMap)} 一致
+   */
+  private Object getRowValueUsingReusableRow(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (reusableRowsRsw != rsw) {
+      reusableRows.clear();
+      reusableRowsRsw = rsw;
+    }
+    ReusableRow reusableRow = reusableRows.get(resultMap);
+    if (reusableRow == null) {
+      if (reusableRows.containsKey(resultMap)) {
+        return getRowValueUsingEntityCache(rsw, resultMap);
+      }
+      reusableRow = isReusable(rsw, resultMap) ? new ReusableRow() : null;
+      reusableRows.put(resultMap, reusableRow);
+      if (reusableRow == null) {
+        return getRowValueUsingEntityCache(rsw, resultMap);
+      }
+    }
+    // 第一个结果对象，正常创建
+    if (reusableRow.rowValue == null) {
+      final Object rowValue = getRowValue(rsw, resultMap, null);
+      if (rowValue != null) {
+        reusableRow.rowValue = rowValue;
+        reusableRow.metaObject = configuration.newMetaObject(rowValue);
+      }
+      return rowValue;
+    }
+    final Object rowValue = reusableRow.rowValue;
+    // Map 清空后重新映射，和新创建的 Map 一致
+    if (rowValue instanceof Map) {
+      ((Map<?, ?>) rowValue).clear();
+    } else if (configuration.isCompiledRowMappingEnabled()) {
+      final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap);
+      if (rowMapper != null) {
+        return rowMapper.map(rsw.getResultSet(), rowValue);
+      }
+    }
+    resetNullProperties = !(rowValue instanceof Map);
+    try {
+      boolean foundValues = false;
+      if (shouldApplyAutomaticMappings(resultMap, false)) {
+        foundValues = applyAutomaticMappings(rsw, resultMap, reusableRow.metaObject, null);
+      }
+      // 没有内嵌查询，不需要 ResultLoaderMap 对象
+      foundValues = applyPropertyMappings(rsw, resultMap, reusableRow.metaObject, null, null) || foundValues;
+      return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+    } finally {
+      resetNullProperties = false;
+    }
+  }
+
+  /**
+   * 判断 ResultMap 的结果对象是否可以复用：使用无参的构造方法创建，没有内嵌映射和内嵌查询，并且不使用实体缓存
+   */
+  private boolean isReusable(ResultSetWrapper rsw, ResultMap resultMap) {
+    final Class<?> resultType = resultMap.getType();
+    if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || !resultMap.getConstructorResultMappings().isEmpty()
+        || hasTypeHandlerForResultObject(rsw, resultType)) {
+      return false;
+    }
+    if (configuration.isEntityCacheEnabled() && mappedStatement.isUseCache() && configuration.getEntityCache().isCacheable(resultMap)) {
+      return false;
+    }
+    return Map.class.isAssignableFrom(resultType) || MetaClass.forClass(resultType, reflectorFactory).hasDefaultConstructor();
+  }
+
+  /**
+   * 重置复用的结果对象的属性为 null ，基本类型为默认值
+   */
+  private void resetProperty(MetaObject metaObject, String property) {
+    final Class<?> type = metaObject.getSetterType(property);
+    metaObject.setValue(property, PrimitiveUtil.defaultValue(type));
+  }
+
+  /**
+   * 若开启实体缓存，优先从实体缓存中，获得该行记录对应的结果对象。获取不到，再进行映射，并添加到实体缓存中
+   */
+  private Object getRowValueUsingEntityCache(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final EntityCache entityCache = configuration.getEntityCache();
+    if (!configuration.isEntityCacheEnabled() || !mappedStatement.isUseCache() || !entityCache.isCacheable(resultMap)) {
+      return getRowValue(rsw, resultMap, null);
+    }
+    // 通过事务级的实体缓存读写，未提交的数据不会被其它会话获得。Executor 不支持实体缓存时，直接映射
+    final TransactionalEntityCache transactionalEntityCache = executor.getEntityCache();
+    if (transactionalEntityCache == null) {
+      return getRowValue(rsw, resultMap, null);
+    }
+    // 获得 `<id>` 字段的值，并创建实体缓存的 KEY
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    final List<ResultMapping> idMappings = entityCache.getIdMappings(resultMap);
+    final List<Object> idValues = new ArrayList<>(idMappings.size());
+    for (ResultMapping idMapping : idMappings) {
+      if (!mappedColumnNames.contains(idMapping.getColumn().toUpperCase(Locale.ENGLISH))) {
+        return getRowValue(rsw, resultMap, null);
+      }
+      idValues.add(idMapping.getTypeHandler().getResult(rsw.getResultSet(), idMapping.getColumn()));
+    }
+    final CacheKey entityKey = entityCache.createKey(resultMap, idValues);
+    if (entityKey == null) {
+      return getRowValue(rsw, resultMap, null);
+    }
+    final String columnSignature = rsw.getColumnSignature();
+    Object rowValue = transactionalEntityCache.getObject(resultMap, entityKey, columnSignature);
+    if (rowValue == null) {
+      rowValue = getRowValue(rsw, resultMap, null);
+      if (rowValue != null) {
+        transactionalEntityCache.putObject(resultMap, entityKey, columnSignature, rowValue);
+      }
+    }
+    return rowValue;
+  }
+
   //判断是否使用自动映射的功能
   private boolean shouldApplyAutomaticMappings(ResultMap resultMap, boolean isNested) {
     // 判断是否开启自动映射功能
@@ -508,23 +950,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //映射 ResultMap 中明确映射的列
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
-    // 获得 mapped 的字段的名字的数组
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
     boolean foundValues = false;
     // 遍历 ResultMapping 数组
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      // 获得字段名
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      if (propertyMapping.getNestedResultMapId() != null) {
-        // the user added a column attribute to a nested result map, ignore it
-        column = null;
-      }
+    // 获得字段的位置的数组。内嵌的 ResultMap 的 column 属性会被忽略，位置为 0
+    final int[] columnIndexes = getColumnIndexes(rsw, resultMap, columnPrefix).of(propertyMappings);
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
       if (propertyMapping.isCompositeResult()// 组合
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))// 属于 mappedColumnNames
+          || columnIndexes[i] > 0// 属于 mappedColumnNames
           || propertyMapping.getResultSet() != null) {// 存储过程
         // <1> 获得指定字段的值
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndexes[i]);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -542,14 +979,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         if (value != null || (configuration.isCallSettersOnNulls() && !metaObject.getSetterType(property).isPrimitive())) {
           // gcode issue #377, call setter on nulls (value is not 'found')
           metaObject.setValue(property, value);
+        } else if (resetNullProperties) {
+          resetProperty(metaObject, property);
         }
       }
     }
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-      throws SQLException {
+  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+      int columnIndex) throws SQLException {
     // <2> 内嵌查询，获得嵌套查询的值
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
@@ -557,19 +996,48 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     } else if (propertyMapping.getResultSet() != null) {
       addPendingChildRelation(rs, metaResultObject, propertyMapping);   // TODO is that OK?
       return DEFERED;
-      // 普通，直接获得指定字段的值
+      // 普通，直接获得指定位置的字段的值
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
-      final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      return getColumnValue(rs, typeHandler, columnIndex, prependPrefix(propertyMapping.getColumn(), columnPrefix));
+    }
+  }
+
+  /**
+   * 获得字段的值。开启 columnIndexMappingEnabled 时，使用字段的位置读取，否则使用字段名读取
+   *
+   * @param columnIndex 字段的位置。为 0 时，使用字段名读取
+   * @param column 字段名
+   */
+  private Object getColumnValue(ResultSet rs, TypeHandler<?> typeHandler, int columnIndex, String column) throws SQLException {
+    if (columnIndex <= 0 || !configuration.isColumnIndexMappingEnabled()) {
       return typeHandler.getResult(rs, column);
     }
+    try {
+      return typeHandler.getResult(rs, columnIndex);
+    } catch (SQLException | RuntimeException e) {
+      // 补充字段名，否则只有字段的位置，难以定位
+      throw new ResultMapException("Error attempting to get column '" + column + "' (index " + columnIndex + ") from result set with "
+          + typeHandler.getClass().getName() + ".  Cause: " + e, e);
+    }
   }
 
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
+    // 字段布局变化时，清空缓存
+    switchLayout(rsw);
     // 生成 autoMappingsCache 的 KEY
     final String mapKey = resultMap.getId() + ":" + columnPrefix;
     // 从缓存 autoMappingsCache 中，获得 UnMappedColumnAutoMapping 数组
     List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
+    // 如果获取不到，则从字段布局中获得。开启 resultSetLayoutCacheSize 时，字段布局相同的多次执行，共享自动映射的计划
+    final String layoutKey = autoMapping == null
+        ? mappedStatement.getId() + ":" + mapKey + ":" + metaObject.getOriginalObject().getClass().getName() : null;
+    if (autoMapping == null) {
+      autoMapping = rsw.getLayout().getAutoMappings(layoutKey);
+      if (autoMapping != null) {
+        autoMappingsCache.put(mapKey, autoMapping);
+      }
+    }
     // 如果获取不到，则进行初始化
     if (autoMapping == null) {
       autoMapping = new ArrayList<>();
@@ -601,7 +1069,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           // 判断是否有对应的 TypeHandler 对象。如果有，则创建 UnMappedColumnAutoMapping 对象，并添加到 autoMapping 中
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            autoMapping.add(new UnMappedColumnAutoMapping(columnName, rsw.getColumnIndex(columnName), property, typeHandler, propertyType.isPrimitive()));
 
             // 如果没有，则执行 AutoMappingUnknownColumnBehavior 对应的逻辑
           } else {
@@ -616,10 +1084,35 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
       // 添加到缓存中
       autoMappingsCache.put(mapKey, autoMapping);
+      rsw.getLayout().putAutoMappings(layoutKey, autoMapping);
     }
     return autoMapping;
   }
 
+  /**
+   * 获得 ResultMap 的字段的位置。优先从当前字段布局的缓存中获得
+   */
+  private ResultSetLayout.ColumnIndexes getColumnIndexes(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) {
+    switchLayout(rsw);
+    ResultSetLayout.ColumnIndexes columnIndexes = columnIndexesCache.get(resultMap);
+    if (columnIndexes == null || !columnIndexes.isFor(resultMap, columnPrefix)) {
+      columnIndexes = rsw.getColumnIndexes(resultMap, columnPrefix);
+      columnIndexesCache.put(resultMap, columnIndexes);
+    }
+    return columnIndexes;
+  }
+
+  /**
+   * 字段布局变化时，清空 {@link #autoMappingsCache} 和 {@link #columnIndexesCache} 缓存。因为它们使用字段的位置读取字段的值
+   */
+  private void switchLayout(ResultSetWrapper rsw) {
+    if (cachedLayout != rsw.getLayout()) {
+      autoMappingsCache.clear();
+      columnIndexesCache.clear();
+      cachedLayout = rsw.getLayout();
+    }
+  }
+
   private boolean applyAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
     // <1> 获得 UnMappedColumnAutoMapping 数组
     List<UnMappedColumnAutoMapping> autoMapping = createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix);
@@ -628,7 +1121,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       // <2> 遍历 UnMappedColumnAutoMapping 数组
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
         // 获得指定字段的值
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = getColumnValue(rsw.getResultSet(), mapping.typeHandler, mapping.columnIndex, mapping.column);
         // 若非空，标记 foundValues 有值
         if (value != null) {
           foundValues = true;
@@ -637,6 +1130,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         if (value != null || (configuration.isCallSettersOnNulls() && !mapping.primitive)) {
           // gcode issue #377, call setter on nulls (value is not 'found')
           metaObject.setValue(mapping.property, value);
+        } else if (resetNullProperties) {
+          resetProperty(metaObject, mapping.property);
         }
       }
     }
@@ -733,10 +1228,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
       // 情况二，如果 ResultMap 中，如果定义了 `<constructor />` 节点，则通过反射调用该构造方法，创建对应结果对象
     } else if (!constructorMappings.isEmpty()) {
-      return createParameterizedResultObject(rsw, resultType, constructorMappings, constructorArgTypes, constructorArgs, columnPrefix);
+      return createParameterizedResultObject(rsw, resultType, constructorMappings, constructorArgTypes, constructorArgs, columnPrefix,
+          getColumnIndexes(rsw, resultMap, columnPrefix).of(constructorMappings));
 
       // 情况三，如果有默认的无参的构造方法，则使用该构造方法，创建对应结果对象
     } else if (resultType.isInterface() || metaType.hasDefaultConstructor()) {
+      // resultType="map" 时，按照配置，使用共享字典的 RowMap 对象
+      if (resultType == Map.class && configuration.getRowMapType() != RowMapType.HASH_MAP
+          && objectFactory.getClass() == DefaultObjectFactory.class) {
+        return new RowMap(rsw.getLayout().getRowMapKeys(configuration.getRowMapType() == RowMapType.COMPACT_CASE_INSENSITIVE));
+      }
       return objectFactory.create(resultType);
 
       // 情况四，通过自动映射的方式查找合适的构造方法，后使用该构造方法，创建对应结果对象
@@ -764,10 +1265,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    */
   Object createParameterizedResultObject(ResultSetWrapper rsw, Class<?> resultType, List<ResultMapping> constructorMappings,
                                          List<Class<?>> constructorArgTypes, List<Object> constructorArgs, String columnPrefix) {
+    return createParameterizedResultObject(rsw, resultType, constructorMappings, constructorArgTypes, constructorArgs, columnPrefix, null);
+  }
+
+  /**
+   * @param columnIndexes 字段的位置的数组，和 constructorMappings 一一对应。为 null ，或者位置为 0 时，使用字段名获得值
+   */
+  private Object createParameterizedResultObject(ResultSetWrapper rsw, Class<?> resultType, List<ResultMapping> constructorMappings,
+                                                 List<Class<?>> constructorArgTypes, List<Object> constructorArgs, String columnPrefix,
+                                                 int[] columnIndexes) {
 
     // 获得到任一的属性值。即，只要一个结果对象，有一个属性非空，就会设置为 true
     boolean foundValues = false;
-    for (ResultMapping constructorMapping : constructorMappings) {
+    for (int i = 0; i < constructorMappings.size(); i++) {
+      final ResultMapping constructorMapping = constructorMappings.get(i);
       // 获得参数类型
       final Class<?> parameterType = constructorMapping.getJavaType();
       // 获得数据库的字段名
@@ -787,7 +1298,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           // 最常用的情况，直接使用 TypeHandler 获取当前 ResultSet 的当前行的指定字段的值
         } else {
           final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-          value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+          value = getColumnValue(rsw.getResultSet(), typeHandler, columnIndexes != null ? columnIndexes[i] : 0, prependPrefix(column, columnPrefix));
         }
       } catch (ResultMapException | SQLException e) {
         throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
@@ -872,19 +1383,22 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private Object createPrimitiveResultObject(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
     final Class<?> resultType = resultMap.getType();
-    // 获得字段名
+    // 获得字段名和字段的位置
     final String columnName;
+    final int columnIndex;
     if (!resultMap.getResultMappings().isEmpty()) {
       final List<ResultMapping> resultMappingList = resultMap.getResultMappings();
       final ResultMapping mapping = resultMappingList.get(0);
       columnName = prependPrefix(mapping.getColumn(), columnPrefix);
+      columnIndex = rsw.getColumnIndex(columnName);
     } else {
       columnName = rsw.getColumnNames().get(0);
+      columnIndex = 1;
     }
     // 获得 TypeHandler 对象
     final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
     // 获得 ResultSet 的指定字段的值
-    return typeHandler.getResult(rsw.getResultSet(), columnName);
+    return getColumnValue(rsw.getResultSet(), typeHandler, columnIndex, columnName);
   }
 
   //
@@ -907,6 +1421,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
   //获得嵌套查询的值
+  private ConcurrentNestedQueryLoader getNestedQueryLoader() {
+    if (nestedQueryLoader == null) {
+      nestedQueryLoader = new ConcurrentNestedQueryLoader(configuration);
+    }
+    return nestedQueryLoader;
+  }
+
   private Object getNestedQueryMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
     // 获得内嵌查询的编号
@@ -920,7 +1441,23 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // 获得内嵌查询的参数对象
     final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
     Object value = null;
-    if (nestedQueryParameterObject != null) {
+    if (nestedQueryParameterObject != null && propertyMapping.getBatchSize() != null) {
+      // <0> 如果要求批量执行，则收集父对象的参数，之后和其它父对象一起加载
+      final NestedQueryBatch batch = nestedQueryBatches.computeIfAbsent(propertyMapping, NestedQueryBatch::new);
+      final Object[] keyValues = getNestedQueryKeyValues(propertyMapping, nestedQueryParameterObject);
+      final CacheKey batchKey = new CacheKey(keyValues);
+      batch.add(batchKey, nestedQueryParameterObject, keyValues);
+      final BatchResultLoader resultLoader = new BatchResultLoader(configuration, executor, nestedQuery, batch, batchKey,
+          nestedQueryParameterObject, propertyMapping.getJavaType());
+      if (propertyMapping.isLazy()) {
+        // 延迟加载时，第一个被访问的父对象，会一起加载其它父对象尚未加载的结果
+        lazyLoader.addLoader(property, metaResultObject, resultLoader);
+      } else {
+        // 在 ResultSet 处理完成，或者结果对象将要交给自定义的 ResultHandler 时加载
+        pendingBatchLoads.add(new PendingBatchLoad(resultLoader, metaResultObject, property));
+      }
+      value = DEFERED;
+    } else if (nestedQueryParameterObject != null) {
       // 获得 BoundSql 对象
       final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
       // 获得 CacheKey 对象
@@ -942,8 +1479,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           lazyLoader.addLoader(property, metaResultObject, resultLoader);
           // 返回已定义
           value = DEFERED;
+        } else if (nestedQueryConcurrency != NestedQueryConcurrency.NONE && getNestedQueryLoader().canLoad(key)) {
+          // <3.3> 如果开启并发执行，则提交到线程池中，等待完成后再设置到属性中
+          getNestedQueryLoader().load(key, targetType, resultLoader, metaResultObject, property);
+          value = DEFERED;
         } else {
-          // <3.3> 如果不要求延迟加载，则直接执行加载对应的值
+          // <3.4> 如果不要求延迟加载，则直接执行加载对应的值
           value = resultLoader.loadResult();
         }
       }
@@ -951,6 +1492,54 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  private void loadPendingBatches() throws SQLException {
+    if (pendingBatchLoads.isEmpty()) {
+      return;
+    }
+    try {
+      for (PendingBatchLoad pendingBatchLoad : pendingBatchLoads) {
+        final Object value = pendingBatchLoad.resultLoader.loadResult();
+        if (value != null || (configuration.isCallSettersOnNulls() && !pendingBatchLoad.metaObject.getSetterType(pendingBatchLoad.property).isPrimitive())) {
+          pendingBatchLoad.metaObject.setValue(pendingBatchLoad.property, value);
+        }
+      }
+    } finally {
+      pendingBatchLoads.clear();
+    }
+  }
+
+  /**
+   * 获得父对象的关联值，即内嵌查询的参数对象中，column 对应的值。
+   * 这些值已经通过 TypeHandler 转换，和结果对象的 foreignColumn 的值，按照相同的类型比较
+   */
+  private Object[] getNestedQueryKeyValues(ResultMapping resultMapping, Object parameterObject) {
+    if (!resultMapping.isCompositeResult()) {
+      return new Object[] {parameterObject};
+    }
+    final MetaObject metaObject = configuration.newMetaObject(parameterObject);
+    final List<ResultMapping> composites = resultMapping.getComposites();
+    final Object[] values = new Object[composites.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = metaObject.getValue(composites.get(i).getProperty());
+    }
+    return values;
+  }
+
+  /**
+   * 获得结果对象的 foreignColumn 的值。使用父对象的关联值的类型对应的 TypeHandler 读取，避免字段类型不同时，无法匹配
+   */
+  private CacheKey createForeignKeyForNestedQueryBatch(ResultSet rs, NestedQueryBatch nestedQueryBatch) throws SQLException {
+    final String[] columns = nestedQueryBatch.getResultMapping().getForeignColumn().split(",");
+    final Object[] values = new Object[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      final Class<?> keyType = nestedQueryBatch.getKeyType(i);
+      final TypeHandler<?> typeHandler = keyType != null && typeHandlerRegistry.hasTypeHandler(keyType)
+          ? typeHandlerRegistry.getTypeHandler(keyType) : typeHandlerRegistry.getUnknownTypeHandler();
+      values[i] = typeHandler.getResult(rs, columns[i].trim());
+    }
+    return new CacheKey(values);
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -1063,15 +1652,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ResultSet resultSet = rsw.getResultSet();
     skipRows(resultSet, rowBounds);
     Object rowValue = previousRowValue;
+    // 作为批量内嵌查询执行时，根对象的 foreignColumn 的值。结果有序时，根对象在读取下一个根对象的首行后才保存，所以在读取首行时获得
+    CacheKey foreignKey = null;
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
-      Object partialObject = nestedResultObjects.get(rowKey);
+      final RowKey rowKey = createRowKey(discriminatedResultMap, rsw, null, null);
+      Object partialObject = rowKey != null ? nestedResultObjects.get(rowKey) : null;
       // issue #577 && #542
-      if (mappedStatement.isResultOrdered()) {
+      if (nestedResultOrdered) {
         if (partialObject == null && rowValue != null) {
+          // 结果有序时，新的根对象开始，之前的根对象及其子对象不会再出现，释放它们的 RowKey
           nestedResultObjects.clear();
-          storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
+          storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet, foreignKey);
+        }
+        if (partialObject == null && resultHandler instanceof NestedQueryBatch) {
+          foreignKey = createForeignKeyForNestedQueryBatch(resultSet, (NestedQueryBatch) resultHandler);
         }
         rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, null, partialObject);
       } else {
@@ -1081,8 +1676,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
-      storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
+    if (rowValue != null && nestedResultOrdered && shouldProcessMoreRows(resultContext, rowBounds)) {
+      nestedResultObjects.clear();
+      storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet, foreignKey);
       previousRowValue = null;
     } else if (rowValue != null) {
       previousRowValue = rowValue;
@@ -1093,7 +1689,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // GET VALUE FROM ROW FOR NESTED RESULT MAP
   //
 
-  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, CacheKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
+  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, RowKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
     final String resultMapId = resultMap.getId();
     Object rowValue = partialObject;
     if (rowValue != null) {
@@ -1117,7 +1713,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         foundValues = lazyLoader.size() > 0 || foundValues;
         rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
       }
-      if (combinedKey != CacheKey.NULL_CACHE_KEY) {
+      if (combinedKey != null) {
         nestedResultObjects.put(combinedKey, rowValue);
       }
     }
@@ -1132,7 +1728,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // NESTED RESULT MAP (JOIN MAPPING)
   //
 
-  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, CacheKey parentRowKey, boolean newObject) {
+  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, RowKey parentRowKey, boolean newObject) {
     boolean foundValues = false;
     for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
       final String nestedResultMapId = resultMapping.getNestedResultMapId();
@@ -1151,9 +1747,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
               continue;
             }
           }
-          final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-          final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
-          Object rowValue = nestedResultObjects.get(combinedKey);
+          // 父行没有唯一标识时，子行也没有
+          final RowKey combinedKey = parentRowKey != null ? createRowKey(nestedResultMap, rsw, columnPrefix, parentRowKey) : null;
+          Object rowValue = combinedKey != null ? nestedResultObjects.get(combinedKey) : null;
           boolean knownValue = rowValue != null;
           instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
           if (anyNotNullColumnHasValue(resultMapping, columnPrefix, rsw)) {
@@ -1213,37 +1809,32 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // UNIQUE RESULT KEY
   //
 
-  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMap.getId());
+  /**
+   * 创建当前行的 RowKey 对象
+   *
+   * @param parentRowKey 父行的 RowKey 对象。根对象时，为 null
+   * @return RowKey 对象。没有任何字段的值时，返回 null ，表示当前行没有唯一标识
+   */
+  private RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix, RowKey parentRowKey) throws SQLException {
+    final List<Object> values = rowKeyValues;
+    values.clear();
+    final boolean foundValues;
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
-        createRowKeyForMap(rsw, cacheKey);
+        foundValues = createRowKeyForMap(rsw, values);
       } else {
-        createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
+        foundValues = createRowKeyForUnmappedProperties(resultMap, rsw, values, columnPrefix);
       }
     } else {
-      createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
-    }
-    if (cacheKey.getUpdateCount() < 2) {
-      return CacheKey.NULL_CACHE_KEY;
+      foundValues = createRowKeyForMappedProperties(resultMap, rsw, values, resultMappings, columnPrefix);
     }
-    return cacheKey;
-  }
-
-  private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-    if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-      CacheKey combinedKey;
-      try {
-        combinedKey = rowKey.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
-      }
-      combinedKey.update(parentRowKey);
-      return combinedKey;
+    if (!foundValues) {
+      return null;
     }
-    return CacheKey.NULL_CACHE_KEY;
+    final RowKey rowKey = new RowKey(resultMap, columnPrefix, values.toArray(), parentRowKey);
+    values.clear();
+    return rowKey;
   }
 
   private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
@@ -1254,30 +1845,38 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return resultMappings;
   }
 
-  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
-    for (ResultMapping resultMapping : resultMappings) {
+  /**
+   * 添加明确映射的字段的值。值为 null 时，也占用一个位置，保证相同 ResultMap 的 RowKey 的每个位置对应相同的字段
+   *
+   * @return 是否有任一字段的值
+   */
+  private boolean createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<Object> values, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+    boolean foundValues = false;
+    final int[] columnIndexes = getColumnIndexes(rsw, resultMap, columnPrefix).of(resultMappings);
+    for (int i = 0; i < resultMappings.size(); i++) {
+      final ResultMapping resultMapping = resultMappings.get(i);
       if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) {
         // Issue #392
         final ResultMap nestedResultMap = configuration.getResultMap(resultMapping.getNestedResultMapId());
-        createRowKeyForMappedProperties(nestedResultMap, rsw, cacheKey, nestedResultMap.getConstructorResultMappings(),
-            prependPrefix(resultMapping.getColumnPrefix(), columnPrefix));
+        foundValues = createRowKeyForMappedProperties(nestedResultMap, rsw, values, nestedResultMap.getConstructorResultMappings(),
+            prependPrefix(resultMapping.getColumnPrefix(), columnPrefix)) || foundValues;
       } else if (resultMapping.getNestedQueryId() == null) {
-        final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
         final TypeHandler<?> th = resultMapping.getTypeHandler();
-        List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
-        if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
+        if (columnIndexes[i] > 0) {
+          final Object value = getColumnValue(rsw.getResultSet(), th, columnIndexes[i], prependPrefix(resultMapping.getColumn(), columnPrefix));
+          values.add(value);
           if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-            cacheKey.update(column);
-            cacheKey.update(value);
+            foundValues = true;
           }
         }
       }
     }
+    return foundValues;
   }
 
-  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+  private boolean createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<Object> values, String columnPrefix) throws SQLException {
+    boolean foundValues = false;
     final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
     List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
     for (String column : unmappedColumnNames) {
@@ -1292,23 +1891,22 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
         String value = rsw.getResultSet().getString(column);
-        if (value != null) {
-          cacheKey.update(column);
-          cacheKey.update(value);
-        }
+        values.add(value);
+        foundValues = value != null || foundValues;
       }
     }
+    return foundValues;
   }
 
-  private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
+  private boolean createRowKeyForMap(ResultSetWrapper rsw, List<Object> values) throws SQLException {
+    boolean foundValues = false;
     List<String> columnNames = rsw.getColumnNames();
     for (String columnName : columnNames) {
       final String value = rsw.getResultSet().getString(columnName);
-      if (value != null) {
-        cacheKey.update(columnName);
-        cacheKey.update(value);
-      }
+      values.add(value);
+      foundValues = value != null || foundValues;
     }
+    return foundValues;
   }
 
   private void linkObjects(MetaObject metaObject, ResultMapping resultMapping, Object rowValue) {
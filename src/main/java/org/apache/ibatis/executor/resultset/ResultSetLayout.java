@@ -0,0 +1,421 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.executor.result.RowMap;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.ObjectTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
+
+/**
+ * The column layout of a {@link java.sql.ResultSet} and everything derived from it: the mapped and unmapped
+ * columns of each result map, the type handlers of the columns, the auto-mapping plans and the compiled row mappers.
+ * A layout can be shared by the executions returning the same columns, see
+ * {@link org.apache.ibatis.session.Configuration#getResultSetLayoutCacheSize()}.
+ *
+ * 字段布局。{@link ResultSetWrapper} 从 ResultSetMetaData 读取字段后，所有的解析结果都缓存在该对象中。线程安全
+ *
+ * @since 3.5.0
+ */
+public class ResultSetLayout {
+
+  private final TypeHandlerRegistry typeHandlerRegistry;
+  /**
+   * 字段的名字的数组
+   */
+  private final List<String> columnNames;
+  /**
+   * 字段的 Java Type 的数组
+   */
+  private final List<String> classNames;
+  /**
+   * 字段的 JdbcType 的数组
+   */
+  private final List<JdbcType> jdbcTypes;
+  /**
+   * 字段布局的签名
+   */
+  private final String signature;
+  /**
+   * 字段的位置的映射。相同名字的字段，只记录第一个的位置，和 {@link java.sql.ResultSet#findColumn(String)} 一致
+   *
+   * KEY：大写的字段的名字
+   * VALUE：位置，从 1 开始
+   */
+  private final Map<String, Integer> columnIndexMap = new HashMap<>();
+  /**
+   * TypeHandler 的映射
+   *
+   * KEY1：字段的名字
+   * KEY2：Java 属性类型
+   */
+  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new ConcurrentHashMap<>();
+  /**
+   * 有 mapped 的字段的名字的映射
+   *
+   * KEY：{@link #getMapKey(ResultMap, String)}
+   * VALUE：字段的名字的数组
+   */
+  private final Map<String, List<String>> mappedColumnNamesMap = new ConcurrentHashMap<>();
+  /**
+   * 无 mapped 的字段的名字的映射
+   *
+   * 和 {@link #mappedColumnNamesMap} 相反
+   */
+  private final Map<String, List<String>> unMappedColumnNamesMap = new ConcurrentHashMap<>();
+  /**
+   * 自动映射的计划的映射
+   *
+   * KEY：MappedStatement 的编号 + {@link #getMapKey(ResultMap, String)}
+   */
+  private final Map<String, List<DefaultResultSetHandler.UnMappedColumnAutoMapping>> autoMappings = new ConcurrentHashMap<>();
+  /**
+   * ResultMap 的字段的位置的映射
+   *
+   * KEY：{@link #getMapKey(ResultMap, String)}
+   */
+  private final Map<String, ColumnIndexes> columnIndexesMap = new ConcurrentHashMap<>();
+  /**
+   * CompiledRowMapper 的映射。随字段布局一起缓存和淘汰
+   *
+   * KEY：ResultMap 的编号
+   */
+  private final Map<String, CompiledRowMapper> compiledRowMappers = new ConcurrentHashMap<>();
+  /**
+   * 行的 Map 对象的字典，按需创建
+   */
+  private volatile RowMap.Keys rowMapKeys;
+  private volatile RowMap.Keys caseInsensitiveRowMapKeys;
+  /**
+   * 最后一次使用的时间，用于淘汰缓存的字段布局。单位：纳秒
+   */
+  private volatile long lastUsed = System.nanoTime();
+
+  ResultSetLayout(TypeHandlerRegistry typeHandlerRegistry, List<String> columnNames, List<String> classNames, List<JdbcType> jdbcTypes) {
+    this.typeHandlerRegistry = typeHandlerRegistry;
+    this.columnNames = Collections.unmodifiableList(columnNames);
+    this.classNames = Collections.unmodifiableList(classNames);
+    this.jdbcTypes = Collections.unmodifiableList(jdbcTypes);
+    this.signature = signatureOf(columnNames, classNames, jdbcTypes);
+    for (int i = 0; i < columnNames.size(); i++) {
+      final String upperColumnName = columnNames.get(i).toUpperCase(Locale.ENGLISH);
+      if (!columnIndexMap.containsKey(upperColumnName)) {
+        columnIndexMap.put(upperColumnName, i + 1);
+      }
+    }
+  }
+
+  /**
+   * 获得字段布局的签名，由字段的名字、JdbcType 和 Java Type 组成。签名相同的 ResultSet ，字段的位置和类型相同
+   */
+  static String signatureOf(List<String> columnNames, List<String> classNames, List<JdbcType> jdbcTypes) {
+    final StringBuilder signature = new StringBuilder();
+    for (int i = 0; i < columnNames.size(); i++) {
+      signature.append(columnNames.get(i)).append(':').append(jdbcTypes.get(i)).append(':').append(classNames.get(i)).append(',');
+    }
+    return signature.toString();
+  }
+
+  long getLastUsed() {
+    return lastUsed;
+  }
+
+  void touch() {
+    lastUsed = System.nanoTime();
+  }
+
+  public String getSignature() {
+    return signature;
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public List<String> getClassNames() {
+    return classNames;
+  }
+
+  public List<JdbcType> getJdbcTypes() {
+    return jdbcTypes;
+  }
+
+  public JdbcType getJdbcType(String columnName) {
+    final int columnIndex = getColumnIndex(columnName);
+    return columnIndex > 0 ? jdbcTypes.get(columnIndex - 1) : null;
+  }
+
+  /**
+   * 获得指定字段名的位置
+   *
+   * @return 位置，从 1 开始。不存在时，返回 -1
+   */
+  public int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return -1;
+    }
+    final Integer columnIndex = columnIndexMap.get(columnName.toUpperCase(Locale.ENGLISH));
+    return columnIndex != null ? columnIndex : -1;
+  }
+
+  /**
+   * 获得行的 Map 对象的字典，被所有行共享
+   *
+   * @param caseInsensitive 字段名是否不区分大小写
+   */
+  public RowMap.Keys getRowMapKeys(boolean caseInsensitive) {
+    RowMap.Keys keys = caseInsensitive ? caseInsensitiveRowMapKeys : rowMapKeys;
+    if (keys == null) {
+      // 并发创建时，结果相同，不需要加锁
+      keys = new RowMap.Keys(columnNames, caseInsensitive);
+      if (caseInsensitive) {
+        caseInsensitiveRowMapKeys = keys;
+      } else {
+        rowMapKeys = keys;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * 获得 ResultMap 的 ResultMapping 对应的字段的位置
+   */
+  public ColumnIndexes getColumnIndexes(ResultMap resultMap, String columnPrefix) {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    // 先 get ，已存在时，避免 computeIfAbsent 加锁
+    final ColumnIndexes columnIndexes = columnIndexesMap.get(mapKey);
+    return columnIndexes != null ? columnIndexes : columnIndexesMap.computeIfAbsent(mapKey, key -> new ColumnIndexes(resultMap, columnPrefix));
+  }
+
+  /**
+   * 获得指定字段名的指定 JavaType 类型的 TypeHandler 对象
+   *
+   * @see ResultSetWrapper#getTypeHandler(Class, String)
+   */
+  public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
+    // <1> 先从缓存的 typeHandlerMap 中，获得指定字段名的指定 JavaType 类型的 TypeHandler 对象。先 get ，已存在时，避免 computeIfAbsent 加锁
+    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
+    if (columnHandlers == null) {
+      columnHandlers = typeHandlerMap.computeIfAbsent(columnName, key -> new ConcurrentHashMap<>());
+    }
+    final TypeHandler<?> handler = columnHandlers.get(propertyType);
+    // <2> 如果获取不到，则进行查找，并缓存
+    return handler != null ? handler : columnHandlers.computeIfAbsent(propertyType, type -> resolveTypeHandler(type, columnName));
+  }
+
+  private TypeHandler<?> resolveTypeHandler(Class<?> propertyType, String columnName) {
+    // <2> 获得 JdbcType 类型
+    JdbcType jdbcType = getJdbcType(columnName);
+    // <2> 获得 TypeHandler 对象
+    TypeHandler<?> handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
+    // Replicate logic of UnknownTypeHandler#resolveTypeHandler
+    // See issue #59 comment 10
+    // <3> 如果获取不到，则再次进行查找
+    if (handler == null || handler instanceof UnknownTypeHandler) {
+      // <3> 使用 classNames 中的类型，进行继续查找 TypeHandler 对象
+      final int index = getColumnIndex(columnName);
+      final Class<?> javaType = index > 0 ? resolveClass(classNames.get(index - 1)) : null;
+      if (javaType != null && jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
+      } else if (javaType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType);
+      } else if (jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(jdbcType);
+      }
+    }
+    // <4> 如果获取不到，则使用 ObjectTypeHandler 对象
+    if (handler == null || handler instanceof UnknownTypeHandler) {
+      handler = new ObjectTypeHandler();
+    }
+    return handler;
+  }
+
+  private Class<?> resolveClass(String className) {
+    try {
+      // #699 className could be null
+      if (className != null) {
+        return Resources.classForName(className);
+      }
+    } catch (ClassNotFoundException e) {
+      // ignore
+    }
+    return null;
+  }
+
+  /**
+   * 初始化有 mapped 和无 mapped的字段的名字数组
+   */
+  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> mappedColumnNames = new ArrayList<>();
+    List<String> unmappedColumnNames = new ArrayList<>();
+    // <1> 将 columnPrefix 转换成大写，并拼接到 resultMap.mappedColumns 属性上
+    final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
+    final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
+
+    // <2> 遍历 columnNames 数组，根据是否在 mappedColumns 中，分别添加到 mappedColumnNames 和 unmappedColumnNames 中
+    for (String columnName : columnNames) {
+      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+      if (mappedColumns.contains(upperColumnName)) {
+        mappedColumnNames.add(upperColumnName);
+      } else {
+        unmappedColumnNames.add(columnName);
+      }
+    }
+    // <3> 将 mappedColumnNames 和 unmappedColumnNames 结果，添加到 mappedColumnNamesMap 和 unMappedColumnNamesMap 中
+    // 先添加 unMappedColumnNamesMap ，保证其它线程获得 mappedColumnNamesMap 时，unMappedColumnNamesMap 也已存在
+    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(unmappedColumnNames));
+    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(mappedColumnNames));
+  }
+
+  public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    // 获得对应的 mapped 数组
+    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    if (mappedColumnNames == null) {
+      // 初始化
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
+      // 重新获得对应的 mapped 数组
+      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    }
+    return mappedColumnNames;
+  }
+
+  public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    // 获得对应的 unMapped 数组
+    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    if (unMappedColumnNames == null) {
+      // 初始化
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
+      // 重新获得对应的 unMapped 数组
+      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    }
+    return unMappedColumnNames;
+  }
+
+  List<DefaultResultSetHandler.UnMappedColumnAutoMapping> getAutoMappings(String key) {
+    return autoMappings.get(key);
+  }
+
+  void putAutoMappings(String key, List<DefaultResultSetHandler.UnMappedColumnAutoMapping> autoMapping) {
+    autoMappings.put(key, Collections.unmodifiableList(autoMapping));
+  }
+
+  CompiledRowMapper getCompiledRowMapper(String resultMapId) {
+    return compiledRowMappers.get(resultMapId);
+  }
+
+  void putCompiledRowMapper(String resultMapId, CompiledRowMapper rowMapper) {
+    compiledRowMappers.put(resultMapId, rowMapper);
+  }
+
+  /**
+   * @return 编译过的 CompiledRowMapper 的映射，只读。KEY：ResultMap 的编号
+   */
+  public Map<String, CompiledRowMapper> getCompiledRowMappers() {
+    return Collections.unmodifiableMap(compiledRowMappers);
+  }
+
+  private String getMapKey(ResultMap resultMap, String columnPrefix) {
+    return resultMap.getId() + ":" + columnPrefix;
+  }
+
+  private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
+    // 直接返回 columnNames ，如果符合如下任一情况
+    if (columnNames == null || columnNames.isEmpty() || prefix == null || prefix.length() == 0) {
+      return columnNames;
+    }
+    // 拼接前缀 prefix ，然后返回
+    final Set<String> prefixed = new HashSet<>();
+    for (String columnName : columnNames) {
+      prefixed.add(prefix + columnName);
+    }
+    return prefixed;
+  }
+
+  /**
+   * ResultMap 的 ResultMapping 对应的字段的位置，和 ResultMap 的 ResultMapping 数组一一对应。
+   * 位置从 1 开始，ResultMapping 没有对应的字段，或者是内嵌的 ResultMap 时，为 0
+   */
+  public class ColumnIndexes {
+
+    private final ResultMap resultMap;
+    private final String columnPrefix;
+    private final int[] constructorColumnIndexes;
+    private final int[] idColumnIndexes;
+    private final int[] propertyColumnIndexes;
+
+    private ColumnIndexes(ResultMap resultMap, String columnPrefix) {
+      this.resultMap = resultMap;
+      this.columnPrefix = columnPrefix;
+      this.constructorColumnIndexes = resolve(resultMap.getConstructorResultMappings(), columnPrefix);
+      this.idColumnIndexes = resolve(resultMap.getIdResultMappings(), columnPrefix);
+      this.propertyColumnIndexes = resolve(resultMap.getPropertyResultMappings(), columnPrefix);
+    }
+
+    private int[] resolve(List<ResultMapping> resultMappings, String columnPrefix) {
+      final int[] columnIndexes = new int[resultMappings.size()];
+      for (int i = 0; i < columnIndexes.length; i++) {
+        final ResultMapping resultMapping = resultMappings.get(i);
+        final String column = resultMapping.getColumn();
+        if (column != null && resultMapping.getNestedResultMapId() == null) {
+          columnIndexes[i] = Math.max(0, getColumnIndex(columnPrefix == null ? column : columnPrefix + column));
+        }
+      }
+      return columnIndexes;
+    }
+
+    /**
+     * 判断是否为指定 ResultMap 和 columnPrefix 的字段的位置
+     */
+    public boolean isFor(ResultMap resultMap, String columnPrefix) {
+      return this.resultMap == resultMap
+          && (this.columnPrefix == null ? columnPrefix == null : this.columnPrefix.equals(columnPrefix));
+    }
+
+    /**
+     * 获得 ResultMapping 数组对应的字段的位置
+     *
+     * @param resultMappings ResultMap 的 constructorResultMappings、idResultMappings 或 propertyResultMappings
+     * @return 字段的位置的数组。其它 ResultMapping 数组，返回 null
+     */
+    public int[] of(List<ResultMapping> resultMappings) {
+      if (resultMappings == resultMap.getPropertyResultMappings()) {
+        return propertyColumnIndexes;
+      } else if (resultMappings == resultMap.getIdResultMappings()) {
+        return idColumnIndexes;
+      } else if (resultMappings == resultMap.getConstructorResultMappings()) {
+        return constructorColumnIndexes;
+      }
+      return null;
+    }
+
+  }
+
+}
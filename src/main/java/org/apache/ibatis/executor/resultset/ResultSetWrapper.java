@@ -19,21 +19,13 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
-import org.apache.ibatis.io.Resources;
+
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
-import org.apache.ibatis.type.ObjectTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
-import org.apache.ibatis.type.TypeHandlerRegistry;
-import org.apache.ibatis.type.UnknownTypeHandler;
 
 /**
  * @author Iwao AVE!
@@ -43,45 +35,17 @@ public class ResultSetWrapper {
    * ResultSet 对象
    */
   private final ResultSet resultSet;
-
-  private final TypeHandlerRegistry typeHandlerRegistry;
-  /**
-   * 字段的名字的数组
-   */
-  private final List<String> columnNames = new ArrayList<>();
-  /**
-   * 字段的 Java Type 的数组
-   */
-  private final List<String> classNames = new ArrayList<>();
-  /**
-   * 字段的 JdbcType 的数组
-   */
-  private final List<JdbcType> jdbcTypes = new ArrayList<>();
-  /**
-   * TypeHandler 的映射
-   *
-   * KEY1：字段的名字
-   * KEY2：Java 属性类型
-   */
-  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
   /**
-   * 有 mapped 的字段的名字的映射
-   *
-   * KEY：{@link #getMapKey(ResultMap, String)}
-   * VALUE：字段的名字的数组
-   */
-  private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
-  /**
-   * 无 mapped 的字段的名字的映射
-   *
-   * 和 {@link #mappedColumnNamesMap} 相反
+   * 字段布局。开启 resultSetLayoutCacheSize 时，字段布局相同的 ResultSet 共享同一个对象
    */
-  private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  private final ResultSetLayout layout;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
-    this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.resultSet = rs;
+    final List<String> columnNames = new ArrayList<>();
+    final List<String> classNames = new ArrayList<>();
+    final List<JdbcType> jdbcTypes = new ArrayList<>();
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
     //getColumnLabel获取的是field的SQL AS的值，而getColumnName获取的是sql语句中field的原始名字
@@ -92,31 +56,103 @@ public class ResultSetWrapper {
       //对应数据类型的类
       classNames.add(metaData.getColumnClassName(i));
     }
+    this.layout = getLayout(configuration, columnNames, classNames, jdbcTypes);
+  }
+
+  /**
+   * 获得字段布局。开启 resultSetLayoutCacheSize 时，优先从 Configuration 的缓存中获得
+   */
+  private static ResultSetLayout getLayout(Configuration configuration, List<String> columnNames,
+      List<String> classNames, List<JdbcType> jdbcTypes) {
+    final Map<String, ResultSetLayout> layouts = configuration.getResultSetLayouts();
+    if (layouts == null) {
+      return new ResultSetLayout(configuration.getTypeHandlerRegistry(), columnNames, classNames, jdbcTypes);
+    }
+    final String signature = ResultSetLayout.signatureOf(columnNames, classNames, jdbcTypes);
+    ResultSetLayout layout = layouts.get(signature);
+    if (layout == null) {
+      layout = layouts.computeIfAbsent(signature,
+          key -> new ResultSetLayout(configuration.getTypeHandlerRegistry(), columnNames, classNames, jdbcTypes));
+      evictLayouts(layouts, configuration.getResultSetLayoutCacheSize());
+    } else {
+      layout.touch();
+    }
+    return layout;
+  }
+
+  /**
+   * 超过缓存的数量时，淘汰最久未使用的字段布局。
+   *
+   * 不加锁，所以并发时只是近似的：可能淘汰较新的字段布局，或者短暂地超过缓存的数量
+   */
+  private static void evictLayouts(Map<String, ResultSetLayout> layouts, int maxSize) {
+    while (layouts.size() > maxSize) {
+      Map.Entry<String, ResultSetLayout> eldest = null;
+      for (Map.Entry<String, ResultSetLayout> entry : layouts.entrySet()) {
+        if (eldest == null || entry.getValue().getLastUsed() < eldest.getValue().getLastUsed()) {
+          eldest = entry;
+        }
+      }
+      if (eldest == null) {
+        return;
+      }
+      layouts.remove(eldest.getKey(), eldest.getValue());
+    }
   }
 
   public ResultSet getResultSet() {
     return resultSet;
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public ResultSetLayout getLayout() {
+    return layout;
+  }
+
   public List<String> getColumnNames() {
-    return this.columnNames;
+    return layout.getColumnNames();
   }
 
   public List<String> getClassNames() {
-    return Collections.unmodifiableList(classNames);
+    return layout.getClassNames();
   }
 
   public List<JdbcType> getJdbcTypes() {
-    return jdbcTypes;
+    return layout.getJdbcTypes();
   }
 
   public JdbcType getJdbcType(String columnName) {
-    for (int i = 0 ; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
-      }
-    }
-    return null;
+    return layout.getJdbcType(columnName);
+  }
+
+  /**
+   * 获得指定字段名的位置
+   *
+   * @return 位置，从 1 开始。不存在时，返回 -1
+   * @since 3.5.0
+   */
+  public int getColumnIndex(String columnName) {
+    return layout.getColumnIndex(columnName);
+  }
+
+  /**
+   * 获得 ResultMap 的 ResultMapping 对应的字段的位置
+   *
+   * @since 3.5.0
+   */
+  public ResultSetLayout.ColumnIndexes getColumnIndexes(ResultMap resultMap, String columnPrefix) {
+    return layout.getColumnIndexes(resultMap, columnPrefix);
+  }
+
+  /**
+   * 获得字段布局的签名。签名相同的 ResultSet ，字段的位置和类型相同
+   *
+   * @since 3.5.0
+   */
+  public String getColumnSignature() {
+    return layout.getSignature();
   }
 
   /**
@@ -131,84 +167,7 @@ public class ResultSetWrapper {
    * @return
    */
   public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
-    TypeHandler<?> handler = null;
-    // <1> 先从缓存的 typeHandlerMap 中，获得指定字段名的指定 JavaType 类型的 TypeHandler 对象
-    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
-    if (columnHandlers == null) {
-      columnHandlers = new HashMap<>();
-      typeHandlerMap.put(columnName, columnHandlers);
-    } else {
-      handler = columnHandlers.get(propertyType);
-    }
-    // <2> 如果获取不到，则进行查找
-    if (handler == null) {
-      // <2> 获得 JdbcType 类型
-      JdbcType jdbcType = getJdbcType(columnName);
-      // <2> 获得 TypeHandler 对象
-      handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
-      // Replicate logic of UnknownTypeHandler#resolveTypeHandler
-      // See issue #59 comment 10
-      // <3> 如果获取不到，则再次进行查找
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        // <3> 使用 classNames 中的类型，进行继续查找 TypeHandler 对象
-        final int index = columnNames.indexOf(columnName);
-        final Class<?> javaType = resolveClass(classNames.get(index));
-        if (javaType != null && jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
-        } else if (javaType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType);
-        } else if (jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
-        }
-      }
-      // <4> 如果获取不到，则使用 ObjectTypeHandler 对象
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        handler = new ObjectTypeHandler();
-      }
-      // <5> 缓存到 typeHandlerMap 中
-      columnHandlers.put(propertyType, handler);
-    }
-    return handler;
-  }
-
-  private Class<?> resolveClass(String className) {
-    try {
-      // #699 className could be null
-      if (className != null) {
-        return Resources.classForName(className);
-      }
-    } catch (ClassNotFoundException e) {
-      // ignore
-    }
-    return null;
-  }
-
-  /**
-   * 初始化有 mapped 和无 mapped的字段的名字数组
-   *
-   * @param resultMap
-   * @param columnPrefix
-   * @throws SQLException
-   */
-  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = new ArrayList<>();
-    List<String> unmappedColumnNames = new ArrayList<>();
-    // <1> 将 columnPrefix 转换成大写，并拼接到 resultMap.mappedColumns 属性上
-    final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
-    final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
-
-    // <2> 遍历 columnNames 数组，根据是否在 mappedColumns 中，分别添加到 mappedColumnNames 和 unmappedColumnNames 中
-    for (String columnName : columnNames) {
-      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
-      if (mappedColumns.contains(upperColumnName)) {
-        mappedColumnNames.add(upperColumnName);
-      } else {
-        unmappedColumnNames.add(columnName);
-      }
-    }
-    // <3> 将 mappedColumnNames 和 unmappedColumnNames 结果，添加到 mappedColumnNamesMap 和 unMappedColumnNamesMap 中
-    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+    return layout.getTypeHandler(propertyType, columnName);
   }
 
   /**
@@ -219,15 +178,7 @@ public class ResultSetWrapper {
    * @throws SQLException
    */
   public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    // 获得对应的 mapped 数组
-    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (mappedColumnNames == null) {
-      // 初始化
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      // 重新获得对应的 mapped 数组
-      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return mappedColumnNames;
+    return layout.getMappedColumnNames(resultMap, columnPrefix);
   }
 
   /**
@@ -238,32 +189,7 @@ public class ResultSetWrapper {
    * @throws SQLException
    */
   public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    // 获得对应的 unMapped 数组
-    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (unMappedColumnNames == null) {
-      // 初始化
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      // 重新获得对应的 unMapped 数组
-      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return unMappedColumnNames;
+    return layout.getUnmappedColumnNames(resultMap, columnPrefix);
   }
 
-  private String getMapKey(ResultMap resultMap, String columnPrefix) {
-    return resultMap.getId() + ":" + columnPrefix;
-  }
-
-  private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
-    // 直接返回 columnNames ，如果符合如下任一情况
-    if (columnNames == null || columnNames.isEmpty() || prefix == null || prefix.length() == 0) {
-      return columnNames;
-    }
-    // 拼接前缀 prefix ，然后返回
-    final Set<String> prefixed = new HashSet<>();
-    for (String columnName : columnNames) {
-      prefixed.add(prefix + columnName);
-    }
-    return prefixed;
-  }
-  
 }
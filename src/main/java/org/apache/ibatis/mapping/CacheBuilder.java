@@ -25,6 +25,7 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.CompactCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
@@ -75,6 +76,10 @@ public class CacheBuilder {
    * 是否阻塞
    */
   private boolean blocking;
+  /**
+   * 是否紧凑存储。{@link CompactCache}
+   */
+  private boolean compact;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -113,6 +118,11 @@ public class CacheBuilder {
     return this;
   }
   
+  public CacheBuilder compact(boolean compact) {
+    this.compact = compact;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -143,6 +153,10 @@ public class CacheBuilder {
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       cache = new LoggingCache(cache);
     }
+    // 包装成 CompactCache 对象，自定义的 Cache 类也适用
+    if (compact) {
+      cache = new CompactCache(cache);
+    }
     return cache;
   }
   /**
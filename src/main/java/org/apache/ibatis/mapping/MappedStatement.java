@@ -130,6 +130,18 @@ public final class MappedStatement {
    * 这个设置仅对多结果集的情况适用，它将列出语句执行后返回的结果集并每个结果集给一个名称，名称是逗号分隔的。
    */
   private String[] resultSets;
+  /**
+   * 分组批处理时，需要先执行的 MappedStatement 的编号的数组
+   */
+  private String[] batchAfter;
+  /**
+   * 结果对象逐个交给自定义的 ResultHandler 或 Cursor 时，是否复用同一个结果对象
+   */
+  private boolean reuseResultObjects;
+  /**
+   * Cursor 在后台线程中预读的行数。为 null 时，不预读
+   */
+  private Integer cursorPrefetchSize;
 
   MappedStatement() {
     // constructor disabled
@@ -249,6 +261,30 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @since 3.5.0
+     */
+    public Builder batchAfter(String batchAfter) {
+      mappedStatement.batchAfter = delimitedStringToArray(batchAfter);
+      return this;
+    }
+
+    /**
+     * @since 3.5.0
+     */
+    public Builder reuseResultObjects(boolean reuseResultObjects) {
+      mappedStatement.reuseResultObjects = reuseResultObjects;
+      return this;
+    }
+
+    /**
+     * @since 3.5.0
+     */
+    public Builder cursorPrefetchSize(Integer cursorPrefetchSize) {
+      mappedStatement.cursorPrefetchSize = cursorPrefetchSize;
+      return this;
+    }
+
     /** @deprecated Use {@link #resultSets} */
     @Deprecated
     public Builder resulSets(String resultSet) {
@@ -358,6 +394,27 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public String[] getBatchAfter() {
+    return batchAfter;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public boolean isReuseResultObjects() {
+    return reuseResultObjects;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getCursorPrefetchSize() {
+    return cursorPrefetchSize;
+  }
+
   /** @deprecated Use {@link #getResultSets()} */
   @Deprecated
   public String[] getResulSets() {
@@ -45,6 +45,7 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private Integer batchSize;
 
   ResultMapping() {
   }
@@ -131,6 +132,11 @@ public class ResultMapping {
       resultMapping.lazy = lazy;
       return this;
     }
+
+    public Builder batchSize(Integer batchSize) {
+      resultMapping.batchSize = batchSize;
+      return this;
+    }
     
     public ResultMapping build() {
       // lock down collections
@@ -167,6 +173,23 @@ public class ResultMapping {
           throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
         }
       }
+      // 批量执行内嵌查询时，通过 foreignColumn 将结果分配给对应的父对象
+      if (resultMapping.batchSize != null) {
+        if (resultMapping.nestedQueryId == null) {
+          throw new IllegalStateException("Mapping with batchSize is missing select attribute for property " + resultMapping.property);
+        }
+        if (resultMapping.batchSize <= 0) {
+          throw new IllegalStateException("The batchSize should be greater than zero in property " + resultMapping.property);
+        }
+        int numColumns = resultMapping.composites.isEmpty() ? resultMapping.column.split(",").length : resultMapping.composites.size();
+        int numForeignColumns = 0;
+        if (resultMapping.foreignColumn != null) {
+          numForeignColumns = resultMapping.foreignColumn.split(",").length;
+        }
+        if (numColumns != numForeignColumns) {
+          throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
+        }
+      }
     }
     
     private void resolveTypeHandler() {
@@ -250,6 +273,20 @@ public class ResultMapping {
   public void setLazy(boolean lazy) {
     this.lazy = lazy;
   }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBatchSize(Integer batchSize) {
+    this.batchSize = batchSize;
+  }
   
   @Override
   public boolean equals(Object o) {
@@ -298,6 +335,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", batchSize=").append(batchSize);
     sb.append('}');
     return sb.toString();
   }
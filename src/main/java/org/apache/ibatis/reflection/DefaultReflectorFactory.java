@@ -18,6 +18,9 @@ package org.apache.ibatis.reflection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.apache.ibatis.reflection.invoker.DefaultInvokerFactory;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
+
 /**
  * 默认的 ReflectorFactory 实现类
  */
@@ -33,8 +36,20 @@ public class DefaultReflectorFactory implements ReflectorFactory {
    * VALUE：Reflector 对象
    */
   private final ConcurrentMap<Class<?>, Reflector> reflectorMap = new ConcurrentHashMap<>();
+  /**
+   * Reflector 使用的 Invoker 工厂
+   */
+  private final InvokerFactory invokerFactory;
 
   public DefaultReflectorFactory() {
+    this(new DefaultInvokerFactory());
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public DefaultReflectorFactory(InvokerFactory invokerFactory) {
+    this.invokerFactory = invokerFactory;
   }
 
   @Override
@@ -52,10 +67,10 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     // 开启缓存，则从 reflectorMap 中获取
     if (classCacheEnabled) {
             // synchronized (type) removed see issue #461
-      return reflectorMap.computeIfAbsent(type, Reflector::new);// 不存在，则进行创建
+      return reflectorMap.computeIfAbsent(type, clazz -> new Reflector(clazz, invokerFactory));// 不存在，则进行创建
     } else {
       // 关闭缓存，则创建 Reflector 对象
-      return new Reflector(type);
+      return new Reflector(type, invokerFactory);
     }
   }
 
@@ -0,0 +1,58 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基本类型的工具类
+ *
+ * @since 3.5.0
+ */
+public final class PrimitiveUtil {
+
+  /**
+   * 基本类型的默认值的映射
+   */
+  private static final Map<Class<?>, Object> DEFAULT_VALUES = new HashMap<>();
+
+  static {
+    DEFAULT_VALUES.put(boolean.class, Boolean.FALSE);
+    DEFAULT_VALUES.put(char.class, '\u0000');
+    DEFAULT_VALUES.put(byte.class, (byte) 0);
+    DEFAULT_VALUES.put(short.class, (short) 0);
+    DEFAULT_VALUES.put(int.class, 0);
+    DEFAULT_VALUES.put(long.class, 0L);
+    DEFAULT_VALUES.put(float.class, 0F);
+    DEFAULT_VALUES.put(double.class, 0D);
+  }
+
+  /**
+   * 获得类型的默认值，即未初始化的字段的值
+   *
+   * @param type 类型
+   * @return 基本类型时，返回对应的包装类型的默认值，否则返回 null
+   */
+  public static Object defaultValue(Class<?> type) {
+    return DEFAULT_VALUES.get(type);
+  }
+
+  private PrimitiveUtil() {
+    super();
+  }
+
+}
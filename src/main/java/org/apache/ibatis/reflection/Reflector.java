@@ -32,10 +32,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.DefaultInvokerFactory;
 import org.apache.ibatis.reflection.invoker.Invoker;
-import org.apache.ibatis.reflection.invoker.MethodInvoker;
-import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
 import org.apache.ibatis.reflection.property.PropertyNamer;
 
 /**
@@ -93,10 +92,22 @@ public class Reflector {
      * 不区分大小写的属性集合
      */
   private Map<String, String> caseInsensitivePropertyMap = new HashMap<>();
+    /**
+     * Invoker 工厂
+     */
+  private final InvokerFactory invokerFactory;
 
   public Reflector(Class<?> clazz) {
+    this(clazz, new DefaultInvokerFactory());
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Reflector(Class<?> clazz, InvokerFactory invokerFactory) {
     // 设置对应的类
     type = clazz;
+    this.invokerFactory = invokerFactory;
     // <1> 初始化 defaultConstructor
     addDefaultConstructor(clazz);
     // <2> // 初始化 getMethods 和 getTypes ，通过遍历 getting 方法
@@ -223,7 +234,7 @@ public class Reflector {
       // <2.1> 判断是合理的属性名
     if (isValidPropertyName(name)) {
         // <2.2> 添加到 getMethods 中
-      getMethods.put(name, new MethodInvoker(method));
+      getMethods.put(name, invokerFactory.newGetterInvoker(method));
         // <2.3> 添加到 getTypes 中
       Type returnType = TypeParameterResolver.resolveReturnType(method, type);
       getTypes.put(name, typeToClass(returnType));
@@ -320,7 +331,7 @@ public class Reflector {
   private void addSetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
         // 添加到 setMethods 中
-      setMethods.put(name, new MethodInvoker(method));
+      setMethods.put(name, invokerFactory.newSetterInvoker(method));
         // 添加到 setTypes 中
       Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
       setTypes.put(name, typeToClass(paramTypes[0]));
@@ -397,7 +408,7 @@ public class Reflector {
       // 判断是合理的属性
     if (isValidPropertyName(field.getName())) {
         // 添加到 setMethods 中
-      setMethods.put(field.getName(), new SetFieldInvoker(field));
+      setMethods.put(field.getName(), invokerFactory.newSetFieldInvoker(field));
         // 添加到 setTypes 中
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       setTypes.put(field.getName(), typeToClass(fieldType));
@@ -408,7 +419,7 @@ public class Reflector {
       // 判断是合理的属性
     if (isValidPropertyName(field.getName())) {
         // 添加到 getMethods 中
-      getMethods.put(field.getName(), new GetFieldInvoker(field));
+      getMethods.put(field.getName(), invokerFactory.newGetFieldInvoker(field));
         // 添加到 getMethods 中
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       getTypes.put(field.getName(), typeToClass(fieldType));
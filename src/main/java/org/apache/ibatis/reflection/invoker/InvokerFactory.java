@@ -0,0 +1,50 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Creates the {@link Invoker}s of the properties of a {@link org.apache.ibatis.reflection.Reflector}.
+ *
+ * Invoker 工厂接口，决定 Reflector 访问属性的方式
+ *
+ * @since 3.5.0
+ */
+public interface InvokerFactory {
+
+  /**
+   * 创建 getting 方法的 Invoker 对象
+   */
+  Invoker newGetterInvoker(Method method);
+
+  /**
+   * 创建 setting 方法的 Invoker 对象
+   */
+  Invoker newSetterInvoker(Method method);
+
+  /**
+   * 创建读取 Field 的 Invoker 对象
+   */
+  Invoker newGetFieldInvoker(Field field);
+
+  /**
+   * 创建设置 Field 的 Invoker 对象
+   */
+  Invoker newSetFieldInvoker(Field field);
+
+}
@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.Function;
+
+/**
+ * 通过 {@link java.lang.invoke.LambdaMetafactory} 生成的 Function 对象，调用 getting 方法
+ *
+ * @since 3.5.0
+ */
+public class LambdaGetInvoker implements Invoker {
+
+  private final Function<Object, Object> getter;
+  /**
+   * 返回类型
+   */
+  private final Class<?> type;
+
+  public LambdaGetInvoker(Function<Object, Object> getter, Class<?> type) {
+    this.getter = getter;
+    this.type = type;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    try {
+      return getter.apply(target);
+    } catch (Throwable t) {
+      // 和 Method#invoke(Object, Object...) 方法一致，包装成 InvocationTargetException
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+}
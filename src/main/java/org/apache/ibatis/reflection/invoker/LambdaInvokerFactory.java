@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * An {@link InvokerFactory} whose invokers the JIT compiler can inline: public getters and setters of public
+ * classes are called through functional objects generated by {@link LambdaMetafactory}. Other methods and fields
+ * are accessed through reflection, as a {@link java.lang.invoke.MethodHandle} that is not a constant is not faster than
+ * {@link java.lang.reflect.Field#get(Object)}, and {@code VarHandle} requires Java 9.
+ *
+ * 基于 LambdaMetafactory 的 InvokerFactory 实现类，避免每次调用方法时的访问检查和参数数组的处理
+ *
+ * @since 3.5.0
+ */
+public class LambdaInvokerFactory extends DefaultInvokerFactory {
+
+  private static final MethodType FUNCTION_TYPE = MethodType.methodType(Function.class);
+  private static final MethodType BI_CONSUMER_TYPE = MethodType.methodType(BiConsumer.class);
+  private static final MethodType APPLY_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType ACCEPT_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Invoker newGetterInvoker(Method method) {
+    if (isLambdaAccessible(method)) {
+      try {
+        final Class<?> returnType = method.getReturnType();
+        final CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply", FUNCTION_TYPE, APPLY_TYPE, lookup.unreflect(method),
+            MethodType.methodType(wrap(returnType), method.getDeclaringClass()));
+        return new LambdaGetInvoker((Function<Object, Object>) callSite.getTarget().invoke(), returnType);
+      } catch (Throwable t) {
+        // 无法生成时，使用反射
+      }
+    }
+    return super.newGetterInvoker(method);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Invoker newSetterInvoker(Method method) {
+    if (isLambdaAccessible(method)) {
+      try {
+        final Class<?> parameterType = method.getParameterTypes()[0];
+        // char 没有对应的 PrimitiveSetter 接口，使用 BiConsumer
+        if (parameterType.isPrimitive() && parameterType != char.class) {
+          return newPrimitiveSetterInvoker(method, parameterType);
+        }
+        final CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept", BI_CONSUMER_TYPE, ACCEPT_TYPE, lookup.unreflect(method),
+            MethodType.methodType(void.class, method.getDeclaringClass(), wrap(parameterType)));
+        return new LambdaSetInvoker((BiConsumer<Object, Object>) callSite.getTarget().invoke(), parameterType);
+      } catch (Throwable t) {
+        // 无法生成时，使用反射
+      }
+    }
+    return super.newSetterInvoker(method);
+  }
+
+  /**
+   * 创建基本类型参数的 setting 方法的 Invoker 对象，生成参数类型对应的 {@link PrimitiveSetter} 接口的实现
+   */
+  private Invoker newPrimitiveSetterInvoker(Method method, Class<?> parameterType) throws Throwable {
+    final Class<? extends PrimitiveSetter> setterType;
+    final String setterName;
+    if (parameterType == int.class) {
+      setterType = PrimitiveSetter.OfInt.class;
+      setterName = "setInt";
+    } else if (parameterType == long.class) {
+      setterType = PrimitiveSetter.OfLong.class;
+      setterName = "setLong";
+    } else if (parameterType == double.class) {
+      setterType = PrimitiveSetter.OfDouble.class;
+      setterName = "setDouble";
+    } else if (parameterType == float.class) {
+      setterType = PrimitiveSetter.OfFloat.class;
+      setterName = "setFloat";
+    } else if (parameterType == short.class) {
+      setterType = PrimitiveSetter.OfShort.class;
+      setterName = "setShort";
+    } else if (parameterType == byte.class) {
+      setterType = PrimitiveSetter.OfByte.class;
+      setterName = "setByte";
+    } else {
+      setterType = PrimitiveSetter.OfBoolean.class;
+      setterName = "setBoolean";
+    }
+    final CallSite callSite = LambdaMetafactory.metafactory(lookup, setterName, MethodType.methodType(setterType),
+        MethodType.methodType(void.class, Object.class, parameterType), lookup.unreflect(method),
+        MethodType.methodType(void.class, method.getDeclaringClass(), parameterType));
+    return new LambdaPrimitiveSetInvoker((PrimitiveSetter) callSite.getTarget().invoke(), parameterType);
+  }
+
+  /**
+   * 判断是否可以生成 Lambda 。生成的类只能访问 public 的方法，以及 MyBatis 的 ClassLoader 可见的类
+   */
+  private boolean isLambdaAccessible(Method method) {
+    if (!Modifier.isPublic(method.getModifiers()) || method.isBridge() || Modifier.isStatic(method.getModifiers())) {
+      return false;
+    }
+    for (Class<?> type = method.getDeclaringClass(); type != null; type = type.getEnclosingClass()) {
+      if (!Modifier.isPublic(type.getModifiers())) {
+        return false;
+      }
+    }
+    if (!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())) {
+      return false;
+    }
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      if (!isVisible(parameterType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isVisible(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    try {
+      return Class.forName(type.getName(), false, LambdaInvokerFactory.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  private static Class<?> wrap(Class<?> type) {
+    return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+  }
+
+}
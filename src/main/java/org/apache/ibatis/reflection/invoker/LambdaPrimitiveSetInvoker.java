@@ -0,0 +1,151 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * 通过 {@link java.lang.invoke.LambdaMetafactory} 生成的 {@link PrimitiveSetter} 对象，调用基本类型参数的 setting 方法。
+ * 设置基本类型的值时，不需要装箱
+ *
+ * @since 3.5.0
+ */
+public class LambdaPrimitiveSetInvoker implements Invoker, PrimitiveSetter.OfInt, PrimitiveSetter.OfLong, PrimitiveSetter.OfDouble,
+    PrimitiveSetter.OfFloat, PrimitiveSetter.OfShort, PrimitiveSetter.OfByte, PrimitiveSetter.OfBoolean {
+
+  /**
+   * 生成的 PrimitiveSetter 对象，实现参数类型对应的接口
+   */
+  private final PrimitiveSetter setter;
+  /**
+   * 参数类型
+   */
+  private final Class<?> type;
+
+  public LambdaPrimitiveSetInvoker(PrimitiveSetter setter, Class<?> type) {
+    this.setter = setter;
+    this.type = type;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    final Object value = args[0];
+    // 和 Method#invoke(Object, Object...) 方法一致，参数类型不匹配时，抛出 IllegalArgumentException ，而不是当作 setting 方法抛出的异常
+    if (!isAssignable(value)) {
+      throw new IllegalArgumentException("argument type mismatch");
+    }
+    try {
+      if (type == boolean.class) {
+        setBoolean(target, (Boolean) value);
+      } else {
+        // 按基本类型的拓宽转换，例如 Integer 可以设置到 long 参数
+        final Number number = value instanceof Character ? Integer.valueOf((Character) value) : (Number) value;
+        if (type == int.class) {
+          setInt(target, number.intValue());
+        } else if (type == long.class) {
+          setLong(target, number.longValue());
+        } else if (type == double.class) {
+          setDouble(target, number.doubleValue());
+        } else if (type == float.class) {
+          setFloat(target, number.floatValue());
+        } else if (type == short.class) {
+          setShort(target, number.shortValue());
+        } else {
+          setByte(target, number.byteValue());
+        }
+      }
+    } catch (Throwable t) {
+      // 和 Method#invoke(Object, Object...) 方法一致，包装成 InvocationTargetException
+      throw new InvocationTargetException(t);
+    }
+    return null;
+  }
+
+  /**
+   * 判断值是否可以拆箱，并通过基本类型的拓宽转换，设置到参数类型。和 Method#invoke(Object, Object...) 方法的规则一致
+   */
+  private boolean isAssignable(Object value) {
+    if (type == boolean.class) {
+      return value instanceof Boolean;
+    }
+    if (value instanceof Character) {
+      // char 只能拓宽为 int 及更宽的类型
+      return rank(type) >= rank(int.class);
+    }
+    final int rank = value == null ? 0 : rank(value.getClass());
+    return rank > 0 && rank <= rank(type);
+  }
+
+  /**
+   * 获得数值类型的宽度，不是基本数值类型及其包装类型时，返回 0
+   */
+  private static int rank(Class<?> type) {
+    if (type == byte.class || type == Byte.class) {
+      return 1;
+    } else if (type == short.class || type == Short.class) {
+      return 2;
+    } else if (type == int.class || type == Integer.class) {
+      return 3;
+    } else if (type == long.class || type == Long.class) {
+      return 4;
+    } else if (type == float.class || type == Float.class) {
+      return 5;
+    } else if (type == double.class || type == Double.class) {
+      return 6;
+    }
+    return 0;
+  }
+
+  @Override
+  public void setInt(Object target, int value) throws IllegalAccessException, InvocationTargetException {
+    ((PrimitiveSetter.OfInt) setter).setInt(target, value);
+  }
+
+  @Override
+  public void setLong(Object target, long value) throws IllegalAccessException, InvocationTargetException {
+    ((PrimitiveSetter.OfLong) setter).setLong(target, value);
+  }
+
+  @Override
+  public void setDouble(Object target, double value) throws IllegalAccessException, InvocationTargetException {
+    ((PrimitiveSetter.OfDouble) setter).setDouble(target, value);
+  }
+
+  @Override
+  public void setFloat(Object target, float value) throws IllegalAccessException, InvocationTargetException {
+    ((PrimitiveSetter.OfFloat) setter).setFloat(target, value);
+  }
+
+  @Override
+  public void setShort(Object target, short value) throws IllegalAccessException, InvocationTargetException {
+    ((PrimitiveSetter.OfShort) setter).setShort(target, value);
+  }
+
+  @Override
+  public void setByte(Object target, byte value) throws IllegalAccessException, InvocationTargetException {
+    ((PrimitiveSetter.OfByte) setter).setByte(target, value);
+  }
+
+  @Override
+  public void setBoolean(Object target, boolean value) throws IllegalAccessException, InvocationTargetException {
+    ((PrimitiveSetter.OfBoolean) setter).setBoolean(target, value);
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+}
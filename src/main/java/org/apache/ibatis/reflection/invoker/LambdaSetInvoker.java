@@ -0,0 +1,65 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.BiConsumer;
+
+/**
+ * 通过 {@link java.lang.invoke.LambdaMetafactory} 生成的 BiConsumer 对象，调用 setting 方法
+ *
+ * @since 3.5.0
+ */
+public class LambdaSetInvoker implements Invoker {
+
+  private final BiConsumer<Object, Object> setter;
+  /**
+   * 参数类型
+   */
+  private final Class<?> type;
+  /**
+   * 参数类型。基本类型时，为其包装类型
+   */
+  private final Class<?> boxedType;
+
+  public LambdaSetInvoker(BiConsumer<Object, Object> setter, Class<?> type) {
+    this.setter = setter;
+    this.type = type;
+    this.boxedType = type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    // 和 Method#invoke(Object, Object...) 方法一致，参数类型不匹配时，抛出 IllegalArgumentException ，而不是当作 setting 方法抛出的异常
+    final Object value = args[0];
+    if (value == null ? type.isPrimitive() : !boxedType.isInstance(value)) {
+      throw new IllegalArgumentException("argument type mismatch");
+    }
+    try {
+      setter.accept(target, args[0]);
+    } catch (Throwable t) {
+      // 和 Method#invoke(Object, Object...) 方法一致，包装成 InvocationTargetException
+      throw new InvocationTargetException(t);
+    }
+    return null;
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * An {@link Invoker} that can also set a primitive property without boxing the value.
+ * The methods may only be called for the primitive type returned by {@link Invoker#getType()}.
+ *
+ * 基本类型的属性的设置器。由 {@link SetFieldInvoker} 和 {@link LambdaPrimitiveSetInvoker} 实现
+ *
+ * @since 3.5.0
+ */
+public interface PrimitiveSetter {
+
+  interface OfInt extends PrimitiveSetter {
+    void setInt(Object target, int value) throws IllegalAccessException, InvocationTargetException;
+  }
+
+  interface OfLong extends PrimitiveSetter {
+    void setLong(Object target, long value) throws IllegalAccessException, InvocationTargetException;
+  }
+
+  interface OfDouble extends PrimitiveSetter {
+    void setDouble(Object target, double value) throws IllegalAccessException, InvocationTargetException;
+  }
+
+  interface OfFloat extends PrimitiveSetter {
+    void setFloat(Object target, float value) throws IllegalAccessException, InvocationTargetException;
+  }
+
+  interface OfShort extends PrimitiveSetter {
+    void setShort(Object target, short value) throws IllegalAccessException, InvocationTargetException;
+  }
+
+  interface OfByte extends PrimitiveSetter {
+    void setByte(Object target, byte value) throws IllegalAccessException, InvocationTargetException;
+  }
+
+  interface OfBoolean extends PrimitiveSetter {
+    void setBoolean(Object target, boolean value) throws IllegalAccessException, InvocationTargetException;
+  }
+
+}
@@ -21,7 +21,8 @@ import java.lang.reflect.InvocationTargetException;
 /**
  * @author Clinton Begin
  */
-public class SetFieldInvoker implements Invoker {
+public class SetFieldInvoker implements Invoker, PrimitiveSetter.OfInt, PrimitiveSetter.OfLong, PrimitiveSetter.OfDouble,
+    PrimitiveSetter.OfFloat, PrimitiveSetter.OfShort, PrimitiveSetter.OfByte, PrimitiveSetter.OfBoolean {
   /**
    * Field 对象
    */
@@ -53,4 +54,39 @@ public class SetFieldInvoker implements Invoker {
   public Class<?> getType() {
     return field.getType();
   }
+
+  @Override
+  public void setInt(Object target, int value) throws IllegalAccessException {
+    field.setInt(target, value);
+  }
+
+  @Override
+  public void setLong(Object target, long value) throws IllegalAccessException {
+    field.setLong(target, value);
+  }
+
+  @Override
+  public void setDouble(Object target, double value) throws IllegalAccessException {
+    field.setDouble(target, value);
+  }
+
+  @Override
+  public void setFloat(Object target, float value) throws IllegalAccessException {
+    field.setFloat(target, value);
+  }
+
+  @Override
+  public void setShort(Object target, short value) throws IllegalAccessException {
+    field.setShort(target, value);
+  }
+
+  @Override
+  public void setByte(Object target, byte value) throws IllegalAccessException {
+    field.setByte(target, value);
+  }
+
+  @Override
+  public void setBoolean(Object target, boolean value) throws IllegalAccessException {
+    field.setBoolean(target, value);
+  }
 }
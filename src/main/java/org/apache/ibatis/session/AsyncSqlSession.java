@@ -0,0 +1,179 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * An asynchronous facade over a {@link SqlSessionFactory}.
+ *
+ * 异步的 SqlSession 门面。每次调用在 {@link Configuration#getAsyncExecutor()} 的线程中，打开一个新的 SqlSession 执行，
+ * 成功时提交，并关闭 SqlSession ，最后用结果完成返回的 CompletableFuture 。所以本类是线程安全的，但多次调用之间不共享事务和一级缓存。
+ *
+ * 通过 {@link #getMapper(Class)} 获得的 Mapper ，返回类型为 CompletableFuture 的方法异步执行，其它方法同步执行。
+ * 返回类型为 Cursor 的方法不支持，因为 SqlSession 在方法返回前已关闭，请使用 {@link #selectCursor(String, Object)} 。
+ *
+ * @since 3.5.0
+ */
+public class AsyncSqlSession {
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final Executor executor;
+
+  public AsyncSqlSession(SqlSessionFactory sqlSessionFactory) {
+    this(sqlSessionFactory, sqlSessionFactory.getConfiguration().getAsyncExecutorOrDefault());
+  }
+
+  public AsyncSqlSession(SqlSessionFactory sqlSessionFactory, Executor executor) {
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.executor = executor;
+  }
+
+  /**
+   * 在一个新的 SqlSession 中异步执行，成功时提交
+   */
+  public <T> CompletableFuture<T> execute(Function<SqlSession, T> action) {
+    return CompletableFuture.supplyAsync(() -> executeInSession(action), executor);
+  }
+
+  public <T> CompletableFuture<T> selectOne(String statement) {
+    return execute(sqlSession -> sqlSession.selectOne(statement));
+  }
+
+  public <T> CompletableFuture<T> selectOne(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.selectOne(statement, parameter));
+  }
+
+  public <E> CompletableFuture<List<E>> selectList(String statement) {
+    return execute(sqlSession -> sqlSession.selectList(statement));
+  }
+
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.selectList(statement, parameter));
+  }
+
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds) {
+    return execute(sqlSession -> sqlSession.selectList(statement, parameter, rowBounds));
+  }
+
+  public <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey) {
+    return execute(sqlSession -> sqlSession.selectMap(statement, parameter, mapKey));
+  }
+
+  /**
+   * 获得基于 Cursor 的发布者。订阅后按需读取，读取在本对象的线程池中执行
+   */
+  public <T> CursorPublisher<T> selectCursor(String statement) {
+    return selectCursor(statement, null);
+  }
+
+  public <T> CursorPublisher<T> selectCursor(String statement, Object parameter) {
+    return new CursorPublisher<>(sqlSessionFactory, executor, statement, parameter);
+  }
+
+  public CompletableFuture<Integer> insert(String statement) {
+    return execute(sqlSession -> sqlSession.insert(statement));
+  }
+
+  public CompletableFuture<Integer> insert(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.insert(statement, parameter));
+  }
+
+  public CompletableFuture<Integer> update(String statement) {
+    return execute(sqlSession -> sqlSession.update(statement));
+  }
+
+  public CompletableFuture<Integer> update(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.update(statement, parameter));
+  }
+
+  public CompletableFuture<Integer> delete(String statement) {
+    return execute(sqlSession -> sqlSession.delete(statement));
+  }
+
+  public CompletableFuture<Integer> delete(String statement, Object parameter) {
+    return execute(sqlSession -> sqlSession.delete(statement, parameter));
+  }
+
+  /**
+   * 获得 Mapper 的代理对象
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getMapper(Class<T> type) {
+    // 提前校验 Mapper 已注册
+    if (!sqlSessionFactory.getConfiguration().hasMapper(type)) {
+      throw new BindingException("Type " + type + " is not known to the MapperRegistry.");
+    }
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+      if (Object.class.equals(method.getDeclaringClass())) {
+        switch (method.getName()) {
+          case "equals":
+            return proxy == args[0];
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          default:
+            return "AsyncMapper[" + type.getName() + "]";
+        }
+      }
+      if (CompletableFuture.class.equals(method.getReturnType())) {
+        // MapperMethod 在 SqlSession 中同步执行，并返回已完成的 CompletableFuture
+        return execute(sqlSession -> ((CompletableFuture<?>) invokeMapper(sqlSession, type, method, args)).join());
+      }
+      // 同步执行时，SqlSession 在方法返回前关闭，返回的 Cursor 已不可读取
+      if (Cursor.class.isAssignableFrom(method.getReturnType())) {
+        throw new BindingException("Mapper method '" + type.getName() + "." + method.getName()
+            + "' returns a Cursor, which is closed with the session of an AsyncSqlSession call."
+            + " Use AsyncSqlSession.selectCursor, which returns a CursorPublisher, instead.");
+      }
+      return executeInSession(sqlSession -> invokeMapper(sqlSession, type, method, args));
+    });
+  }
+
+  private <T> T executeInSession(Function<SqlSession, T> action) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      T result = action.apply(sqlSession);
+      sqlSession.commit();
+      return result;
+    }
+  }
+
+  private static Object invokeMapper(SqlSession sqlSession, Class<?> type, Method method, Object[] args) {
+    try {
+      return method.invoke(sqlSession.getMapper(type), args);
+    } catch (Throwable t) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new PersistenceException("Error invoking mapper method " + method + ". Cause: " + cause, cause);
+    }
+  }
+
+}
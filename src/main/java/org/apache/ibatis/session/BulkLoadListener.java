@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+
+import org.apache.ibatis.executor.BatchResult;
+
+/**
+ * Receives the progress and the failures of {@link SqlSession#bulkLoad(String, java.util.Iterator, BulkLoadListener)}, chunk by chunk.
+ *
+ * 流式批量加载的监听器。在执行批处理的工作线程中回调。
+ *
+ * @since 3.5.0
+ */
+public interface BulkLoadListener {
+
+  /**
+   * 分块提交成功时回调
+   *
+   * @param chunkIndex 分块的序号，从 0 开始
+   * @param results 分块的 BatchResult 数组
+   * @param loadedRows 已提交的参数对象的总数
+   */
+  default void chunkCompleted(int chunkIndex, List<BatchResult> results, long loadedRows) {
+  }
+
+  /**
+   * 分块失败并回滚时回调
+   *
+   * @param chunkIndex 分块的序号，从 0 开始
+   * @param parameters 分块的参数对象数组
+   * @param cause 异常
+   * @return 是否继续加载后续的分块。默认为 false ，停止加载并抛出异常
+   */
+  default boolean chunkFailed(int chunkIndex, List<Object> parameters, Throwable cause) {
+    return false;
+  }
+
+}
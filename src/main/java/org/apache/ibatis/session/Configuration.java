@@ -19,11 +19,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -31,6 +34,7 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EntityCache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
@@ -49,6 +53,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ResultSetLayout;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -114,6 +119,82 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  /**
+   * 是否开启实体缓存
+   */
+  protected boolean entityCacheEnabled;
+  /**
+   * 每个 ResultMap 的实体缓存的容量
+   */
+  protected Integer entityCacheSize;
+  /**
+   * BATCH 执行器是否按 SQL 分组批处理
+   */
+  protected boolean batchStatementGrouping;
+  /**
+   * BATCH 执行器自动刷入的批处理语句数量的阈值
+   */
+  protected Integer batchAutoFlushCount;
+  /**
+   * BATCH 执行器自动刷入的参数估算字节数的阈值
+   */
+  protected Integer batchAutoFlushBytes;
+  /**
+   * BATCH 执行器将单行 INSERT 改写为多行 INSERT 时，每条 SQL 最多的行数。为 null 时，不改写
+   */
+  protected Integer batchInsertRewriteRows;
+  /**
+   * BATCH 执行器将单行 INSERT 改写为多行 INSERT 时，每条 SQL 最多的参数数量
+   */
+  protected Integer batchInsertRewriteParameters;
+  /**
+   * {@link org.apache.ibatis.session.SqlSession#bulkInsert(String, Iterable)} 同时使用的连接数。为 null 时，使用 CPU 核数
+   */
+  protected Integer bulkInsertParallelism;
+  /**
+   * {@link org.apache.ibatis.session.SqlSession#bulkLoad(String, java.util.Iterator, BulkLoadListener)} 每个分块的参数对象数量
+   */
+  protected int bulkLoadChunkSize = 1000;
+  /**
+   * {@link org.apache.ibatis.session.SqlSession#bulkLoad(String, java.util.Iterator, BulkLoadListener)} 队列中最多的分块数量
+   */
+  protected int bulkLoadQueueCapacity = 2;
+  /**
+   * {@link AsyncSqlSession} 等异步执行的线程池。为 null 时，使用共享的默认线程池，见 {@link #getAsyncExecutorOrDefault()}
+   */
+  protected java.util.concurrent.Executor asyncExecutor;
+  /**
+   * 内嵌查询的并发执行范围
+   */
+  protected NestedQueryConcurrency nestedQueryConcurrency = NestedQueryConcurrency.NONE;
+  /**
+   * 同时在工作线程中执行的内嵌查询的最大数量，即内嵌查询额外占用的连接的最大数量
+   */
+  protected int nestedQueryConcurrencyLimit = 4;
+  /**
+   * 工作线程中执行内嵌查询的许可，数量为 nestedQueryConcurrencyLimit
+   */
+  protected Semaphore nestedQueryPermits = new Semaphore(nestedQueryConcurrencyLimit);
+  /**
+   * ReuseExecutor 缓存的 Statement 的最大数量。为 null 时，不限制
+   */
+  protected Integer reuseStatementCacheSize;
+  /**
+   * 是否使用字段的位置，读取明确映射和自动映射的字段的值。关闭时，使用字段名读取
+   */
+  protected boolean columnIndexMappingEnabled = true;
+  /**
+   * 是否使用编译后的行映射器，映射简单的 ResultMap
+   */
+  protected boolean compiledRowMappingEnabled;
+  /**
+   * 跨执行缓存的字段布局的最大数量。为 null 时，不缓存
+   */
+  protected Integer resultSetLayoutCacheSize;
+  /**
+   * resultType="map" 时，每行的结果对象使用的 Map 实现
+   */
+  protected RowMapType rowMapType = RowMapType.HASH_MAP;
 
   protected String logPrefix;
   protected Class <? extends Log> logImpl;
@@ -224,6 +305,18 @@ public class Configuration {
    */
   protected final Map<String, String> cacheRefMap = new HashMap<>();
 
+  /**
+   * 实体缓存
+   */
+  protected final EntityCache entityCache = new EntityCache(this);
+
+  /**
+   * 字段布局的缓存，近似地按照访问顺序淘汰。为 null 时，不缓存
+   *
+   * KEY：字段布局的签名
+   */
+  protected Map<String, ResultSetLayout> resultSetLayouts;
+
   public Configuration(Environment environment) {
     this();
     this.environment = environment;
@@ -320,6 +413,303 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public boolean isEntityCacheEnabled() {
+    return entityCacheEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setEntityCacheEnabled(boolean entityCacheEnabled) {
+    this.entityCacheEnabled = entityCacheEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getEntityCacheSize() {
+    return entityCacheSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setEntityCacheSize(Integer entityCacheSize) {
+    this.entityCacheSize = entityCacheSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public EntityCache getEntityCache() {
+    return entityCache;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public boolean isBatchStatementGrouping() {
+    return batchStatementGrouping;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBatchStatementGrouping(boolean batchStatementGrouping) {
+    this.batchStatementGrouping = batchStatementGrouping;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getBatchAutoFlushCount() {
+    return batchAutoFlushCount;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBatchAutoFlushCount(Integer batchAutoFlushCount) {
+    this.batchAutoFlushCount = batchAutoFlushCount;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getBatchAutoFlushBytes() {
+    return batchAutoFlushBytes;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBatchAutoFlushBytes(Integer batchAutoFlushBytes) {
+    this.batchAutoFlushBytes = batchAutoFlushBytes;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getBatchInsertRewriteRows() {
+    return batchInsertRewriteRows;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBatchInsertRewriteRows(Integer batchInsertRewriteRows) {
+    this.batchInsertRewriteRows = batchInsertRewriteRows;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getBatchInsertRewriteParameters() {
+    return batchInsertRewriteParameters;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBatchInsertRewriteParameters(Integer batchInsertRewriteParameters) {
+    this.batchInsertRewriteParameters = batchInsertRewriteParameters;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getBulkInsertParallelism() {
+    return bulkInsertParallelism;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBulkInsertParallelism(Integer bulkInsertParallelism) {
+    this.bulkInsertParallelism = bulkInsertParallelism;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public int getBulkLoadChunkSize() {
+    return bulkLoadChunkSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBulkLoadChunkSize(int bulkLoadChunkSize) {
+    this.bulkLoadChunkSize = bulkLoadChunkSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public int getBulkLoadQueueCapacity() {
+    return bulkLoadQueueCapacity;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBulkLoadQueueCapacity(int bulkLoadQueueCapacity) {
+    this.bulkLoadQueueCapacity = bulkLoadQueueCapacity;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public java.util.concurrent.Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  /**
+   * 获得异步执行的线程池。未设置 asyncExecutor 时，返回所有 Configuration 共享的默认线程池，其线程为守护线程
+   *
+   * @since 3.5.0
+   */
+  public java.util.concurrent.Executor getAsyncExecutorOrDefault() {
+    return asyncExecutor == null ? DefaultAsyncExecutor.getInstance() : asyncExecutor;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public NestedQueryConcurrency getNestedQueryConcurrency() {
+    return nestedQueryConcurrency;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setNestedQueryConcurrency(NestedQueryConcurrency nestedQueryConcurrency) {
+    this.nestedQueryConcurrency = nestedQueryConcurrency;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public int getNestedQueryConcurrencyLimit() {
+    return nestedQueryConcurrencyLimit;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setNestedQueryConcurrencyLimit(int nestedQueryConcurrencyLimit) {
+    if (nestedQueryConcurrencyLimit <= 0) {
+      throw new IllegalArgumentException("nestedQueryConcurrencyLimit must be a positive number, but was " + nestedQueryConcurrencyLimit);
+    }
+    this.nestedQueryConcurrencyLimit = nestedQueryConcurrencyLimit;
+    this.nestedQueryPermits = new Semaphore(nestedQueryConcurrencyLimit);
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Semaphore getNestedQueryPermits() {
+    return nestedQueryPermits;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getReuseStatementCacheSize() {
+    return reuseStatementCacheSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setReuseStatementCacheSize(Integer reuseStatementCacheSize) {
+    if (reuseStatementCacheSize != null && reuseStatementCacheSize <= 0) {
+      throw new IllegalArgumentException("reuseStatementCacheSize must be a positive number, but was " + reuseStatementCacheSize);
+    }
+    this.reuseStatementCacheSize = reuseStatementCacheSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public boolean isColumnIndexMappingEnabled() {
+    return columnIndexMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setColumnIndexMappingEnabled(boolean columnIndexMappingEnabled) {
+    this.columnIndexMappingEnabled = columnIndexMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public Integer getResultSetLayoutCacheSize() {
+    return resultSetLayoutCacheSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setResultSetLayoutCacheSize(final Integer resultSetLayoutCacheSize) {
+    this.resultSetLayoutCacheSize = resultSetLayoutCacheSize;
+    if (resultSetLayoutCacheSize == null) {
+      this.resultSetLayouts = null;
+      return;
+    }
+    this.resultSetLayouts = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * 获得字段布局的缓存。线程安全，超过 resultSetLayoutCacheSize 时，由 {@link org.apache.ibatis.executor.resultset.ResultSetWrapper} 淘汰
+   *
+   * @return 未开启 resultSetLayoutCacheSize 时，返回 null
+   * @since 3.5.0
+   */
+  public Map<String, ResultSetLayout> getResultSetLayouts() {
+    return resultSetLayouts;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public RowMapType getRowMapType() {
+    return rowMapType;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setRowMapType(RowMapType rowMapType) {
+    this.rowMapType = rowMapType;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -661,7 +1051,8 @@ public class Configuration {
     executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
     // <2> 创建对应实现的 Executor 对象
     Executor executor;
-    if (ExecutorType.BATCH == executorType) {
+    if (ExecutorType.BATCH == executorType || ExecutorType.COALESCING == executorType) {
+      // COALESCING 的写操作，由 DefaultSqlSession 决定何时刷入
       executor = new BatchExecutor(this, transaction);
     } else if (ExecutorType.REUSE == executorType) {
       executor = new ReuseExecutor(this, transaction);
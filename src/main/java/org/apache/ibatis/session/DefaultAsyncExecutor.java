@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 未设置 {@link Configuration#getAsyncExecutor()} 时，默认的线程池。所有的 Configuration 共享，在第一次使用时创建，
+ * 其线程为守护线程，不会阻止 JVM 退出
+ *
+ * @since 3.5.0
+ */
+final class DefaultAsyncExecutor {
+
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+  private static volatile ExecutorService instance;
+
+  private DefaultAsyncExecutor() {
+    // Prevent Instantiation
+  }
+
+  static ExecutorService getInstance() {
+    if (instance == null) {
+      synchronized (DefaultAsyncExecutor.class) {
+        if (instance == null) {
+          instance = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-async-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+        }
+      }
+    }
+    return instance;
+  }
+
+}
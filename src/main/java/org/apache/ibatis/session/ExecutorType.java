@@ -19,5 +19,12 @@ package org.apache.ibatis.session;
  * @author Clinton Begin
  */
 public enum ExecutorType {
-  SIMPLE, REUSE, BATCH
+  SIMPLE, REUSE, BATCH,
+  /**
+   * 合并连续的写操作，作为批处理执行。和 BATCH 不同，在调用方需要更新数量时，立即刷入，对调用方透明
+   *
+   * @since 3.5.0
+   * @see org.apache.ibatis.session.SqlSession#execute(String, Object)
+   */
+  COALESCING
 }
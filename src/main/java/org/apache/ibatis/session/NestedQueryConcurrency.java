@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * 内嵌查询（非延迟加载的 &lt;association select="" /&gt; 和 &lt;collection select="" /&gt;）的并发执行范围
+ *
+ * @since 3.5.0
+ */
+public enum NestedQueryConcurrency {
+  /**
+   * 不并发，逐个执行
+   */
+  NONE,
+  /**
+   * 一行结果对象的内嵌查询并发执行，在交给 ResultHandler 前完成
+   */
+  ROW,
+  /**
+   * 整个 ResultSet 的内嵌查询并发执行，在返回结果列表前完成。使用自定义的 ResultHandler 或 Cursor 时，等同于 {@link #ROW}
+   */
+  RESULT_SET
+}
@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * resultType="map" 时，每行的结果对象使用的 Map 实现
+ *
+ * @since 3.5.0
+ */
+public enum RowMapType {
+  /**
+   * 使用 ObjectFactory 创建，默认为 HashMap
+   */
+  HASH_MAP,
+  /**
+   * 使用 {@link org.apache.ibatis.executor.result.RowMap} ，字段名区分大小写
+   */
+  COMPACT,
+  /**
+   * 使用 {@link org.apache.ibatis.executor.result.RowMap} ，字段名不区分大小写
+   */
+  COMPACT_CASE_INSENSITIVE
+}
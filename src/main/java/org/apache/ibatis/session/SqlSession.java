@@ -17,6 +17,7 @@ package org.apache.ibatis.session;
 
 import java.io.Closeable;
 import java.sql.Connection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -216,6 +217,55 @@ public interface SqlSession extends Closeable {
    */
   int delete(String statement, Object parameter);
 
+  /**
+   * Execute an insert, update or delete statement when the caller does not need the number of affected rows.
+   * In a session opened with {@link ExecutorType#COALESCING}, the statement is added to a batch which is executed
+   * before the next select, commit or {@link #flushStatements()}, or when the number of affected rows of a later
+   * statement is requested. Statements with a key generator are never deferred.
+   * In other sessions, this is the same as {@link #update(String, Object)}, which is also what the default
+   * implementation does for sessions that do not support deferred execution.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @since 3.5.0
+   */
+  default void execute(String statement, Object parameter) {
+    update(statement, parameter);
+  }
+
+  /**
+   * Execute an insert statement for each of the given parameter objects, in parallel, through several connections.
+   * The parameters are split into partitions which are written as batches and committed in their own transactions,
+   * independently of the transaction of this session. The insert is not atomic: if a partition fails, it is rolled
+   * back but the other partitions stay committed, and a {@link org.apache.ibatis.executor.BulkInsertException}
+   * holding their results is thrown. Other statement types are rejected.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameters The parameter objects to pass to the statement, one per execution.
+   * @return BatchResult list of the partitions, in the order of the parameters
+   * @throws UnsupportedOperationException if this session does not support bulk inserts
+   * @since 3.5.0
+   */
+  default List<BatchResult> bulkInsert(String statement, Iterable<?> parameters) {
+    throw new UnsupportedOperationException(getClass().getName() + " does not support bulk inserts");
+  }
+
+  /**
+   * Execute an insert, update or delete statement for each of the parameter objects read from the given iterator,
+   * e.g. {@code stream.iterator()}, without holding all of them in memory. The parameter objects are read on the
+   * calling thread and handed in chunks, through a bounded queue, to a worker thread that executes each chunk as a
+   * batch and commits it, through its own connection and independently of the transaction of this session.
+   * The parameters are bound to the statement on the worker thread, which owns the statement.
+   * A failed chunk is rolled back; the load stops unless the listener asks to continue.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameters The parameter objects to pass to the statement, one per execution.
+   * @param listener A listener notified of each committed or failed chunk on the worker thread, or null.
+   * @return the number of parameter objects committed
+   * @throws UnsupportedOperationException if this session does not support bulk loads
+   * @since 3.5.0
+   */
+  default long bulkLoad(String statement, Iterator<?> parameters, BulkLoadListener listener) {
+    throw new UnsupportedOperationException(getClass().getName() + " does not support bulk loads");
+  }
+
   /**
    * Flushes batch statements and commits database connection.
    * Note that database connection will not be committed if no updates/deletes/inserts were called.
@@ -21,6 +21,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -259,6 +260,21 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionProxy.delete(statement, parameter);
   }
 
+  @Override
+  public void execute(String statement, Object parameter) {
+    sqlSessionProxy.execute(statement, parameter);
+  }
+
+  @Override
+  public List<BatchResult> bulkInsert(String statement, Iterable<?> parameters) {
+    return sqlSessionProxy.bulkInsert(statement, parameters);
+  }
+
+  @Override
+  public long bulkLoad(String statement, Iterator<?> parameters, BulkLoadListener listener) {
+    return sqlSessionProxy.bulkLoad(statement, parameters, listener);
+  }
+
   @Override
   public <T> T getMapper(Class<T> type) {
     return getConfiguration().getMapper(type, this);
@@ -21,6 +21,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -29,11 +30,16 @@ import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BulkInsertException;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ParallelBatchWriter;
+import org.apache.ibatis.executor.StreamingBatchLoader;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.BulkLoadListener;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -62,12 +68,21 @@ public class DefaultSqlSession implements SqlSession {
    * Cursor 数组
    */
   private List<Cursor<?>> cursorList;
+  /**
+   * 是否合并写操作，即 {@link org.apache.ibatis.session.ExecutorType#COALESCING}
+   */
+  private final boolean coalescing;
 
-  public DefaultSqlSession(Configuration configuration, Executor executor, boolean autoCommit) {
+  public DefaultSqlSession(Configuration configuration, Executor executor, boolean autoCommit, boolean coalescing) {
     this.configuration = configuration;
     this.executor = executor;
     this.dirty = false;
     this.autoCommit = autoCommit;
+    this.coalescing = coalescing;
+  }
+
+  public DefaultSqlSession(Configuration configuration, Executor executor, boolean autoCommit) {
+    this(configuration, executor, autoCommit, false);
   }
 
   public DefaultSqlSession(Configuration configuration, Executor executor) {
@@ -207,13 +222,39 @@ public class DefaultSqlSession implements SqlSession {
 
   @Override
   public int update(String statement, Object parameter) {
+    return update(statement, parameter, true);
+  }
+
+  /**
+   * @return 是否合并写操作，即 {@link org.apache.ibatis.session.ExecutorType#COALESCING}
+   * @since 3.5.0
+   */
+  public boolean isCoalescing() {
+    return coalescing;
+  }
+
+  @Override
+  public void execute(String statement, Object parameter) {
+    update(statement, parameter, false);
+  }
+
+  /**
+   * @param countRequired 调用方是否需要更新数量
+   */
+  private int update(String statement, Object parameter, boolean countRequired) {
     try {
       // <1> 标记 dirty ，表示执行过写操作
       dirty = true;
       // <2> 获得 MappedStatement 对象
       MappedStatement ms = configuration.getMappedStatement(statement);
       // <3> 执行更新操作
-      return executor.update(ms, wrapCollection(parameter));
+      final Object parameterObject = wrapCollection(parameter);
+      final int updateCount = executor.update(ms, parameterObject);
+      // <4> 合并写操作时，如果无法延迟，立即刷入，获得真正的更新数量
+      if (coalescing && (countRequired || autoCommit || !(ms.getKeyGenerator() instanceof NoKeyGenerator))) {
+        return getUpdateCount(executor.flushStatements(), ms, parameterObject, updateCount);
+      }
+      return updateCount;
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error updating database.  Cause: " + e, e);
     } finally {
@@ -231,6 +272,50 @@ public class DefaultSqlSession implements SqlSession {
     return update(statement, parameter);
   }
 
+  @Override
+  public List<BatchResult> bulkInsert(String statement, Iterable<?> parameters) {
+    try {
+      MappedStatement ms = configuration.getMappedStatement(statement);
+      List<Object> parameterObjects = new ArrayList<>();
+      for (Object parameter : parameters) {
+        parameterObjects.add(wrapCollection(parameter));
+      }
+      // 使用新的连接和事务执行，不影响当前会话的事务
+      return new ParallelBatchWriter(configuration).write(ms, parameterObjects);
+    } catch (BulkInsertException e) {
+      // 不包装，以便调用方获得已提交的分区的结果
+      throw e;
+    } catch (Exception e) {
+      throw ExceptionFactory.wrapException("Error bulk inserting into database.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
+  @Override
+  public long bulkLoad(String statement, Iterator<?> parameters, BulkLoadListener listener) {
+    try {
+      MappedStatement ms = configuration.getMappedStatement(statement);
+      Iterator<Object> parameterObjects = new Iterator<Object>() {
+        @Override
+        public boolean hasNext() {
+          return parameters.hasNext();
+        }
+
+        @Override
+        public Object next() {
+          return wrapCollection(parameters.next());
+        }
+      };
+      // 使用新的连接和事务执行，不影响当前会话的事务
+      return new StreamingBatchLoader(configuration).load(ms, parameterObjects, listener);
+    } catch (Exception e) {
+      throw ExceptionFactory.wrapException("Error bulk loading into database.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
   @Override
   public void commit() {
     commit(false);
@@ -292,6 +377,26 @@ public class DefaultSqlSession implements SqlSession {
     }
   }
 
+  /**
+   * 从刷入的结果中，获得最后一次执行的更新数量。
+   * 分组批处理时，最后一次执行不一定在最后一个 BatchResult 中，所以按 MappedStatement 和参数对象查找
+   */
+  private int getUpdateCount(List<BatchResult> batchResults, MappedStatement ms, Object parameterObject, int defaultCount) {
+    for (int i = batchResults.size() - 1; i >= 0; i--) {
+      final BatchResult batchResult = batchResults.get(i);
+      if (batchResult.getMappedStatement() != ms) {
+        continue;
+      }
+      final List<Object> parameterObjects = batchResult.getParameterObjects();
+      for (int j = parameterObjects.size() - 1; j >= 0; j--) {
+        if (parameterObjects.get(j) == parameterObject) {
+          return batchResult.getUpdateCounts()[j];
+        }
+      }
+    }
+    return defaultCount;
+  }
+
   private void closeCursors() {
     if (cursorList != null && cursorList.size() != 0) {
       for (Cursor<?> cursor : cursorList) {
@@ -87,6 +87,10 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
     return configuration;
   }
 
+  private boolean isCoalescing(ExecutorType execType) {
+    return (execType == null ? configuration.getDefaultExecutorType() : execType) == ExecutorType.COALESCING;
+  }
+
   private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit) {
     Transaction tx = null;
     try {
@@ -98,7 +102,7 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
       // 创建 Executor 对象
       final Executor executor = configuration.newExecutor(tx, execType);
       // 创建 DefaultSqlSession 对象
-      return new DefaultSqlSession(configuration, executor, autoCommit);
+      return new DefaultSqlSession(configuration, executor, autoCommit, isCoalescing(execType));
     } catch (Exception e) {
       // 如果发生异常，则关闭 Transaction 对象
       closeTransaction(tx); // may have fetched a connection so lets call close()
@@ -127,7 +131,7 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
       final Transaction tx = transactionFactory.newTransaction(connection);
       // 创建 DefaultSqlSession 对象
       final Executor executor = configuration.newExecutor(tx, execType);
-      return new DefaultSqlSession(configuration, executor, autoCommit);
+      return new DefaultSqlSession(configuration, executor, autoCommit, isCoalescing(execType));
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error opening session.  Cause: " + e, e);
     } finally {
@@ -0,0 +1,61 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A {@link TypeHandler} of a primitive wrapper type that can also read the primitive value, without boxing it.
+ * As with {@link ResultSet#getInt(int)}, SQL {@code NULL} is read as the default value of the primitive type,
+ * and callers check {@link ResultSet#wasNull()} afterwards.
+ *
+ * 基本类型的 TypeHandler 。由 {@link IntegerTypeHandler} 等基本类型的包装类的 TypeHandler 实现。
+ * 这些方法不会调用 getNullableResult ，所以只对内置的 TypeHandler 本身使用，不对其子类使用
+ *
+ * @since 3.5.0
+ */
+public interface PrimitiveTypeHandler {
+
+  interface OfInt extends PrimitiveTypeHandler {
+    int getInt(ResultSet rs, int columnIndex) throws SQLException;
+  }
+
+  interface OfLong extends PrimitiveTypeHandler {
+    long getLong(ResultSet rs, int columnIndex) throws SQLException;
+  }
+
+  interface OfDouble extends PrimitiveTypeHandler {
+    double getDouble(ResultSet rs, int columnIndex) throws SQLException;
+  }
+
+  interface OfFloat extends PrimitiveTypeHandler {
+    float getFloat(ResultSet rs, int columnIndex) throws SQLException;
+  }
+
+  interface OfShort extends PrimitiveTypeHandler {
+    short getShort(ResultSet rs, int columnIndex) throws SQLException;
+  }
+
+  interface OfByte extends PrimitiveTypeHandler {
+    byte getByte(ResultSet rs, int columnIndex) throws SQLException;
+  }
+
+  interface OfBoolean extends PrimitiveTypeHandler {
+    boolean getBoolean(ResultSet rs, int columnIndex) throws SQLException;
+  }
+
+}
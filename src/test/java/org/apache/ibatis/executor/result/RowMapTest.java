@@ -0,0 +1,116 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class RowMapTest {
+
+  private final RowMap.Keys keys = new RowMap.Keys(Arrays.asList("ID", "NAME", "ID"), false);
+
+  @Test
+  public void shouldShareKeysAcrossRows() {
+    RowMap row1 = new RowMap(keys);
+    RowMap row2 = new RowMap(keys);
+    row1.put("ID", 1);
+    row2.put("ID", 2);
+    row2.put("NAME", "User2");
+    assertEquals(1, row1.size());
+    assertEquals(1, row1.get("ID"));
+    assertNull(row1.get("NAME"));
+    assertEquals(2, row2.size());
+    assertEquals("User2", row2.get("NAME"));
+  }
+
+  @Test
+  public void shouldDistinguishNullValuesFromMissingKeys() {
+    RowMap row = new RowMap(keys);
+    row.put("NAME", null);
+    assertTrue(row.containsKey("NAME"));
+    assertFalse(row.containsKey("ID"));
+    assertEquals(1, row.size());
+    assertNull(row.remove("NAME"));
+    assertFalse(row.containsKey("NAME"));
+    assertEquals(0, row.size());
+  }
+
+  @Test
+  public void shouldKeepKeysNotInDictionary() {
+    RowMap row = new RowMap(keys);
+    row.put("ID", 1);
+    row.put("orders", "nested");
+    assertEquals(2, row.size());
+    assertEquals("nested", row.get("orders"));
+    Iterator<Map.Entry<String, Object>> iterator = row.entrySet().iterator();
+    assertEquals("ID", iterator.next().getKey());
+    assertEquals("orders", iterator.next().getKey());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void shouldRemoveThroughIterator() {
+    RowMap row = new RowMap(keys);
+    row.put("ID", 1);
+    row.put("NAME", "User1");
+    Iterator<Map.Entry<String, Object>> iterator = row.entrySet().iterator();
+    iterator.next();
+    iterator.remove();
+    assertEquals(1, row.size());
+    assertFalse(row.containsKey("ID"));
+  }
+
+  @Test
+  public void shouldLookUpKeysIgnoringCase() {
+    RowMap row = new RowMap(new RowMap.Keys(Arrays.asList("ID", "id", "Name"), true));
+    row.put("id", 1);
+    row.put("NAME", "User1");
+    row.put("Extra", "value");
+    assertEquals(1, row.get("ID"));
+    assertEquals("User1", row.get("name"));
+    assertEquals("value", row.get("EXTRA"));
+    assertEquals(3, row.size());
+  }
+
+  @Test
+  public void shouldSerializeAsLinkedHashMap() throws Exception {
+    RowMap row = new RowMap(keys);
+    row.put("ID", 1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(row);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      Object copy = ois.readObject();
+      assertTrue(copy instanceof LinkedHashMap);
+      assertEquals(row, copy);
+    }
+  }
+
+}
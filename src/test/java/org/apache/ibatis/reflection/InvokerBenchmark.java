@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Compares the cost of a property access through the invokers of {@link DefaultReflectorFactory} and
+ * {@link LambdaReflectorFactory}. Run each factory in its own JVM, so that the call sites stay monomorphic:
+ * {@code java -cp ... org.apache.ibatis.reflection.InvokerBenchmark reflection|lambda}.
+ */
+public class InvokerBenchmark {
+
+  private static final int ITERATIONS = 20_000_000;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+    final boolean lambda = args.length > 0 && "lambda".equals(args[0]);
+    final ReflectorFactory reflectorFactory = lambda ? new LambdaReflectorFactory() : new DefaultReflectorFactory();
+    for (int round = 0; round < ROUNDS; round++) {
+      run(lambda ? "lambda" : "reflection", reflectorFactory);
+    }
+  }
+
+  private static void run(String name, ReflectorFactory reflectorFactory) throws Exception {
+    final Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    System.out.printf("  %s setter %6.2f ns, getter %6.2f ns, field setter %6.2f ns, field getter %6.2f ns%n", name,
+        measureSet(reflector.getSetInvoker("name")), measureGet(reflector.getGetInvoker("name")),
+        measureSet(reflector.getSetInvoker("field")), measureGet(reflector.getGetInvoker("field")));
+  }
+
+  private static double measureSet(Invoker invoker) throws Exception {
+    final Bean bean = new Bean();
+    final Object[] values = {"a", "b"};
+    final long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      // 和 BeanWrapper 一致，每次调用创建参数数组
+      invoker.invoke(bean, new Object[] {values[i & 1]});
+    }
+    return (double) (System.nanoTime() - start) / ITERATIONS;
+  }
+
+  private static double measureGet(Invoker invoker) throws Exception {
+    final Bean[] beans = {new Bean(), new Bean()};
+    beans[0].setName("a");
+    beans[0].field = "a";
+    beans[1].setName("bb");
+    beans[1].field = "bb";
+    long length = 0;
+    final long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      length += ((String) invoker.invoke(beans[i & 1], null)).length();
+    }
+    final double cost = (double) (System.nanoTime() - start) / ITERATIONS;
+    if (length != ITERATIONS / 2 * 3) {
+      throw new IllegalStateException();
+    }
+    return cost;
+  }
+
+  public static class Bean {
+    private String name;
+    private String field;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+}
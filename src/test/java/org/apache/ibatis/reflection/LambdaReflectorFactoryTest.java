@@ -0,0 +1,216 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.LambdaGetInvoker;
+import org.apache.ibatis.reflection.invoker.LambdaSetInvoker;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.junit.Test;
+
+public class LambdaReflectorFactoryTest {
+
+  private final ReflectorFactory reflectorFactory = new LambdaReflectorFactory();
+
+  @Test
+  public void shouldUseLambdasForPublicAccessors() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Invoker setter = reflector.getSetInvoker("name");
+    Invoker getter = reflector.getGetInvoker("name");
+    assertTrue(setter instanceof LambdaSetInvoker);
+    assertTrue(getter instanceof LambdaGetInvoker);
+    assertEquals(String.class, setter.getType());
+    assertEquals(String.class, getter.getType());
+    Bean bean = new Bean();
+    setter.invoke(bean, new Object[] {"foo"});
+    assertEquals("foo", getter.invoke(bean, null));
+  }
+
+  @Test
+  public void shouldBoxAndUnboxPrimitives() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    assertEquals(int.class, reflector.getSetInvoker("count").getType());
+    Bean bean = new Bean();
+    reflector.getSetInvoker("count").invoke(bean, new Object[] {3});
+    assertEquals(3, reflector.getGetInvoker("count").invoke(bean, null));
+  }
+
+  @Test
+  public void shouldSetPrimitivesWithoutBoxing() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Invoker setter = reflector.getSetInvoker("count");
+    assertTrue(setter instanceof PrimitiveSetter.OfInt);
+    Bean bean = new Bean();
+    ((PrimitiveSetter.OfInt) setter).setInt(bean, 5);
+    assertEquals(5, bean.getCount());
+    Invoker fieldSetter = reflector.getSetInvoker("ratio");
+    assertTrue(fieldSetter instanceof PrimitiveSetter.OfDouble);
+    ((PrimitiveSetter.OfDouble) fieldSetter).setDouble(bean, 0.5);
+    assertEquals(0.5, reflector.getGetInvoker("ratio").invoke(bean, null));
+  }
+
+  @Test
+  public void shouldWidenPrimitivesLikeReflection() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    reflector.getSetInvoker("total").invoke(bean, new Object[] {7});
+    assertEquals(7L, bean.getTotal());
+    reflector.getSetInvoker("total").invoke(bean, new Object[] {'a'});
+    assertEquals(97L, bean.getTotal());
+    reflector.getSetInvoker("count").invoke(bean, new Object[] {(short) 2});
+    assertEquals(2, bean.getCount());
+    try {
+      // narrowing is not allowed
+      reflector.getSetInvoker("count").invoke(bean, new Object[] {2L});
+      fail();
+    } catch (IllegalArgumentException e) {
+      // like Method#invoke
+    }
+    try {
+      reflector.getSetInvoker("count").invoke(bean, new Object[] {null});
+      fail();
+    } catch (IllegalArgumentException e) {
+      // like Method#invoke
+    }
+  }
+
+  @Test
+  public void shouldUseReflectionForFields() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Invoker setter = reflector.getSetInvoker("code");
+    Invoker getter = reflector.getGetInvoker("code");
+    assertTrue(setter instanceof SetFieldInvoker);
+    assertTrue(getter instanceof GetFieldInvoker);
+    Bean bean = new Bean();
+    setter.invoke(bean, new Object[] {42L});
+    assertEquals(42L, getter.invoke(bean, null));
+  }
+
+  @Test
+  public void shouldUseReflectionForNonPublicClasses() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(HiddenBean.class);
+    Invoker setter = reflector.getSetInvoker("name");
+    assertTrue(setter instanceof MethodInvoker);
+    HiddenBean bean = new HiddenBean();
+    setter.invoke(bean, new Object[] {"foo"});
+    assertEquals("foo", reflector.getGetInvoker("name").invoke(bean, null));
+  }
+
+  @Test
+  public void shouldWrapExceptionsThrownByAccessors() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    try {
+      reflector.getSetInvoker("failing").invoke(new Bean(), new Object[] {"foo"});
+      fail();
+    } catch (InvocationTargetException e) {
+      assertTrue(e.getTargetException() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void shouldRejectArgumentsOfAnotherType() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    try {
+      reflector.getSetInvoker("name").invoke(new Bean(), new Object[] {1});
+      fail();
+    } catch (IllegalArgumentException e) {
+      // like Method#invoke
+    }
+    try {
+      reflector.getSetInvoker("initial").invoke(new Bean(), new Object[] {null});
+      fail();
+    } catch (IllegalArgumentException e) {
+      // like Method#invoke
+    }
+  }
+
+  @Test
+  public void shouldSetNullValues() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    bean.setName("foo");
+    reflector.getSetInvoker("name").invoke(bean, new Object[] {null});
+    assertNull(bean.getName());
+  }
+
+  public static class Bean {
+    private String name;
+    private int count;
+    private Long code;
+    private double ratio;
+    private char initial;
+    private long total;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public void setTotal(long total) {
+      this.total = total;
+    }
+
+    public char getInitial() {
+      return initial;
+    }
+
+    public void setInitial(char initial) {
+      this.initial = initial;
+    }
+
+    public void setFailing(String failing) {
+      throw new IllegalStateException(failing);
+    }
+  }
+
+  static class HiddenBean {
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+}
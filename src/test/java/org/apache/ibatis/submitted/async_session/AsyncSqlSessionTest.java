@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncSqlSessionTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_session/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_session/CreateDB.sql");
+    executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "async-test"));
+    sqlSessionFactory.getConfiguration().setAsyncExecutor(executor);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void shouldSelectAsynchronously() throws Exception {
+    AsyncSqlSession asyncSession = new AsyncSqlSession(sqlSessionFactory);
+    CompletableFuture<String> threadName = asyncSession.execute(sqlSession -> Thread.currentThread().getName());
+    assertEquals("async-test", threadName.get());
+    List<User> users = asyncSession.<User>selectList("org.apache.ibatis.submitted.async_session.Mapper.getUsers").get();
+    assertEquals(2, users.size());
+    User user = asyncSession.<User>selectOne("org.apache.ibatis.submitted.async_session.Mapper.getUser", 2).get();
+    assertEquals("User2", user.getName());
+  }
+
+  @Test
+  public void shouldExecuteMapperMethodsAsynchronously() throws Exception {
+    Mapper mapper = new AsyncSqlSession(sqlSessionFactory).getMapper(Mapper.class);
+    assertEquals("User1", mapper.getUser(1).get().getName());
+    assertEquals(Integer.valueOf(1), mapper.insertUser(new User(3, "User3")).get());
+    // each call is committed in its own session
+    assertEquals(3, mapper.getUsers().get().size());
+  }
+
+  @Test
+  public void shouldCompleteExceptionally() throws Exception {
+    Mapper mapper = new AsyncSqlSession(sqlSessionFactory).getMapper(Mapper.class);
+    try {
+      mapper.getMissingTable().get();
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof PersistenceException);
+    }
+  }
+
+  @Test(expected = BindingException.class)
+  public void shouldRejectMapperMethodsReturningCursors() {
+    // the session would be closed before the cursor is read
+    new AsyncSqlSession(sqlSessionFactory).getMapper(Mapper.class).getUsersCursor();
+  }
+
+  @Test
+  public void shouldReturnCompletedFutureFromSqlSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      CompletableFuture<List<User>> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertTrue(users.isDone());
+      assertEquals(2, users.join().size());
+    }
+  }
+
+}
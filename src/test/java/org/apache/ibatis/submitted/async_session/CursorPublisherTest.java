@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.CursorPublisher;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CursorPublisherTest {
+
+  private static final String COMPLETE = "complete";
+
+  private SqlSessionFactory sqlSessionFactory;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_session/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_session/CreateDB.sql");
+    executor = Executors.newSingleThreadExecutor();
+    sqlSessionFactory.getConfiguration().setAsyncExecutor(executor);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void shouldEmitRowsOnDemand() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new AsyncSqlSession(sqlSessionFactory).<User>selectCursor("org.apache.ibatis.submitted.async_session.Mapper.getUsers")
+        .subscribe(subscriber);
+    // nothing is read before it is requested
+    assertNull(subscriber.signals.poll(100, TimeUnit.MILLISECONDS));
+    subscriber.subscription.request(1);
+    assertEquals("User1", ((User) subscriber.next()).getName());
+    assertNull(subscriber.signals.poll(100, TimeUnit.MILLISECONDS));
+    subscriber.subscription.request(2);
+    assertEquals("User2", ((User) subscriber.next()).getName());
+    assertEquals(COMPLETE, subscriber.next());
+  }
+
+  @Test
+  public void shouldStopEmittingWhenCancelled() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new AsyncSqlSession(sqlSessionFactory).<User>selectCursor("org.apache.ibatis.submitted.async_session.Mapper.getUsers")
+        .subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertEquals("User1", ((User) subscriber.next()).getName());
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(1);
+    assertNull(subscriber.signals.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void shouldSignalErrors() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new AsyncSqlSession(sqlSessionFactory).selectCursor("org.apache.ibatis.submitted.async_session.Mapper.getMissingTable")
+        .subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertTrue(subscriber.next() instanceof PersistenceException);
+  }
+
+  @Test
+  public void shouldRejectNonPositiveRequests() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new AsyncSqlSession(sqlSessionFactory).selectCursor("org.apache.ibatis.submitted.async_session.Mapper.getUsers")
+        .subscribe(subscriber);
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.next() instanceof IllegalArgumentException);
+  }
+
+  @Test
+  public void shouldCancelAndSignalErrorWhenOnNextThrows() throws Exception {
+    final IllegalStateException failure = new IllegalStateException("onNext failed");
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(Object item) {
+        throw failure;
+      }
+    };
+    new AsyncSqlSession(sqlSessionFactory).selectCursor("org.apache.ibatis.submitted.async_session.Mapper.getUsers")
+        .subscribe(subscriber);
+    subscriber.subscription.request(2);
+    assertSame(failure, subscriber.next());
+    // the subscription is cancelled, so later requests emit nothing
+    subscriber.subscription.request(1);
+    assertNull(subscriber.signals.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  private static class RecordingSubscriber implements CursorPublisher.Subscriber<Object> {
+
+    private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+    private CursorPublisher.Subscription subscription;
+
+    @Override
+    public void onSubscribe(CursorPublisher.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Object item) {
+      signals.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      signals.add(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      signals.add(COMPLETE);
+    }
+
+    private Object next() throws InterruptedException {
+      return signals.poll(5, TimeUnit.SECONDS);
+    }
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_grouping;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchGroupingTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_grouping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_grouping/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldGroupInterleavedWrites() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 2; i <= 4; i++) {
+        mapper.insertParent(new Parent(i, "Parent" + i));
+        mapper.insertChild(new Child(i, i, "Child" + i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("org.apache.ibatis.submitted.batch_grouping.Mapper.insertParent", results.get(0).getMappedStatement().getId());
+      assertEquals(3, results.get(0).getUpdateCounts().length);
+      assertEquals("org.apache.ibatis.submitted.batch_grouping.Mapper.insertChild", results.get(1).getMappedStatement().getId());
+      assertEquals(3, results.get(1).getUpdateCounts().length);
+      sqlSession.commit();
+      assertEquals(3, mapper.countChildren());
+    }
+  }
+
+  @Test
+  public void shouldExecuteParentBatchBeforeChildBatch() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // the child batch is started first, but depends on the parent batch
+      mapper.insertChild(new Child(1, 1, "Child1"));
+      mapper.insertParent(new Parent(2, "Parent2"));
+      mapper.insertChild(new Child(2, 2, "Child2"));
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("org.apache.ibatis.submitted.batch_grouping.Mapper.insertParent", results.get(0).getMappedStatement().getId());
+      assertEquals(1, results.get(0).getParameterObjects().size());
+      assertEquals("org.apache.ibatis.submitted.batch_grouping.Mapper.insertChild", results.get(1).getMappedStatement().getId());
+      assertEquals(2, results.get(1).getParameterObjects().size());
+      sqlSession.commit();
+      assertEquals(2, mapper.countChildren());
+    }
+  }
+
+  @Test
+  public void shouldExecuteParentBatchBeforeChildBatchWithOptions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertChildWithOptions(new Child(1, 1, "Child1"));
+      mapper.insertParent(new Parent(2, "Parent2"));
+      mapper.insertChildWithOptions(new Child(2, 2, "Child2"));
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("org.apache.ibatis.submitted.batch_grouping.Mapper.insertParent", results.get(0).getMappedStatement().getId());
+      assertEquals("org.apache.ibatis.submitted.batch_grouping.Mapper.insertChildWithOptions", results.get(1).getMappedStatement().getId());
+      assertEquals(2, results.get(1).getParameterObjects().size());
+      sqlSession.commit();
+      assertEquals(2, mapper.countChildren());
+    }
+  }
+
+  @Test
+  public void shouldKeepOrderOfWritesWithoutDeclaredDependency() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertParent(new Parent(2, "Parent2"));
+      mapper.deleteParent(2);
+      mapper.insertParent(new Parent(2, "Parent2"));
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals("org.apache.ibatis.submitted.batch_grouping.Mapper.insertParent", results.get(0).getMappedStatement().getId());
+      assertEquals("org.apache.ibatis.submitted.batch_grouping.Mapper.deleteParent", results.get(1).getMappedStatement().getId());
+      assertEquals("org.apache.ibatis.submitted.batch_grouping.Mapper.insertParent", results.get(2).getMappedStatement().getId());
+      sqlSession.commit();
+      assertEquals(2, mapper.countParents());
+    }
+  }
+
+}
@@ -0,0 +1,130 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_insert_rewrite;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchInsertRewriteTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_insert_rewrite/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_insert_rewrite/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldRewriteInsertsIntoMultiRowStatements() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 5; i++) {
+        mapper.insertUser(new User(i, "User" + i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertTrue(results.get(0).getSql().contains("), ("));
+      assertEquals(4, results.get(0).getParameterObjects().size());
+      assertArrayEquals(new int[] {1, 1, 1, 1}, results.get(0).getUpdateCounts());
+      // a single remaining row keeps the original statement
+      assertEquals(sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.submitted.batch_insert_rewrite.Mapper.insertUser")
+          .getBoundSql(new User(5, "User5")).getSql(), results.get(1).getSql());
+      assertEquals(1, results.get(1).getParameterObjects().size());
+      assertEquals(1, results.get(1).getUpdateCounts().length);
+      sqlSession.commit();
+    }
+    assertEquals(5, countUsersBehindMyBatis());
+  }
+
+  @Test
+  public void shouldLimitRowsByParameterCount() throws SQLException {
+    sqlSessionFactory.getConfiguration().setBatchInsertRewriteRows(10);
+    // each row binds 2 parameters
+    sqlSessionFactory.getConfiguration().setBatchInsertRewriteParameters(6);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 7; i++) {
+        mapper.insertUser(new User(i, "User" + i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(6, results.get(0).getParameterObjects().size());
+      assertEquals(6, results.get(0).getUpdateCounts().length);
+      assertEquals(1, results.get(1).getParameterObjects().size());
+      sqlSession.commit();
+    }
+    assertEquals(7, countUsersBehindMyBatis());
+  }
+
+  @Test
+  public void shouldKeepOrderWithOtherStatements() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User(1, "User1"));
+      mapper.updateUser(new User(1, "Updated"));
+      mapper.insertUser(new User(2, "User2"));
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals("Updated", mapper.getUserName(1));
+      sqlSession.commit();
+    }
+    assertEquals(2, countUsersBehindMyBatis());
+  }
+
+  @Test
+  public void shouldDiscardPendingRowsOnRollback() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User(1, "User1"));
+      sqlSession.rollback();
+      assertEquals(0, sqlSession.flushStatements().size());
+    }
+    assertEquals(0, countUsersBehindMyBatis());
+  }
+
+  private int countUsersBehindMyBatis() throws SQLException {
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement();
+         ResultSet rs = stmt.executeQuery("select count(*) from users")) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+}
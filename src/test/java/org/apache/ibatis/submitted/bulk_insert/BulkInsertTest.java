@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bulk_insert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BulkInsertException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkInsertTest {
+
+  private static final String INSERT_USER = "org.apache.ibatis.submitted.bulk_insert.Mapper.insertUser";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/bulk_insert/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/bulk_insert/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldInsertPartitionsInParallel() throws SQLException {
+    List<User> users = new ArrayList<>();
+    for (int i = 1; i <= 5; i++) {
+      users.add(new User(i, "User" + i));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<BatchResult> results = sqlSession.bulkInsert(INSERT_USER, users);
+      assertEquals(2, results.size());
+      assertEquals(3, results.get(0).getParameterObjects().size());
+      assertEquals(2, results.get(1).getParameterObjects().size());
+      assertEquals(users.get(0), results.get(0).getParameterObjects().get(0));
+      assertEquals(users.get(3), results.get(1).getParameterObjects().get(0));
+    }
+    // the partitions are committed independently of the session
+    assertEquals(5, countUsersBehindMyBatis());
+  }
+
+  @Test
+  public void shouldKeepOtherPartitionsWhenOnePartitionFails() throws SQLException {
+    List<User> users = Arrays.asList(new User(1, "User1"), new User(2, "User2"), new User(3, "User3"), new User(3, "User3"));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.bulkInsert(INSERT_USER, users);
+      fail();
+    } catch (BulkInsertException e) {
+      assertEquals(1, e.getFailedPartitionCount());
+      assertEquals(1, e.getSuccessfulBatchResults().size());
+      assertEquals(2, e.getSuccessfulBatchResults().get(0).getParameterObjects().size());
+    }
+    assertEquals(2, countUsersBehindMyBatis());
+  }
+
+  @Test
+  public void shouldReturnEmptyResultsForNoParameters() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(0, sqlSession.bulkInsert(INSERT_USER, new ArrayList<User>()).size());
+    }
+  }
+
+  @Test
+  public void shouldRunPartitionsNotStartedByTheAsyncExecutor() throws SQLException {
+    // an executor which never runs the partitions, the calling thread runs them
+    final List<Runnable> submittedTasks = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setAsyncExecutor(submittedTasks::add);
+    List<User> users = Arrays.asList(new User(1, "User1"), new User(2, "User2"), new User(3, "User3"));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(2, sqlSession.bulkInsert(INSERT_USER, users).size());
+    }
+    assertEquals(2, submittedTasks.size());
+    assertEquals(3, countUsersBehindMyBatis());
+  }
+
+  @Test
+  public void shouldRejectOtherStatementsThanInserts() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.bulkInsert("org.apache.ibatis.submitted.bulk_insert.Mapper.updateUser", Arrays.asList(new User(1, "User1")));
+      fail();
+    } catch (PersistenceException e) {
+      assertTrue(e.getMessage().contains("only support insert statements"));
+    }
+    assertEquals(0, countUsersBehindMyBatis());
+  }
+
+  private int countUsersBehindMyBatis() throws SQLException {
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement();
+         ResultSet rs = stmt.executeQuery("select count(*) from users")) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+}
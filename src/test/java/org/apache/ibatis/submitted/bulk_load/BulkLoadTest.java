@@ -0,0 +1,135 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bulk_load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.BulkLoadListener;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkLoadTest {
+
+  private static final String INSERT_USER = "org.apache.ibatis.submitted.bulk_load.Mapper.insertUser";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/bulk_load/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/bulk_load/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldLoadStreamInChunks() throws SQLException {
+    final List<String> progress = Collections.synchronizedList(new ArrayList<>());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      long loadedRows = sqlSession.bulkLoad(INSERT_USER,
+          IntStream.rangeClosed(1, 5).mapToObj(i -> new User(i, "User" + i)).iterator(),
+          new BulkLoadListener() {
+            @Override
+            public void chunkCompleted(int chunkIndex, List<BatchResult> results, long loadedRows) {
+              progress.add(chunkIndex + ":" + results.get(0).getParameterObjects().size() + ":" + loadedRows);
+            }
+          });
+      assertEquals(5, loadedRows);
+    }
+    assertEquals(Arrays.asList("0:2:2", "1:2:4", "2:1:5"), progress);
+    assertEquals(5, countUsersBehindMyBatis());
+  }
+
+  @Test
+  public void shouldStopAtFailedChunk() throws SQLException {
+    List<User> users = Arrays.asList(new User(1, "User1"), new User(2, "User2"),
+        new User(3, "User3"), new User(3, "User3"), new User(5, "User5"));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.bulkLoad(INSERT_USER, users.iterator(), null);
+      fail();
+    } catch (PersistenceException e) {
+      // expected
+    }
+    assertEquals(2, countUsersBehindMyBatis());
+  }
+
+  @Test
+  public void shouldContinueAfterFailedChunkWhenListenerAsks() throws SQLException {
+    final List<Integer> failedChunks = Collections.synchronizedList(new ArrayList<>());
+    List<User> users = Arrays.asList(new User(1, "User1"), new User(2, "User2"),
+        new User(3, "User3"), new User(3, "User3"), new User(5, "User5"));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      long loadedRows = sqlSession.bulkLoad(INSERT_USER, users.iterator(), new BulkLoadListener() {
+        @Override
+        public boolean chunkFailed(int chunkIndex, List<Object> parameters, Throwable cause) {
+          failedChunks.add(chunkIndex);
+          return true;
+        }
+      });
+      assertEquals(3, loadedRows);
+    }
+    assertEquals(Collections.singletonList(1), failedChunks);
+    assertEquals(3, countUsersBehindMyBatis());
+  }
+
+  @Test(timeout = 10000)
+  public void shouldStopReadingWhenChunkFails() throws SQLException {
+    // every chunk fails, the producer must not stay blocked on the full queue
+    final AtomicInteger readUsers = new AtomicInteger();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.bulkLoad(INSERT_USER, Stream.generate(() -> new User(1, "User" + readUsers.incrementAndGet())).iterator(), null);
+      fail();
+    } catch (PersistenceException e) {
+      // expected
+    }
+    assertEquals(0, countUsersBehindMyBatis());
+    // at most the failed chunk, the queued chunk and the chunk being read
+    assertTrue(readUsers.get() <= 6);
+  }
+
+  private int countUsersBehindMyBatis() throws SQLException {
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement();
+         ResultSet rs = stmt.executeQuery("select count(*) from users")) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+}
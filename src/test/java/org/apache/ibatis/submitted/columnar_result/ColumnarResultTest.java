@@ -0,0 +1,124 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.columnar_result;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.result.ColumnarResult;
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ColumnarResultTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/columnar_result/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/columnar_result/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldReadColumnsIntoArrays() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getOrders();
+      assertEquals(3, result.getRowCount());
+      assertEquals(Arrays.asList("ID", "AMOUNT", "RATIO", "LABEL", "CREATED"), result.getColumnNames());
+      assertEquals(ColumnarResult.ColumnType.INT, result.getColumnType("id"));
+      assertEquals(ColumnarResult.ColumnType.LONG, result.getColumnType("amount"));
+      assertEquals(ColumnarResult.ColumnType.DOUBLE, result.getColumnType("ratio"));
+      assertEquals(ColumnarResult.ColumnType.STRING, result.getColumnType("label"));
+      assertEquals(ColumnarResult.ColumnType.OBJECT, result.getColumnType("created"));
+      assertArrayEquals(new int[] {1, 2, 3}, result.getInts("id"));
+      assertArrayEquals(new long[] {100, 0, 300}, result.getLongs("amount"));
+      assertArrayEquals(new double[] {0.5, 1.5, 0}, result.getDoubles("ratio"), 0);
+      assertArrayEquals(new String[] {"a", "b", null}, result.getStrings("label"));
+      assertEquals(Date.valueOf("2018-01-01"), result.getObjects("created")[0]);
+    }
+  }
+
+  @Test
+  public void shouldRecordNulls() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getOrders();
+      assertFalse(result.isNull("amount", 0));
+      assertTrue(result.isNull("amount", 1));
+      assertTrue(result.isNull("ratio", 2));
+      assertEquals(1, result.getNulls("label").cardinality());
+      assertTrue(result.getNulls("id").isEmpty());
+    }
+  }
+
+  @Test
+  public void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.selectOne("org.apache.ibatis.submitted.columnar_result.Mapper.getOrders", null);
+      assertEquals(3, result.getRowCount());
+      List<ColumnarResult> results = sqlSession.selectList("org.apache.ibatis.submitted.columnar_result.Mapper.getOrders", null, new RowBounds(1, 1));
+      assertEquals(1, results.size());
+      result = results.get(0);
+      assertEquals(1, result.getRowCount());
+      assertArrayEquals(new int[] {2}, result.getInts("id"));
+    }
+  }
+
+  @Test
+  public void shouldReturnEmptyResult() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getNoOrders();
+      assertEquals(0, result.getRowCount());
+      assertEquals(0, result.getInts("id").length);
+    }
+  }
+
+  @Test(expected = ResultMapException.class)
+  public void shouldRejectWrongColumnType() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getOrders().getLongs("id");
+    }
+  }
+
+  @Test
+  public void shouldRejectCursor() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getOrdersCursor();
+      fail();
+    } catch (PersistenceException e) {
+      assertTrue(e.getMessage().contains("ColumnarResult"));
+    }
+  }
+
+}
@@ -0,0 +1,30 @@
+--
+--    Copyright 2009-2018 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table orders if exists;
+
+create table orders (
+  id int,
+  amount bigint,
+  ratio double,
+  label varchar(20),
+  created date
+);
+
+insert into orders values(1, 100, 0.5, 'a', '2018-01-01');
+insert into orders values(2, null, 1.5, 'b', '2018-01-02');
+insert into orders values(3, 300, null, null, null);
@@ -0,0 +1,147 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compact_cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.decorators.CompactCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compact_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compact_cache/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldBuildCompactCache() {
+    assertTrue(sqlSessionFactory.getConfiguration().getCache(Mapper.class.getName()) instanceof CompactCache);
+  }
+
+  @Test
+  public void shouldRematerializeNestedResultsOnHit() throws SQLException {
+    List<User> first;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      first = sqlSession.getMapper(Mapper.class).getUsers();
+    }
+    renameBehindMyBatis(1, "Changed");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(3, users.size());
+      // served by the second level cache, but as new objects
+      assertNotSame(first.get(0), users.get(0));
+      assertEquals("User1", users.get(0).getName());
+      assertEquals(new BigDecimal("10.50"), users.get(0).getScore());
+      assertEquals(Timestamp.valueOf("2018-01-01 10:00:00.123"), users.get(0).getCreated());
+      assertEquals("Team1", users.get(0).getTeam().getName());
+      assertNull(users.get(1).getScore());
+      assertNull(users.get(1).getCreated());
+      assertNotSame(users.get(0).getTeam(), first.get(0).getTeam());
+      assertNull(users.get(2).getTeam());
+    }
+  }
+
+  @Test
+  public void shouldRematerializeMapsOnHit() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUserMaps();
+    }
+    renameBehindMyBatis(2, "Changed");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> users = sqlSession.getMapper(Mapper.class).getUserMaps();
+      assertEquals(3, users.size());
+      assertEquals("User2", users.get(1).get("NAME"));
+      assertEquals(new BigDecimal("30.00"), users.get(2).get("SCORE"));
+    }
+  }
+
+  @Test
+  public void shouldReturnDriverValuesOnHitForReadsThatCannotBeReplayed() {
+    Timestamp created;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      created = sqlSession.getMapper(Mapper.class).getUsersWithShiftedCreated().get(0).getCreated();
+    }
+    assertNotEquals(Timestamp.valueOf("2018-01-01 10:00:00.123"), created);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(created, sqlSession.getMapper(Mapper.class).getUsersWithShiftedCreated().get(0).getCreated());
+    }
+  }
+
+  @Test
+  public void shouldCacheResultsWithRowBounds() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(1, sqlSession.getMapper(Mapper.class).getUsers(new RowBounds(1, 1)).size());
+    }
+    renameBehindMyBatis(2, "Changed");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers(new RowBounds(1, 1));
+      assertEquals(1, users.size());
+      assertEquals("User2", users.get(0).getName());
+    }
+  }
+
+  @Test
+  public void shouldFlushOnUpdate() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = new User();
+      user.setId(1);
+      user.setName("Updated");
+      sqlSession.getMapper(Mapper.class).updateUser(user);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Updated", sqlSession.getMapper(Mapper.class).getUsers().get(0).getName());
+    }
+  }
+
+  private void renameBehindMyBatis(int id, String name) throws SQLException {
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("update users set name = '" + name + "' where id = " + id);
+    }
+  }
+
+}
@@ -0,0 +1,38 @@
+--
+--    Copyright 2009-2018 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table users if exists;
+drop table teams if exists;
+
+create table teams (
+  id int,
+  name varchar(20)
+);
+
+create table users (
+  id int,
+  name varchar(20),
+  score decimal(10, 2),
+  created timestamp,
+  team_id int
+);
+
+insert into teams (id, name) values(1, 'Team1');
+
+insert into users (id, name, score, created, team_id) values(1, 'User1', 10.50, '2018-01-01 10:00:00.123', 1);
+insert into users (id, name, score, created, team_id) values(2, 'User2', null, null, 1);
+insert into users (id, name, score, created, team_id) values(3, 'User3', 30.00, '2018-03-01 10:00:00', null);
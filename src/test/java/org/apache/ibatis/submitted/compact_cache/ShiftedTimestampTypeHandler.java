@@ -0,0 +1,60 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compact_cache;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Reads timestamps as if they were stored in a fixed time zone.
+ */
+public class ShiftedTimestampTypeHandler extends BaseTypeHandler<Timestamp> {
+
+  private static Calendar newCalendar() {
+    final TimeZone timeZone = TimeZone.getDefault().getRawOffset() == 0
+        ? TimeZone.getTimeZone("GMT+05:00") : TimeZone.getTimeZone("GMT");
+    return Calendar.getInstance(timeZone);
+  }
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, Timestamp parameter, JdbcType jdbcType) throws SQLException {
+    ps.setTimestamp(i, parameter, newCalendar());
+  }
+
+  @Override
+  public Timestamp getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    return rs.getTimestamp(columnName, newCalendar());
+  }
+
+  @Override
+  public Timestamp getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getTimestamp(columnIndex, newCalendar());
+  }
+
+  @Override
+  public Timestamp getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+    return cs.getTimestamp(columnIndex, newCalendar());
+  }
+
+}
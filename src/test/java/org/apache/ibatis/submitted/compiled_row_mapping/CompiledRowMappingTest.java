@@ -0,0 +1,135 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.ResultSetLayout;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.LambdaReflectorFactory;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledRowMappingTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compiled_row_mapping/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldMapAutoMappedColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertUsers(users);
+      assertEquals(1, countCompiledRowMappers("getUsers"));
+    }
+  }
+
+  @Test
+  public void shouldMapResultMapsWithEachColumnLayout() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertUsers(mapper.getUsersWithResultMap());
+      assertUsers(mapper.getUsersWithReorderedColumns());
+      // the same result map is compiled once per column layout
+      assertEquals(2, countCompiledRowMappers("userResult"));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsersWithResultMap());
+      assertEquals(2, countCompiledRowMappers("userResult"));
+    }
+  }
+
+  @Test
+  public void shouldMapPrimitivesWithoutBoxing() {
+    // public setters with primitive parameters are called through PrimitiveSetter lambdas
+    sqlSessionFactory.getConfiguration().setReflectorFactory(new LambdaReflectorFactory());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsers());
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsersWithResultMap());
+    }
+  }
+
+  @Test
+  public void shouldReadPrimitivesThroughTypeHandlerSubclasses() {
+    sqlSessionFactory.getConfiguration().setReflectorFactory(new LambdaReflectorFactory());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithOffsetAge();
+      assertEquals(110, users.get(0).getAge());
+      assertEquals(-1, users.get(1).getAge());
+    }
+  }
+
+  @Test
+  public void shouldFallBackForNestedProperties() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithAddress();
+      assertEquals("Tokyo", users.get(0).getAddress().getCity());
+      assertEquals("Paris", users.get(1).getAddress().getCity());
+      assertEquals(0, countCompiledRowMappers("userWithAddressResult"));
+    }
+  }
+
+  @Test
+  public void shouldFallBackForMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> users = sqlSession.getMapper(Mapper.class).getUserMaps();
+      assertEquals("User1", users.get(0).get("USER_NAME"));
+      assertEquals(0, countCompiledRowMappers("getUserMaps"));
+    }
+  }
+
+  private void assertUsers(List<User> users) {
+    assertEquals(2, users.size());
+    assertEquals(Integer.valueOf(1), users.get(0).getId());
+    assertEquals("User1", users.get(0).getName());
+    assertEquals(10, users.get(0).getAge());
+    assertEquals(Integer.valueOf(2), users.get(1).getId());
+    assertNull(users.get(1).getName());
+    // setters are not called with null values
+    assertEquals(-1, users.get(1).getAge());
+  }
+
+  private int countCompiledRowMappers(String resultMapId) {
+    int count = 0;
+    for (ResultSetLayout layout : sqlSessionFactory.getConfiguration().getResultSetLayouts().values()) {
+      for (String id : layout.getCompiledRowMappers().keySet()) {
+        if (id.equals("org.apache.ibatis.submitted.compiled_row_mapping.Mapper." + resultMapId)
+            || id.startsWith("org.apache.ibatis.submitted.compiled_row_mapping.Mapper." + resultMapId + "-")) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+}
@@ -105,4 +105,31 @@ public class CursorNestedTest {
       Assert.assertTrue(usersCursor.isConsumed());
     }
   }
+
+  @Test
+  public void shouldStreamCompleteUsersWithoutResultOrdered() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Iterator<User> iterator = mapper.getAllUsersWithoutResultOrdered().iterator();
+
+      // each user is returned only after all of its rows have been read
+      User user = iterator.next();
+      Assert.assertEquals(2, user.getGroups().size());
+      Assert.assertEquals(3, user.getRoles().size());
+
+      user = iterator.next();
+      Assert.assertEquals(1, user.getGroups().size());
+      Assert.assertEquals(3, user.getRoles().size());
+
+      user = iterator.next();
+      Assert.assertEquals(3, user.getGroups().size());
+      Assert.assertEquals(1, user.getRoles().size());
+
+      user = iterator.next();
+      Assert.assertEquals(2, user.getGroups().size());
+      Assert.assertEquals(2, user.getRoles().size());
+
+      Assert.assertFalse(iterator.hasNext());
+    }
+  }
 }
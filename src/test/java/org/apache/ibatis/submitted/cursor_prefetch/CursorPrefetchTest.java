@@ -0,0 +1,141 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor_prefetch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CursorPrefetchTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor_prefetch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cursor_prefetch/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldIterateAllRows() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertTrue(users instanceof PrefetchingCursor);
+      assertEquals(-1, users.getCurrentIndex());
+      int id = 0;
+      for (User user : users) {
+        id++;
+        assertEquals(Integer.valueOf(id), user.getId());
+        assertEquals(Integer.valueOf(id * 10), user.getAge());
+        assertEquals(id - 1, users.getCurrentIndex());
+      }
+      assertEquals(4, id);
+      assertTrue(users.isConsumed());
+      assertFalse(users.isOpen());
+    }
+  }
+
+  @Test
+  public void shouldNotPrefetchWithoutStatementOption() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         Cursor<User> users = sqlSession.getMapper(Mapper.class).getUsersWithoutPrefetch()) {
+      assertFalse(users instanceof PrefetchingCursor);
+      assertEquals(Integer.valueOf(1), users.iterator().next().getId());
+    }
+  }
+
+  @Test(expected = BuilderException.class)
+  public void shouldRejectNonPositivePrefetchSize() {
+    sqlSessionFactory.getConfiguration().addMapper(InvalidPrefetchMapper.class);
+  }
+
+  @Test
+  public void shouldCloseBeforeAllRowsAreRead() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> users = mapper.getUsers();
+      Iterator<User> iterator = users.iterator();
+      assertEquals(Integer.valueOf(1), iterator.next().getId());
+      users.close();
+      assertFalse(users.isOpen());
+      assertFalse(users.isConsumed());
+      assertFalse(iterator.hasNext());
+      // the session can be used again once the cursor is closed
+      assertEquals(5, mapper.countUsers());
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void shouldCloseWhenThePrefetchTaskHasNotStarted() throws Exception {
+    // an executor that is saturated and never starts the task
+    List<Runnable> queuedTasks = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setAsyncExecutor(queuedTasks::add);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> users = mapper.getUsers();
+      Iterator<User> iterator = users.iterator();
+      assertEquals(1, queuedTasks.size());
+      CompletableFuture<Boolean> hasNext = CompletableFuture.supplyAsync(iterator::hasNext);
+      users.close();
+      assertFalse(users.isOpen());
+      // wakes up the consumer waiting in another thread
+      assertFalse(hasNext.get(5, TimeUnit.SECONDS));
+      // the task does nothing if it starts after all
+      queuedTasks.get(0).run();
+      assertEquals(5, mapper.countUsers());
+    }
+  }
+
+  @Test
+  public void shouldPropagateMappingErrors() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Iterator<User> iterator = sqlSession.getMapper(Mapper.class).getAllUsers().iterator();
+      for (int id = 1; id <= 4; id++) {
+        assertEquals(Integer.valueOf(id), iterator.next().getId());
+      }
+      try {
+        iterator.hasNext();
+        fail();
+      } catch (RuntimeException e) {
+        // expected
+      }
+      assertFalse(iterator.hasNext());
+    }
+  }
+
+}
@@ -0,0 +1,163 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.entity_cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntityCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/entity_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/entity_cache/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldShareEntitiesAcrossStatements() throws SQLException {
+    User cached;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      cached = sqlSession.getMapper(Mapper.class).getUser(1);
+    }
+    renameBehindMyBatis(1, "Changed");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(3, users.size());
+      // served by the entity cache populated by getUser
+      assertEquals("User1", users.get(0).getName());
+      assertNotSame(cached, users.get(0));
+      assertEquals("User2", users.get(1).getName());
+    }
+  }
+
+  @Test
+  public void shouldEvictOnlyTheEntityUpdatedById() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = new User();
+      user.setId(1);
+      user.setName("Updated");
+      sqlSession.getMapper(Mapper.class).updateUser(user);
+      sqlSession.commit();
+    }
+    renameBehindMyBatis(2, "Changed");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals("Updated", users.get(0).getName());
+      assertEquals("User2", users.get(1).getName());
+    }
+  }
+
+  @Test
+  public void shouldEvictEntityDeletedById() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers();
+    }
+    renameBehindMyBatis(2, "Changed");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).deleteUser(1);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(2, users.size());
+      assertEquals("User2", users.get(0).getName());
+    }
+  }
+
+  @Test
+  public void shouldClearEntitiesWhenNotUpdatedById() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).updateAllNames("Same");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      for (User user : sqlSession.getMapper(Mapper.class).getUsers()) {
+        assertEquals("Same", user.getName());
+      }
+    }
+  }
+
+  @Test
+  public void shouldDiscardEntitiesReadInRolledBackTransaction() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = new User();
+      user.setId(1);
+      user.setName("Uncommitted");
+      sqlSession.getMapper(Mapper.class).updateUser(user);
+      // stages the uncommitted row
+      assertEquals("Uncommitted", sqlSession.getMapper(Mapper.class).getUser(1).getName());
+      sqlSession.rollback();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User1", sqlSession.getMapper(Mapper.class).getUser(1).getName());
+    }
+  }
+
+  @Test
+  public void shouldNotShareEntitiesBeforeCommit() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User1", sqlSession.getMapper(Mapper.class).getUser(1).getName());
+      renameBehindMyBatis(1, "Changed");
+      try (SqlSession otherSession = sqlSessionFactory.openSession()) {
+        assertEquals("Changed", otherSession.getMapper(Mapper.class).getUser(1).getName());
+      }
+    }
+  }
+
+  @Test
+  public void shouldNotShareEntitiesMappedFromOtherColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertNull(sqlSession.getMapper(Mapper.class).getUserId(1).getName());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User1", sqlSession.getMapper(Mapper.class).getUser(1).getName());
+    }
+  }
+
+  private void renameBehindMyBatis(int id, String name) throws SQLException {
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("update users set name = '" + name + "' where id = " + id);
+    }
+  }
+
+}
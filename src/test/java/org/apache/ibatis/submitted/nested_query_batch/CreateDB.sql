@@ -0,0 +1,49 @@
+--
+--    Copyright 2009-2018 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table roles if exists;
+drop table users if exists;
+drop table groups if exists;
+
+create table groups (
+  id int primary key,
+  name varchar(20)
+);
+
+create table users (
+  id int primary key,
+  name varchar(20),
+  group_id int
+);
+
+create table roles (
+  user_id int,
+  name varchar(20)
+);
+
+insert into groups (id, name) values (1, 'Group1');
+insert into groups (id, name) values (2, 'Group2');
+
+insert into users (id, name, group_id) values (1, 'User1', 1);
+insert into users (id, name, group_id) values (2, 'User2', 1);
+insert into users (id, name, group_id) values (3, 'User3', 2);
+insert into users (id, name, group_id) values (4, 'User4', null);
+
+insert into roles (user_id, name) values (1, 'admin');
+insert into roles (user_id, name) values (1, 'user');
+insert into roles (user_id, name) values (2, 'user');
+insert into roles (user_id, name) values (4, 'guest');
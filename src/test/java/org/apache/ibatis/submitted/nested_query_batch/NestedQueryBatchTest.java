@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.nested_query_batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NestedQueryBatchTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nested_query_batch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/nested_query_batch/CreateDB.sql");
+    StatementCounter.STATEMENTS.clear();
+  }
+
+  @Test
+  public void shouldLoadNestedSelectsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsers());
+    }
+    // 2 groups in one batch, 4 users in batches of 3
+    assertEquals(1, StatementCounter.count("select * from groups"));
+    assertEquals(2, StatementCounter.count("select name, user_id from roles"));
+  }
+
+  @Test
+  public void shouldLoadNestedSelectsBeforeCallingResultHandler() {
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers(context -> {
+        User user = context.getResultObject();
+        assertNotNull(user.getRoles());
+        users.add(user);
+      });
+    }
+    assertUsers(users);
+  }
+
+  @Test
+  public void shouldLoadPendingLazyKeysTogether() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getLazyUsers();
+      assertEquals(0, StatementCounter.count("select name, user_id from roles"));
+      assertEquals(Arrays.asList("admin", "user"), users.get(0).getRoles());
+      assertEquals(1, StatementCounter.count("select name, user_id from roles"));
+      // users 2 and 3 were loaded with user 1
+      assertEquals(Collections.singletonList("user"), users.get(1).getRoles());
+      assertTrue(users.get(2).getRoles().isEmpty());
+      assertEquals(1, StatementCounter.count("select name, user_id from roles"));
+      assertEquals(Collections.singletonList("guest"), users.get(3).getRoles());
+      assertEquals(2, StatementCounter.count("select name, user_id from roles"));
+    }
+  }
+
+  @Test
+  public void shouldAssignOrderedNestedResultsToTheirParents() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithGroupMembers();
+      assertEquals(4, users.size());
+      assertEquals("Group1", users.get(0).getGroup().getName());
+      assertEquals(Arrays.asList("User1", "User2"), users.get(0).getGroup().getMembers());
+      assertEquals("Group1", users.get(1).getGroup().getName());
+      assertEquals("Group2", users.get(2).getGroup().getName());
+      assertEquals(Collections.singletonList("User3"), users.get(2).getGroup().getMembers());
+      assertNull(users.get(3).getGroup());
+    }
+    assertEquals(1, StatementCounter.count("select g.id, g.name, u.name as member_name from groups g"));
+  }
+
+  private void assertUsers(List<User> users) {
+    assertEquals(4, users.size());
+    assertEquals("Group1", users.get(0).getGroup().getName());
+    assertEquals(Arrays.asList("admin", "user"), users.get(0).getRoles());
+    assertEquals("Group1", users.get(1).getGroup().getName());
+    assertEquals(Collections.singletonList("user"), users.get(1).getRoles());
+    assertEquals("Group2", users.get(2).getGroup().getName());
+    assertTrue(users.get(2).getRoles().isEmpty());
+    assertNull(users.get(3).getGroup());
+    assertEquals(Collections.singletonList("guest"), users.get(3).getRoles());
+  }
+
+}
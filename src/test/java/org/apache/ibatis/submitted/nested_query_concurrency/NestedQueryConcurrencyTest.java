@@ -0,0 +1,141 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.nested_query_concurrency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.NestedQueryConcurrency;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NestedQueryConcurrencyTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private ExecutorService executorService;
+  private AtomicInteger submittedCount;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nested_query_concurrency/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/nested_query_concurrency/CreateDB.sql");
+    executorService = Executors.newFixedThreadPool(2);
+    submittedCount = new AtomicInteger();
+    sqlSessionFactory.getConfiguration().setAsyncExecutor(command -> {
+      submittedCount.incrementAndGet();
+      executorService.execute(command);
+    });
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void shouldLoadNestedQueriesPerRow() {
+    assertEquals(NestedQueryConcurrency.ROW, sqlSessionFactory.getConfiguration().getNestedQueryConcurrency());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsers());
+    }
+    assertTrue(submittedCount.get() > 0);
+  }
+
+  @Test
+  public void shouldLoadNestedQueriesPerResultSet() {
+    sqlSessionFactory.getConfiguration().setNestedQueryConcurrency(NestedQueryConcurrency.RESULT_SET);
+    sqlSessionFactory.getConfiguration().setNestedQueryConcurrencyLimit(5);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsers());
+    }
+    // the same nested query is submitted only once per result set: 2 groups and 3 role lists
+    assertEquals(5, submittedCount.get());
+  }
+
+  @Test
+  public void shouldCompleteNestedQueriesBeforeCallingResultHandler() {
+    sqlSessionFactory.getConfiguration().setNestedQueryConcurrency(NestedQueryConcurrency.RESULT_SET);
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers(context -> {
+        User user = context.getResultObject();
+        assertNotNull(user.getGroup());
+        assertNotNull(user.getRoles());
+        users.add(user);
+      });
+    }
+    assertUsers(users);
+  }
+
+  @Test
+  public void shouldLoadNestedQueriesInlineOverConcurrencyLimit() {
+    sqlSessionFactory.getConfiguration().setNestedQueryConcurrency(NestedQueryConcurrency.RESULT_SET);
+    sqlSessionFactory.getConfiguration().setNestedQueryConcurrencyLimit(1);
+    // keeps the submitted nested query waiting, so that it holds the only permit
+    List<Runnable> submitted = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setAsyncExecutor(submitted::add);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsers());
+    }
+    assertEquals(1, submitted.size());
+    assertEquals(0, sqlSessionFactory.getConfiguration().getNestedQueryPermits().availablePermits());
+    submitted.get(0).run();
+    assertEquals(1, sqlSessionFactory.getConfiguration().getNestedQueryPermits().availablePermits());
+  }
+
+  @Test
+  public void shouldLoadNestedQueriesSeriallyWhenDisabled() {
+    sqlSessionFactory.getConfiguration().setNestedQueryConcurrency(NestedQueryConcurrency.NONE);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsers());
+    }
+    assertEquals(0, submittedCount.get());
+  }
+
+  private void assertUsers(List<User> users) {
+    assertEquals(3, users.size());
+    assertEquals("Group1", users.get(0).getGroup().getName());
+    assertEquals("Group2", users.get(0).getManagerGroup().getName());
+    assertEquals(Arrays.asList("admin", "user"), users.get(0).getRoles());
+    assertEquals("Group1", users.get(1).getGroup().getName());
+    assertEquals("Group1", users.get(1).getManagerGroup().getName());
+    assertEquals(Collections.singletonList("user"), users.get(1).getRoles());
+    assertEquals("Group2", users.get(2).getGroup().getName());
+    assertNull(users.get(2).getManagerGroup());
+    assertTrue(users.get(2).getRoles().isEmpty());
+  }
+
+}
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.partitioned_query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.PartitionedCursorSpliterator;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartitionedQueryTest {
+
+  private static final String GET_USERS = "org.apache.ibatis.submitted.partitioned_query.Mapper.getUsers";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/partitioned_query/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/partitioned_query/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldReadAllPartitions() {
+    try (Stream<User> users = PartitionedCursorSpliterator.stream(sqlSessionFactory, GET_USERS, "%", "id", 1, 11, 4)) {
+      List<Integer> ids = users.map(User::getId).sorted().collect(Collectors.toList());
+      assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), ids);
+    }
+  }
+
+  @Test
+  public void shouldPassTheParameter() {
+    try (Stream<User> users = PartitionedCursorSpliterator.stream(sqlSessionFactory, GET_USERS, "Admin%", "id", 1, 11, 4)) {
+      List<Integer> ids = users.map(User::getId).sorted().collect(Collectors.toList());
+      assertEquals(Arrays.asList(3, 6, 9), ids);
+    }
+  }
+
+  @Test
+  public void shouldSplitTheRangeIntoContiguousPartitions() {
+    // [1, 5), [5, 8), [8, 11)
+    Spliterator<User> suffix = new PartitionedCursorSpliterator<>(sqlSessionFactory, GET_USERS, "%", "id", 1, 11, 3);
+    Spliterator<User> prefix = suffix.trySplit();
+    assertNull(prefix.trySplit());
+    List<Integer> prefixIds = new ArrayList<>();
+    prefix.forEachRemaining(user -> prefixIds.add(user.getId()));
+    assertEquals(Arrays.asList(1, 2, 3, 4), prefixIds);
+    Spliterator<User> middle = suffix.trySplit();
+    List<Integer> middleIds = new ArrayList<>();
+    middle.forEachRemaining(user -> middleIds.add(user.getId()));
+    assertEquals(Arrays.asList(5, 6, 7), middleIds);
+    List<Integer> suffixIds = new ArrayList<>();
+    suffix.forEachRemaining(user -> suffixIds.add(user.getId()));
+    assertEquals(Arrays.asList(8, 9, 10), suffixIds);
+  }
+
+  @Test
+  public void shouldNotCreateMorePartitionsThanValues() {
+    Spliterator<User> spliterator = new PartitionedCursorSpliterator<>(sqlSessionFactory, GET_USERS, "%", "id", 1, 3, 8);
+    Spliterator<User> prefix = spliterator.trySplit();
+    assertNull(spliterator.trySplit());
+    List<Integer> ids = new ArrayList<>();
+    prefix.forEachRemaining(user -> ids.add(user.getId()));
+    spliterator.forEachRemaining(user -> ids.add(user.getId()));
+    assertEquals(Arrays.asList(1, 2), ids);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectAnEmptyRange() {
+    PartitionedCursorSpliterator.stream(sqlSessionFactory, GET_USERS, "%", "id", 5, 5, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectAPartitionColumnThatIsNotAColumnName() {
+    PartitionedCursorSpliterator.stream(sqlSessionFactory, GET_USERS, "%", "id >= 0 or 1 = 1 --", 1, 11, 2);
+  }
+
+  @Test
+  public void shouldStopReadingWhenTheStreamIsClosed() {
+    Stream<User> users = PartitionedCursorSpliterator.stream(sqlSessionFactory, GET_USERS, "%", "u.id", 1, 11, 2);
+    Spliterator<User> spliterator = users.spliterator();
+    List<Integer> ids = new ArrayList<>();
+    assertTrue(spliterator.tryAdvance(user -> ids.add(user.getId())));
+    // closes the open partition, the other partition is not opened
+    users.close();
+    assertFalse(spliterator.tryAdvance(user -> ids.add(user.getId())));
+    assertEquals(Arrays.asList(1), ids);
+  }
+
+}
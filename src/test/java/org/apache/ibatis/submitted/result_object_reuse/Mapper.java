@@ -0,0 +1,49 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.result_object_reuse;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
+public interface Mapper {
+
+  @Select("select id, name, age from users order by id")
+  @ResultType(User.class)
+  @Options(reuseResultObjects = true)
+  void getUsers(ResultHandler<User> handler);
+
+  @Select("select id, name, age from users order by id")
+  @Options(reuseResultObjects = true)
+  Cursor<User> getUserCursor();
+
+  @Select("select id, name, age from users order by id")
+  Cursor<User> getUserCursorWithoutReuse();
+
+  @Select("select id, name, age from users order by id")
+  @Options(reuseResultObjects = true)
+  Cursor<Map<String, Object>> getUserMapCursor();
+
+  @Select("select id, name, age from users order by id")
+  @Options(reuseResultObjects = true)
+  List<User> getUserList();
+
+}
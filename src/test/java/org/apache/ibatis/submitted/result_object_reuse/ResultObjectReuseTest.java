@@ -0,0 +1,150 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.result_object_reuse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResultObjectReuseTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/result_object_reuse/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/result_object_reuse/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldReuseResultObjectForResultHandler() {
+    final List<User> users = new ArrayList<>();
+    final List<String> rows = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers(context -> {
+        User user = context.getResultObject();
+        users.add(user);
+        rows.add(user.getId() + ":" + user.getName() + ":" + user.getAge());
+      });
+    }
+    assertEquals(3, users.size());
+    assertSame(users.get(0), users.get(1));
+    assertSame(users.get(0), users.get(2));
+    assertEquals("1:User1:30", rows.get(0));
+    // null columns do not keep the values of the previous row
+    assertEquals("2:null:0", rows.get(1));
+    assertEquals("3:User3:40", rows.get(2));
+  }
+
+  @Test
+  public void shouldReuseResultObjectForCursor() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         Cursor<User> cursor = sqlSession.getMapper(Mapper.class).getUserCursor()) {
+      User previous = null;
+      List<String> rows = new ArrayList<>();
+      for (User user : cursor) {
+        if (previous != null) {
+          assertSame(previous, user);
+        }
+        previous = user;
+        rows.add(user.getId() + ":" + user.getName() + ":" + user.getAge());
+      }
+      assertEquals(3, rows.size());
+      assertEquals("2:null:0", rows.get(1));
+      assertEquals("3:User3:40", rows.get(2));
+    }
+  }
+
+  @Test
+  public void shouldNotReuseResultObjectForCursorWithoutOption() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         Cursor<User> cursor = sqlSession.getMapper(Mapper.class).getUserCursorWithoutReuse()) {
+      List<User> users = new ArrayList<>();
+      cursor.forEach(users::add);
+      assertEquals(3, users.size());
+      assertNotSame(users.get(0), users.get(2));
+      assertEquals("User1", users.get(0).getName());
+    }
+  }
+
+  @Test
+  public void shouldReuseMapForCursor() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         Cursor<Map<String, Object>> cursor = sqlSession.getMapper(Mapper.class).getUserMapCursor()) {
+      Map<String, Object> previous = null;
+      List<Integer> sizes = new ArrayList<>();
+      for (Map<String, Object> user : cursor) {
+        if (previous != null) {
+          assertSame(previous, user);
+        }
+        previous = user;
+        sizes.add(user.size());
+        if (user.get("ID").equals(2)) {
+          assertFalse(user.containsKey("NAME"));
+        }
+      }
+      assertEquals(3, sizes.size());
+      assertEquals(1, (int) sizes.get(1));
+    }
+  }
+
+  @Test
+  public void shouldNotReuseResultObjectForList() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUserList();
+      assertEquals(3, users.size());
+      assertNotSame(users.get(0), users.get(1));
+      assertNull(users.get(1).getName());
+      assertEquals("User1", users.get(0).getName());
+    }
+  }
+
+  @Test
+  public void shouldReuseResultObjectWithCompiledRowMapping() {
+    sqlSessionFactory.getConfiguration().setCompiledRowMappingEnabled(true);
+    final List<String> rows = new ArrayList<>();
+    final List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers(context -> {
+        users.add(context.getResultObject());
+        rows.add(context.getResultObject().getName() + ":" + context.getResultObject().getAge());
+      });
+    }
+    assertSame(users.get(0), users.get(2));
+    assertEquals("null:0", rows.get(1));
+    assertEquals("User3:40", rows.get(2));
+  }
+
+}
@@ -0,0 +1,119 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.result_set_layout_cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.ResultSetLayout;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResultSetLayoutCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/result_set_layout_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/result_set_layout_cache/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldShareLayoutAcrossExecutions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsers());
+    }
+    Map<String, ResultSetLayout> layouts = sqlSessionFactory.getConfiguration().getResultSetLayouts();
+    assertEquals(1, layouts.size());
+    ResultSetLayout layout = layouts.values().iterator().next();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertUsers(sqlSession.getMapper(Mapper.class).getUsers());
+    }
+    assertEquals(1, layouts.size());
+    assertSame(layout, layouts.values().iterator().next());
+  }
+
+  @Test
+  public void shouldKeepOneLayoutPerColumnLayout() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertUsers(mapper.getUsers());
+      assertUsers(mapper.getUsersWithReorderedColumns());
+    }
+    assertEquals(2, sqlSessionFactory.getConfiguration().getResultSetLayouts().size());
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedLayouts() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertUsers(mapper.getUsers());
+      assertUsers(mapper.getUsersWithReorderedColumns());
+      List<User> users = mapper.getUserNames();
+      assertEquals("User1", users.get(0).getName());
+      assertEquals(-1, users.get(0).getAge());
+    }
+    Map<String, ResultSetLayout> layouts = sqlSessionFactory.getConfiguration().getResultSetLayouts();
+    assertEquals(2, layouts.size());
+    for (ResultSetLayout layout : layouts.values()) {
+      // the layout of getUsers is the eldest one
+      assertEquals(layout.getColumnNames().get(0).equalsIgnoreCase("age") ? 3 : 2, layout.getColumnNames().size());
+    }
+  }
+
+  @Test
+  public void shouldKeepRecentlyReusedLayouts() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertUsers(mapper.getUsers());
+      assertUsers(mapper.getUsersWithReorderedColumns());
+      sqlSession.clearCache();
+      assertUsers(mapper.getUsers());
+      mapper.getUserNames();
+    }
+    Map<String, ResultSetLayout> layouts = sqlSessionFactory.getConfiguration().getResultSetLayouts();
+    assertEquals(2, layouts.size());
+    for (ResultSetLayout layout : layouts.values()) {
+      // the layout of getUsersWithReorderedColumns is the least recently used one
+      assertEquals("id", layout.getColumnNames().get(0).toLowerCase());
+    }
+  }
+
+  private void assertUsers(List<User> users) {
+    assertEquals(2, users.size());
+    assertEquals(Integer.valueOf(1), users.get(0).getId());
+    assertEquals("User1", users.get(0).getName());
+    assertEquals(10, users.get(0).getAge());
+    assertEquals(Integer.valueOf(2), users.get(1).getId());
+    assertNull(users.get(1).getName());
+    assertEquals(-1, users.get(1).getAge());
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.reuse_statement_cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReuseStatementCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/reuse_statement_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/reuse_statement_cache/CreateDB.sql");
+    StatementRecorder.STATEMENTS.clear();
+  }
+
+  @Test
+  public void shouldReuseStatementForSameSql() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("User1", mapper.getUserName(1));
+      assertEquals("User2", mapper.getUserName(2));
+      assertEquals(1, StatementRecorder.STATEMENTS.size());
+      assertFalse(StatementRecorder.STATEMENTS.get(0).isClosed());
+    }
+    assertTrue(StatementRecorder.STATEMENTS.get(0).isClosed());
+  }
+
+  @Test
+  public void shouldCloseLeastRecentlyUsedStatement() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("User1", mapper.getUserName(1));
+      assertEquals(3, mapper.countUsers());
+      // getUserName becomes the most recently used statement
+      assertEquals("User2", mapper.getUserName(2));
+      assertEquals(3, mapper.getMaxId());
+      assertEquals(3, StatementRecorder.STATEMENTS.size());
+      assertFalse(StatementRecorder.STATEMENTS.get(0).isClosed());
+      assertTrue(StatementRecorder.STATEMENTS.get(1).isClosed());
+      assertFalse(StatementRecorder.STATEMENTS.get(2).isClosed());
+      // the evicted statement is prepared again
+      sqlSession.clearCache();
+      assertEquals(3, mapper.countUsers());
+      assertEquals(4, StatementRecorder.STATEMENTS.size());
+      assertEquals("User3", mapper.getUserName(3));
+      assertEquals(5, StatementRecorder.STATEMENTS.size());
+    }
+  }
+
+  @Test
+  public void shouldKeepEvictedCursorStatementOpen() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<String> names = mapper.getUserNames();
+      Iterator<String> iterator = names.iterator();
+      assertEquals("User1", iterator.next());
+      assertEquals(3, mapper.countUsers());
+      assertEquals(3, mapper.getMaxId());
+      assertFalse(StatementRecorder.STATEMENTS.get(0).isClosed());
+      assertEquals("User2", iterator.next());
+      assertEquals("User3", iterator.next());
+      assertFalse(iterator.hasNext());
+      sqlSession.flushStatements();
+      for (int i = 0; i < StatementRecorder.STATEMENTS.size(); i++) {
+        assertTrue(StatementRecorder.STATEMENTS.get(i).isClosed());
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNonPositiveCacheSize() {
+    sqlSessionFactory.getConfiguration().setReuseStatementCacheSize(0);
+  }
+
+}
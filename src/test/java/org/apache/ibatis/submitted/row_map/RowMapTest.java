@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.row_map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.result.RowMap;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowMapType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RowMapTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/row_map/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/row_map/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldReturnCompactRowMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(2, users.size());
+      Map<String, Object> user = users.get(0);
+      assertTrue(user instanceof RowMap);
+      assertEquals(Arrays.asList("ID", "NAME", "EMAIL"), Arrays.asList(user.keySet().toArray()));
+      assertEquals(1, user.get("ID"));
+      assertEquals("User1", user.get("NAME"));
+      assertNull(user.get("name"));
+      Map<String, Object> expected = new HashMap<>();
+      expected.put("ID", 1);
+      expected.put("NAME", "User1");
+      expected.put("EMAIL", "user1@example.com");
+      assertEquals(expected, user);
+    }
+  }
+
+  @Test
+  public void shouldOmitNullColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Map<String, Object> user = sqlSession.getMapper(Mapper.class).getUsers().get(1);
+      assertEquals(2, user.size());
+      assertFalse(user.containsKey("EMAIL"));
+    }
+  }
+
+  @Test
+  public void shouldKeepNullColumnsWhenCallingSettersOnNulls() {
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Map<String, Object> user = sqlSession.getMapper(Mapper.class).getUsers().get(1);
+      assertEquals(3, user.size());
+      assertTrue(user.containsKey("EMAIL"));
+      assertNull(user.get("EMAIL"));
+    }
+  }
+
+  @Test
+  public void shouldLookUpColumnsIgnoringCase() {
+    sqlSessionFactory.getConfiguration().setRowMapType(RowMapType.COMPACT_CASE_INSENSITIVE);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Map<String, Object> user = sqlSession.getMapper(Mapper.class).getUsers().get(0);
+      assertEquals("User1", user.get("name"));
+      assertEquals("User1", user.get("Name"));
+      assertTrue(user.containsKey("email"));
+    }
+  }
+
+  @Test
+  public void shouldReturnHashMapsByDefault() {
+    sqlSessionFactory.getConfiguration().setRowMapType(RowMapType.HASH_MAP);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Map<String, Object> user = sqlSession.getMapper(Mapper.class).getUsers().get(0);
+      assertTrue(user instanceof HashMap);
+    }
+  }
+
+}
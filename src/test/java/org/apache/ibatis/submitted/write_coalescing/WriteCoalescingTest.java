@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.write_coalescing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.submitted.nested_query_batch.StatementCounter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteCoalescingTest {
+
+  private static final String INSERT = "insert into users (id, name)";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/write_coalescing/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/write_coalescing/CreateDB.sql");
+    StatementCounter.STATEMENTS.clear();
+  }
+
+  @Test
+  public void shouldBatchVoidWritesUntilSelect() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User(3, "User3"));
+      mapper.insertUser(new User(4, "User4"));
+      mapper.insertUser(new User(5, "User5"));
+      assertEquals(1, StatementCounter.count(INSERT));
+      assertEquals(5, mapper.countUsers());
+      mapper.insertUser(new User(6, "User6"));
+      assertEquals(2, StatementCounter.count(INSERT));
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(6, sqlSession.getMapper(Mapper.class).countUsers());
+    }
+  }
+
+  @Test
+  public void shouldCallInsertOfOtherSessions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.SIMPLE)) {
+      List<String> calls = new ArrayList<>();
+      SqlSession countingSession = (SqlSession) Proxy.newProxyInstance(SqlSession.class.getClassLoader(),
+          new Class<?>[] {SqlSession.class}, (proxy, method, args) -> {
+            calls.add(method.getName());
+            return method.invoke(sqlSession, args);
+          });
+      sqlSessionFactory.getConfiguration().getMapper(Mapper.class, countingSession).insertUser(new User(3, "User3"));
+      assertTrue(calls.contains("insert"));
+      assertFalse(calls.contains("execute"));
+    }
+  }
+
+  @Test
+  public void shouldReturnUpdateCountWhenRequested() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User(3, "User3"));
+      assertEquals(1, mapper.insertUserReturningCount(new User(4, "User4")));
+      assertEquals(1, sqlSession.insert("org.apache.ibatis.submitted.write_coalescing.Mapper.insertUser", new User(5, "User5")));
+      assertEquals(5, sqlSession.update("org.apache.ibatis.submitted.write_coalescing.Mapper.renameUsers", "Renamed"));
+      // nothing is left to flush
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(0, results.size());
+    }
+  }
+
+  @Test
+  public void shouldReturnDeferredWritesFromFlushStatements() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User(3, "User3"));
+      mapper.insertUser(new User(4, "User4"));
+      mapper.renameUsers("Renamed");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      assertEquals(4, results.get(1).getUpdateCounts()[0]);
+    }
+  }
+
+  @Test
+  public void shouldNotDeferWritesWithGeneratedKeys() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = new User(null, "User3");
+      mapper.insertUserWithKey(user);
+      assertNotNull(user.getId());
+    }
+  }
+
+  @Test
+  public void shouldDiscardDeferredWritesOnRollback() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User(3, "User3"));
+      sqlSession.rollback();
+      assertEquals(2, mapper.countUsers());
+    }
+  }
+
+}